@@ -0,0 +1,89 @@
+package com.deface.telegram.deface;
+
+import com.deface.telegram.config.AppConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultipartBodyBenchmark {
+  @Param({"65536", "524288", "2097152"})
+  int imageBytes;
+
+  private DefaceClient client;
+  private byte[] image;
+
+  @Setup
+  public void setUp() {
+    client = new DefaceClient(AppConfig.load(Map.of(
+        "TELEGRAM_BOT_TOKEN", "benchmark",
+        "DEFACE_ENDPOINT", "http://localhost:1/deface",
+        "ALLOWED_FILTER_NAMES", "blur,pixelate",
+        "ALLOWED_PASTE_STYLES", "feathered,hard")));
+    image = new byte[imageBytes];
+    ThreadLocalRandom.current().nextBytes(image);
+  }
+
+  @TearDown
+  public void tearDown() {
+    client.close();
+  }
+
+  @Benchmark
+  public long buildAndDrain(Blackhole blackhole) throws Exception {
+    HttpRequest.BodyPublisher body = client.buildMultipartBody(HttpRequest.BodyPublishers.ofByteArray(image));
+    return drain(body, blackhole);
+  }
+
+  private static long drain(HttpRequest.BodyPublisher body, Blackhole blackhole) throws Exception {
+    CompletableFuture<Long> done = new CompletableFuture<>();
+    body.subscribe(new Flow.Subscriber<>() {
+      private long total;
+
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+
+      @Override
+      public void onNext(ByteBuffer item) {
+        total += item.remaining();
+        blackhole.consume(item);
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        done.completeExceptionally(throwable);
+      }
+
+      @Override
+      public void onComplete() {
+        done.complete(total);
+      }
+    });
+    return done.get(10, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,75 @@
+package com.deface.telegram.telegram;
+
+import com.deface.telegram.config.AppConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatSettingsStoreBenchmark {
+  private static final int CHATS = 100_000;
+  private static final String[] FILTERS = {"blur", "pixelate"};
+  private static final String[] PASTE_STYLES = {"feathered", "hard"};
+
+  private ChatSettingsStore store;
+
+  @Setup
+  public void setUp() {
+    store = new ChatSettingsStore(AppConfig.load(Map.of(
+        "TELEGRAM_BOT_TOKEN", "benchmark",
+        "DEFACE_ENDPOINT", "http://localhost:1/deface",
+        "ALLOWED_FILTER_NAMES", String.join(",", FILTERS),
+        "ALLOWED_PASTE_STYLES", String.join(",", PASTE_STYLES))));
+    for (long chatId = 0; chatId < CHATS; chatId += 2) {
+      store.updateFilter(chatId, "pixelate");
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    store.close();
+  }
+
+  @Benchmark
+  @Group("uncontended")
+  public ChatSettingsStore.ChatSettings getOnly() {
+    return store.get(ThreadLocalRandom.current().nextLong(CHATS));
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(3)
+  public ChatSettingsStore.ChatSettings get() {
+    return store.get(ThreadLocalRandom.current().nextLong(CHATS));
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(1)
+  public ChatSettingsStore.ChatSettings update() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long chatId = random.nextLong(CHATS);
+    return random.nextBoolean()
+        ? store.updateFilter(chatId, FILTERS[random.nextInt(FILTERS.length)])
+        : store.updatePasteStyle(chatId, PASTE_STYLES[random.nextInt(PASTE_STYLES.length)]);
+  }
+}
@@ -0,0 +1,31 @@
+package com.deface.telegram.telegram;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilePathParseBenchmark {
+  private final String response = "{\"ok\":true,\"result\":{\"file_id\":"
+      + "\"AgACAgIAAxkBAAIBZ2Zk3q5v0wABc9xJm4n6rY2aYtq8AAJx2TEbVb8pS1eQ2w9xWmN7AQADAgADeQADNQQ\","
+      + "\"file_unique_id\":\"AQADcdkxG1W_KUt-\",\"file_size\":184213,"
+      + "\"file_path\":\"photos/file_42.jpg\"}}";
+
+  @Benchmark
+  public String parseFilePath() {
+    return TelegramFileClient.parseFilePath(response);
+  }
+}
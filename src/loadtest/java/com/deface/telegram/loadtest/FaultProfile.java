@@ -0,0 +1,25 @@
+package com.deface.telegram.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+record FaultProfile(long latencyMillis, long jitterMillis, double errorRate) {
+  FaultProfile {
+    if (latencyMillis < 0 || jitterMillis < 0) {
+      throw new IllegalArgumentException("latency and jitter must be non-negative");
+    }
+    if (errorRate < 0 || errorRate > 1) {
+      throw new IllegalArgumentException("errorRate must be between 0 and 1");
+    }
+  }
+
+  void delay() throws InterruptedException {
+    long millis = latencyMillis + (jitterMillis == 0 ? 0 : ThreadLocalRandom.current().nextLong(jitterMillis + 1));
+    if (millis > 0) {
+      Thread.sleep(millis);
+    }
+  }
+
+  boolean fail() {
+    return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+  }
+}
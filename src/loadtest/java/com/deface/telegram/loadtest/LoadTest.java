@@ -0,0 +1,285 @@
+package com.deface.telegram.loadtest;
+
+import com.deface.telegram.Main;
+import com.deface.telegram.config.AppConfig;
+import com.deface.telegram.metrics.LatencyHistogram;
+import com.deface.telegram.telegram.DefaceTelegramBot;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Document;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.PhotoSize;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class LoadTest {
+  private static final String TOKEN = "123456:loadtest";
+  private static final long CHAT_ID_BASE = 1_000_000L;
+
+  private final Map<Long, ArrayDeque<Long>> pending = new ConcurrentHashMap<>();
+  private final LatencyHistogram latencies = new LatencyHistogram();
+  private final LongAdder delivered = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final AtomicLong outstanding = new AtomicLong();
+
+  private LoadTest() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new HashMap<>();
+    Map<String, String> overrides = new HashMap<>();
+    for (String arg : args) {
+      int equals = arg.indexOf('=');
+      if (equals <= 0) {
+        throw new IllegalArgumentException("Expected key=value but got " + arg);
+      }
+      String key = arg.substring(0, equals);
+      String value = arg.substring(equals + 1);
+      if (key.equals(key.toUpperCase(Locale.ROOT))) {
+        overrides.put(key, value);
+      } else {
+        options.put(key, value);
+      }
+    }
+    new LoadTest().run(Settings.from(options), overrides);
+  }
+
+  private void run(Settings settings, Map<String, String> configOverrides) throws Exception {
+    byte[] image = syntheticJpeg(settings.imageSide());
+    try (StubDefaceServer deface = new StubDefaceServer(settings.defaceProfile());
+        StubTelegramServer telegram = new StubTelegramServer(TOKEN, settings.telegramProfile(),
+            settings.downloadProfile(), image, this::onPhoto, this::onMessage)) {
+      Map<String, String> values = new HashMap<>();
+      values.put("TELEGRAM_BOT_TOKEN", TOKEN);
+      values.put("TELEGRAM_API_BASE_URL", telegram.baseUrl());
+      values.put("DEFACE_ENDPOINT", deface.endpoint());
+      values.put("RATE_LIMIT_CHAT_PER_MINUTE", "100000");
+      values.put("RATE_LIMIT_CHAT_BURST", "100000");
+      values.put("RATE_LIMIT_GLOBAL_PER_SECOND", "100000");
+      values.put("RATE_LIMIT_GLOBAL_BURST", "100000");
+      values.put("JOB_QUEUE_CAPACITY", "100000");
+      values.putAll(configOverrides);
+      DefaceTelegramBot bot = Main.createBot(AppConfig.load(values));
+
+      System.out.printf(Locale.ROOT, "Load test: %d updates/s for %ds across %d chats, image %d bytes as %s%n",
+          settings.rate(), settings.durationSeconds(), settings.chats(), image.length,
+          settings.documents() ? "documents" : "photos");
+      System.gc();
+      MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+      long gcCountBefore = gcCount();
+      long gcTimeBefore = gcTimeMillis();
+      long started = System.nanoTime();
+      long sent = inject(bot, settings, image.length);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.drainSeconds());
+      long peakHeap = memory.getHeapMemoryUsage().getUsed();
+      while (outstanding.get() > 0 && System.nanoTime() < deadline) {
+        Thread.sleep(50);
+        peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+      }
+      double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+      System.out.printf(Locale.ROOT, "Injected:      %d updates%n", sent);
+      System.out.printf(Locale.ROOT, "Delivered:     %d photos (%.1f/s)%n", delivered.sum(),
+          delivered.sum() / elapsedSeconds);
+      System.out.printf(Locale.ROOT, "Failed:        %d replies with an error message%n", failed.sum());
+      System.out.printf(Locale.ROOT, "Unanswered:    %d%n", Math.max(0, outstanding.get()));
+      System.out.printf(Locale.ROOT, "Latency ms:    p50=%d p95=%d p99=%d%n", latencies.percentileMillis(0.50),
+          latencies.percentileMillis(0.95), latencies.percentileMillis(0.99));
+      System.out.printf(Locale.ROOT, "Stub calls:    telegram=%d (%d injected errors) deface=%d (%d injected errors)%n",
+          telegram.requests(), telegram.failures(), deface.requests(), deface.failures());
+      System.out.printf(Locale.ROOT, "Heap:          peak used %d MiB%n", peakHeap / (1024 * 1024));
+      System.out.printf(Locale.ROOT, "GC:            %d collections, %d ms%n", gcCount() - gcCountBefore,
+          gcTimeMillis() - gcTimeBefore);
+    }
+    System.exit(0);
+  }
+
+  private long inject(DefaceTelegramBot bot, Settings settings, long imageBytes) throws InterruptedException {
+    long total = (long) settings.rate() * settings.durationSeconds();
+    long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate();
+    long start = System.nanoTime();
+    for (long i = 0; i < total; i++) {
+      long due = start + i * intervalNanos;
+      long wait = due - System.nanoTime();
+      if (wait > 0) {
+        TimeUnit.NANOSECONDS.sleep(wait);
+      }
+      long chatId = CHAT_ID_BASE + ThreadLocalRandom.current().nextInt(settings.chats());
+      ArrayDeque<Long> queue = pending.computeIfAbsent(chatId, id -> new ArrayDeque<>());
+      synchronized (queue) {
+        queue.addLast(System.nanoTime());
+      }
+      outstanding.incrementAndGet();
+      bot.onUpdateReceived(settings.documents()
+          ? documentUpdate(i, chatId, imageBytes)
+          : photoUpdate(i, chatId, settings.imageSide()));
+    }
+    return total;
+  }
+
+  private void onPhoto(long chatId) {
+    complete(chatId, delivered);
+  }
+
+  private void onMessage(long chatId) {
+    complete(chatId, failed);
+  }
+
+  private void complete(long chatId, LongAdder outcome) {
+    ArrayDeque<Long> queue = pending.get(chatId);
+    if (queue == null) {
+      return;
+    }
+    Long injectedAt;
+    synchronized (queue) {
+      injectedAt = queue.pollFirst();
+    }
+    if (injectedAt == null) {
+      return;
+    }
+    latencies.recordNanos(System.nanoTime() - injectedAt);
+    outcome.increment();
+    outstanding.decrementAndGet();
+  }
+
+  private static Update photoUpdate(long sequence, long chatId, int side) {
+    PhotoSize photo = new PhotoSize();
+    photo.setFileId("load-" + sequence);
+    photo.setFileUniqueId("load-" + sequence);
+    photo.setWidth(side);
+    photo.setHeight(side);
+    Message message = message(sequence, chatId);
+    message.setPhoto(List.of(photo));
+    return update(sequence, message);
+  }
+
+  private static Update documentUpdate(long sequence, long chatId, long fileSize) {
+    Document document = new Document();
+    document.setFileId("load-" + sequence);
+    document.setFileUniqueId("load-" + sequence);
+    document.setFileName("load-" + sequence + ".jpg");
+    document.setMimeType("image/jpeg");
+    document.setFileSize(fileSize);
+    Message message = message(sequence, chatId);
+    message.setDocument(document);
+    return update(sequence, message);
+  }
+
+  private static Message message(long sequence, long chatId) {
+    Chat chat = new Chat();
+    chat.setId(chatId);
+    chat.setType("private");
+    Message message = new Message();
+    message.setMessageId((int) sequence);
+    message.setDate((int) (System.currentTimeMillis() / 1000));
+    message.setChat(chat);
+    return message;
+  }
+
+  private static Update update(long sequence, Message message) {
+    Update update = new Update();
+    update.setUpdateId((int) sequence);
+    update.setMessage(message);
+    return update;
+  }
+
+  private static byte[] syntheticJpeg(int side) throws IOException {
+    BufferedImage image = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int y = 0; y < side; y++) {
+      for (int x = 0; x < side; x++) {
+        image.setRGB(x, y, random.nextInt(0x1000000));
+      }
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ImageIO.write(image, "jpg", output);
+    return output.toByteArray();
+  }
+
+  private static long gcCount() {
+    long total = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(0, collector.getCollectionCount());
+    }
+    return total;
+  }
+
+  private static long gcTimeMillis() {
+    long total = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(0, collector.getCollectionTime());
+    }
+    return total;
+  }
+
+  private record Settings(
+      int rate,
+      int durationSeconds,
+      int drainSeconds,
+      int chats,
+      int imageSide,
+      boolean documents,
+      FaultProfile telegramProfile,
+      FaultProfile downloadProfile,
+      FaultProfile defaceProfile
+  ) {
+    private static Settings from(Map<String, String> options) {
+      long telegramLatency = longOption(options, "telegramLatencyMs", 30);
+      long telegramJitter = longOption(options, "telegramJitterMs", 20);
+      double telegramErrors = doubleOption(options, "telegramErrorRate", 0);
+      return new Settings(
+          positive(options, "rate", 20),
+          positive(options, "durationSeconds", 30),
+          (int) longOption(options, "drainSeconds", 60),
+          positive(options, "chats", 50),
+          positive(options, "imageSide", 1024),
+          Boolean.parseBoolean(options.getOrDefault("documents", "false")),
+          new FaultProfile(telegramLatency, telegramJitter, telegramErrors),
+          new FaultProfile(longOption(options, "downloadLatencyMs", telegramLatency), telegramJitter,
+              doubleOption(options, "downloadErrorRate", 0)),
+          new FaultProfile(longOption(options, "defaceLatencyMs", 400), longOption(options, "defaceJitterMs", 200),
+              doubleOption(options, "defaceErrorRate", 0)));
+    }
+
+    private static int positive(Map<String, String> options, String name, int defaultValue) {
+      long value = longOption(options, name, defaultValue);
+      if (value <= 0 || value > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException(name + " must be a positive int");
+      }
+      return (int) value;
+    }
+
+    private static long longOption(Map<String, String> options, String name, long defaultValue) {
+      String value = options.get(name);
+      if (value == null) {
+        return defaultValue;
+      }
+      long parsed = Long.parseLong(value.trim());
+      if (parsed < 0) {
+        throw new IllegalArgumentException(name + " must not be negative");
+      }
+      return parsed;
+    }
+
+    private static double doubleOption(Map<String, String> options, String name, double defaultValue) {
+      String value = options.get(name);
+      return value == null ? defaultValue : Double.parseDouble(value.trim());
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package com.deface.telegram.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+final class StubDefaceServer implements AutoCloseable {
+  private final FaultProfile profile;
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+
+  StubDefaceServer(FaultProfile profile) throws IOException {
+    this.profile = Objects.requireNonNull(profile, "profile");
+    this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/deface", this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  String endpoint() {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/deface";
+  }
+
+  long requests() {
+    return requests.sum();
+  }
+
+  long failures() {
+    return failures.sum();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      requests.increment();
+      byte[] body;
+      try (InputStream input = exchange.getRequestBody()) {
+        body = input.readAllBytes();
+      }
+      try {
+        profile.delay();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        exchange.sendResponseHeaders(503, -1);
+        return;
+      }
+      if (profile.fail()) {
+        failures.increment();
+        exchange.sendResponseHeaders(503, -1);
+        return;
+      }
+      exchange.getResponseHeaders().add("Content-Type", "image/jpeg");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    }
+  }
+}
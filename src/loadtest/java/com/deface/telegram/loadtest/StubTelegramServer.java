@@ -0,0 +1,185 @@
+package com.deface.telegram.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+final class StubTelegramServer implements AutoCloseable {
+  private static final Pattern MULTIPART_CHAT_ID =
+      Pattern.compile("name=\"chat_id\"[^\\r\\n]*\\r\\n(?:[^\\r\\n]+\\r\\n)*\\r\\n(-?\\d+)");
+  private static final Pattern JSON_CHAT_ID = Pattern.compile("\"chat_id\"\\s*:\\s*\"?(-?\\d+)");
+
+  private final String token;
+  private final FaultProfile apiProfile;
+  private final FaultProfile downloadProfile;
+  private final byte[] image;
+  private final LongConsumer photoDelivered;
+  private final LongConsumer messageDelivered;
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final AtomicInteger messageIds = new AtomicInteger();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+
+  StubTelegramServer(String token, FaultProfile apiProfile, FaultProfile downloadProfile, byte[] image,
+      LongConsumer photoDelivered, LongConsumer messageDelivered) throws IOException {
+    this.token = Objects.requireNonNull(token, "token");
+    this.apiProfile = Objects.requireNonNull(apiProfile, "apiProfile");
+    this.downloadProfile = Objects.requireNonNull(downloadProfile, "downloadProfile");
+    this.image = Objects.requireNonNull(image, "image");
+    this.photoDelivered = Objects.requireNonNull(photoDelivered, "photoDelivered");
+    this.messageDelivered = Objects.requireNonNull(messageDelivered, "messageDelivered");
+    this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/bot" + token + "/", this::handleApi);
+    server.createContext("/file/bot" + token + "/", this::handleDownload);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  String baseUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  long requests() {
+    return requests.sum();
+  }
+
+  long failures() {
+    return failures.sum();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handleApi(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      requests.increment();
+      String path = exchange.getRequestURI().getPath();
+      String method = path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+      byte[] body;
+      try (InputStream input = exchange.getRequestBody()) {
+        body = input.readAllBytes();
+      }
+      if (!delay(exchange, apiProfile)) {
+        return;
+      }
+      switch (method) {
+        case "getfile" -> {
+          String fileId = queryValue(exchange.getRequestURI().getRawQuery(), "file_id");
+          respond(exchange, "{\"ok\":true,\"result\":{\"file_id\":\"" + fileId
+              + "\",\"file_unique_id\":\"" + fileId + "\",\"file_size\":" + image.length
+              + ",\"file_path\":\"photos/" + fileId + ".jpg\"}}");
+        }
+        case "getme" -> respond(exchange,
+            "{\"ok\":true,\"result\":{\"id\":1,\"is_bot\":true,\"first_name\":\"stub\",\"username\":\"stub_bot\"}}");
+        case "sendphoto" -> {
+          long chatId = chatId(body, MULTIPART_CHAT_ID);
+          respond(exchange, photoMessage(chatId));
+          photoDelivered.accept(chatId);
+        }
+        case "senddocument" -> {
+          long chatId = chatId(body, MULTIPART_CHAT_ID);
+          int messageId = messageIds.incrementAndGet();
+          respond(exchange, "{\"ok\":true,\"result\":{\"message_id\":" + messageId + ",\"date\":0,\"chat\":{\"id\":"
+              + chatId + ",\"type\":\"private\"},\"document\":{\"file_id\":\"sent-" + messageId
+              + "\",\"file_unique_id\":\"sent-" + messageId + "\"}}}");
+          photoDelivered.accept(chatId);
+        }
+        case "sendmessage" -> {
+          long chatId = chatId(body, JSON_CHAT_ID);
+          respond(exchange, "{\"ok\":true,\"result\":{\"message_id\":" + messageIds.incrementAndGet()
+              + ",\"date\":0,\"chat\":{\"id\":" + chatId + ",\"type\":\"private\"},\"text\":\"ok\"}}");
+          messageDelivered.accept(chatId);
+        }
+        default -> respond(exchange, "{\"ok\":true,\"result\":true}");
+      }
+    }
+  }
+
+  private void handleDownload(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      requests.increment();
+      if (!delay(exchange, downloadProfile)) {
+        return;
+      }
+      exchange.getResponseHeaders().add("Content-Type", "image/jpeg");
+      exchange.sendResponseHeaders(200, image.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(image);
+      }
+    }
+  }
+
+  private boolean delay(HttpExchange exchange, FaultProfile profile) throws IOException {
+    try {
+      profile.delay();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      exchange.sendResponseHeaders(503, -1);
+      return false;
+    }
+    if (profile.fail()) {
+      failures.increment();
+      byte[] error = "{\"ok\":false,\"error_code\":500,\"description\":\"stub failure\"}"
+          .getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(500, error.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(error);
+      }
+      return false;
+    }
+    return true;
+  }
+
+  private String photoMessage(long chatId) {
+    int messageId = messageIds.incrementAndGet();
+    return "{\"ok\":true,\"result\":{\"message_id\":" + messageId + ",\"date\":0,\"chat\":{\"id\":" + chatId
+        + ",\"type\":\"private\"},\"photo\":[{\"file_id\":\"sent-" + messageId + "\",\"file_unique_id\":\"sent-"
+        + messageId + "\",\"width\":1280,\"height\":960,\"file_size\":" + image.length + "}]}}";
+  }
+
+  private static void respond(HttpExchange exchange, String json) throws IOException {
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(bytes);
+    }
+  }
+
+  private static long chatId(byte[] body, Pattern pattern) {
+    Matcher matcher = pattern.matcher(new String(body, StandardCharsets.ISO_8859_1));
+    return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+  }
+
+  private static String queryValue(String query, String name) {
+    if (query == null) {
+      return "";
+    }
+    for (String pair : query.split("&")) {
+      int equals = pair.indexOf('=');
+      if (equals > 0 && pair.substring(0, equals).equals(name)) {
+        return pair.substring(equals + 1);
+      }
+    }
+    return "";
+  }
+}
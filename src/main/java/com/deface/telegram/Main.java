@@ -1,15 +1,34 @@
 package com.deface.telegram;
 
+import com.deface.telegram.cache.DefaceResultCache;
+import com.deface.telegram.cluster.ClusterIngress;
+import com.deface.telegram.cluster.ClusterWorker;
+import com.deface.telegram.cache.SentFileIdStore;
 import com.deface.telegram.config.AppConfig;
+import com.deface.telegram.deface.CircuitBreaker;
+import com.deface.telegram.deface.DefaceBackend;
 import com.deface.telegram.deface.DefaceClient;
+import com.deface.telegram.metrics.MetricsRegistry;
+import com.deface.telegram.metrics.MetricsServer;
+import com.deface.telegram.pipeline.AdmissionController;
+import com.deface.telegram.pipeline.ExecutionLane;
+import com.deface.telegram.pipeline.PhotoPipeline;
 import com.deface.telegram.telegram.ChatSettingsStore;
 import com.deface.telegram.telegram.DefaceTelegramBot;
+import com.deface.telegram.telegram.PhotoRouter;
+import com.deface.telegram.telegram.TelegramFileClient;
+import com.deface.telegram.telegram.TelegramReplySender;
+import com.deface.telegram.telegram.WebhookServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
+import java.io.IOException;
+import java.util.List;
+
 public final class Main {
   private static final Logger logger = LoggerFactory.getLogger(Main.class);
 
@@ -21,26 +40,110 @@ public final class Main {
       AppConfig config = AppConfig.load();
 
       logger.info("Deface Telegram Bot starting");
-      logger.info("DEFACE_ENDPOINT={}", safe(config.getDefaceEndpoint()));
+      logger.info("DEFACE_ENDPOINTS={}", String.join(",", config.getDefaceEndpoints()));
       logger.info("DEFAULT_FILTER_NAME={}", config.getDefaultFilterName());
       logger.info("DEFAULT_PASTE_STYLE={}", config.getDefaultPasteStyle());
 
-      TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-      DefaceClient defaceClient = new DefaceClient(config);
-      ChatSettingsStore settingsStore = new ChatSettingsStore(config);
-      botsApi.registerBot(new DefaceTelegramBot(config, defaceClient, settingsStore));
-      logger.info("Telegram bot registered and polling");
+      DefaceTelegramBot bot = createBot(config);
+      if (config.getClusterSettings().worker()) {
+        logger.info("Running as cluster worker for {}", config.getClusterSettings().ingressUrl());
+      } else if (config.isWebhookMode()) {
+        startWebhook(config, bot);
+      } else {
+        new TelegramBotsApi(DefaultBotSession.class).registerBot(bot);
+        logger.info("Telegram bot registered and polling");
+      }
     } catch (IllegalStateException e) {
       logger.error("Configuration error: {}", e.getMessage(), e);
       logger.error("Set required environment variables or provide values in .env/application.properties.");
       System.exit(1);
-    } catch (TelegramApiException e) {
+    } catch (TelegramApiException | IOException e) {
       logger.error("Failed to start Telegram bot", e);
       System.exit(1);
     }
   }
 
-  private static String safe(String value) {
-    return value == null ? "(unset)" : value;
+  public static DefaceTelegramBot createBot(AppConfig config) throws IOException {
+    MetricsRegistry metrics = new MetricsRegistry();
+    DefaceClient defaceClient = new DefaceClient(config);
+    ChatSettingsStore settingsStore = new ChatSettingsStore(config);
+    Runtime.getRuntime().addShutdownHook(new Thread(settingsStore::close, "chat-settings-shutdown"));
+    PhotoPipeline pipeline = new PhotoPipeline(config, metrics, defaceClient::expectedLatencyMillis);
+    Runtime.getRuntime().addShutdownHook(new Thread(pipeline::close, "photo-pipeline-shutdown"));
+    DefaceResultCache resultCache = new DefaceResultCache(config.getResultCacheSettings());
+    SentFileIdStore sentFileIds = new SentFileIdStore(config.getSentFileIdSettings());
+    Runtime.getRuntime().addShutdownHook(new Thread(sentFileIds::close, "sent-file-ids-shutdown"));
+    TelegramFileClient fileClient = new TelegramFileClient(config);
+    AppConfig.LaneSettings lanes = config.getLaneSettings();
+    ExecutionLane commandLane = new ExecutionLane("command", lanes.commandConcurrency(),
+        lanes.commandQueueCapacity());
+    Runtime.getRuntime().addShutdownHook(new Thread(commandLane::close, "command-lane-shutdown"));
+    AdmissionController admission = new AdmissionController(config.getAdmissionSettings());
+    commandLane.registerMetrics(metrics);
+    registerMetrics(metrics, defaceClient, resultCache, admission);
+    AppConfig.ClusterSettings cluster = config.getClusterSettings();
+    PhotoRouter photoRouter = PhotoRouter.LOCAL;
+    if (cluster.ingress()) {
+      ClusterIngress ingress = new ClusterIngress(cluster, metrics);
+      ingress.start();
+      Runtime.getRuntime().addShutdownHook(new Thread(ingress::close, "cluster-ingress-shutdown"));
+      photoRouter = ingress;
+    }
+    TelegramReplySender replySender = new TelegramReplySender(config);
+    Runtime.getRuntime().addShutdownHook(new Thread(replySender::close, "reply-sender-shutdown"));
+    DefaceTelegramBot bot = new DefaceTelegramBot(config, defaceClient, settingsStore, pipeline, resultCache,
+        sentFileIds, fileClient, admission, commandLane, replySender, photoRouter, metrics);
+    if (config.getWarmupSettings().enabled()) {
+      Warmup.of(config, defaceClient, fileClient, List.of(bot, replySender)).run();
+    }
+    if (cluster.worker()) {
+      ClusterWorker worker = new ClusterWorker(cluster, bot::processForwarded);
+      worker.start();
+      Runtime.getRuntime().addShutdownHook(new Thread(worker::close, "cluster-worker-shutdown"));
+    }
+    if (config.getMetricsPort() > 0) {
+      MetricsServer metricsServer = new MetricsServer(config.getMetricsPort(), metrics,
+          () -> pipeline.slowJobs().dump(false));
+      metricsServer.start();
+      Runtime.getRuntime().addShutdownHook(new Thread(metricsServer::close, "metrics-server-shutdown"));
+    }
+    return bot;
+  }
+
+  private static void registerMetrics(MetricsRegistry metrics, DefaceClient defaceClient,
+      DefaceResultCache resultCache, AdmissionController admission) {
+    metrics.gauge("deface_bot_queue_depth", "Admitted photo jobs waiting or running",
+        () -> admission.snapshot().queuedJobs());
+    metrics.counter("deface_bot_admitted_total", "Photo jobs admitted", () -> admission.snapshot().admitted());
+    metrics.counter("deface_bot_rejected_total", "Photo jobs rejected by admission control",
+        () -> admission.snapshot().rejected());
+    metrics.counter("deface_bot_result_cache_hits_total", "Deface result cache hits",
+        () -> resultCache.stats().hits());
+    metrics.counter("deface_bot_result_cache_misses_total", "Deface result cache misses",
+        () -> resultCache.stats().misses());
+    metrics.gauge("deface_bot_result_cache_bytes", "Bytes held in the in-memory result cache",
+        () -> resultCache.stats().bytes());
+    metrics.counter("deface_bot_hedged_requests_total", "Hedged deface requests", defaceClient::hedgedRequests);
+    metrics.counter("deface_bot_batched_requests_total", "Batched deface requests", defaceClient::batchedRequests);
+    metrics.gauge("deface_bot_circuit_open", "Whether the deface circuit breaker is open",
+        () -> defaceClient.circuitState() == CircuitBreaker.State.OPEN ? 1 : 0);
+    for (DefaceBackend backend : defaceClient.backendPool().backends()) {
+      metrics.gauge("deface_bot_backend_outstanding", "Outstanding requests per deface backend",
+          backend::outstanding, "endpoint", backend.endpoint());
+      metrics.histogram("deface_bot_backend_latency_seconds", "Deface backend response time",
+          backend.latency(), "endpoint", backend.endpoint());
+    }
+  }
+
+  private static void startWebhook(AppConfig config, DefaceTelegramBot bot) throws IOException, TelegramApiException {
+    AppConfig.WebhookSettings settings = config.getWebhookSettings();
+    WebhookServer server = new WebhookServer(settings.port(), settings.path(), settings.secretToken(),
+        settings.threads(), bot::onUpdateReceived);
+    server.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close, "webhook-server-shutdown"));
+    SetWebhook setWebhook = SetWebhook.builder().url(settings.url()).build();
+    settings.secret().ifPresent(setWebhook::setSecretToken);
+    bot.execute(setWebhook);
+    logger.info("Telegram bot registered with webhook {}", settings.url());
   }
 }
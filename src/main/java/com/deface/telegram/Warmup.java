@@ -0,0 +1,119 @@
+package com.deface.telegram;
+
+import com.deface.telegram.config.AppConfig;
+import com.deface.telegram.deface.DefaceClient;
+import com.deface.telegram.telegram.TelegramFileClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.meta.api.methods.GetMe;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+final class Warmup {
+  private static final int IMAGE_SIDE = 256;
+  private static final Logger logger = LoggerFactory.getLogger(Warmup.class);
+
+  private final Duration timeout;
+  private final List<Step> steps;
+
+  Warmup(Duration timeout, List<Step> steps) {
+    this.timeout = Objects.requireNonNull(timeout, "timeout");
+    this.steps = List.copyOf(steps);
+  }
+
+  static Warmup of(AppConfig config, DefaceClient defaceClient, TelegramFileClient fileClient,
+      List<DefaultAbsSender> senders) {
+    Objects.requireNonNull(defaceClient, "defaceClient");
+    Objects.requireNonNull(fileClient, "fileClient");
+    List<DefaultAbsSender> clients = List.copyOf(senders);
+    List<Step> steps = new ArrayList<>();
+    steps.add(new Step("Telegram API", () -> {
+      for (DefaultAbsSender sender : clients) {
+        sender.execute(new GetMe());
+      }
+      fileClient.warmUp();
+    }));
+    Duration timeout = config.getWarmupSettings().timeout();
+    byte[] image;
+    try {
+      image = syntheticJpeg();
+    } catch (IOException e) {
+      logger.warn("Warm-up skipped deface calls: {}", e.getMessage());
+      return new Warmup(timeout, steps);
+    }
+    for (String filterName : config.getAllowedFilterNames()) {
+      steps.add(new Step("deface filter " + filterName,
+          () -> defaceClient.warmUp(image, filterName, config.getDefaultPasteStyle())));
+    }
+    return new Warmup(timeout, steps);
+  }
+
+  void run() {
+    long started = System.nanoTime();
+    Thread worker = Thread.ofPlatform().name("warmup").daemon().start(this::runSteps);
+    try {
+      if (!worker.join(timeout)) {
+        worker.interrupt();
+        logger.warn("Warm-up did not finish within {} ms; accepting updates anyway", timeout.toMillis());
+      }
+    } catch (InterruptedException e) {
+      worker.interrupt();
+      Thread.currentThread().interrupt();
+    }
+    logger.info("Warm-up finished in {} ms", elapsedMillis(started));
+  }
+
+  private void runSteps() {
+    for (Step step : steps) {
+      if (Thread.currentThread().isInterrupted()) {
+        return;
+      }
+      run(step);
+    }
+  }
+
+  private static void run(Step step) {
+    long started = System.nanoTime();
+    try {
+      step.action().run();
+      logger.info("Warm-up {} took {} ms", step.name(), elapsedMillis(started));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      logger.warn("Warm-up {} failed after {} ms: {}", step.name(), elapsedMillis(started), e.getMessage());
+    }
+  }
+
+  static byte[] syntheticJpeg() throws IOException {
+    BufferedImage image = new BufferedImage(IMAGE_SIDE, IMAGE_SIDE, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < IMAGE_SIDE; y++) {
+      for (int x = 0; x < IMAGE_SIDE; x++) {
+        image.setRGB(x, y, (x << 16) | (y << 8) | ((x + y) & 0xff));
+      }
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ImageIO.write(image, "jpg", output);
+    return output.toByteArray();
+  }
+
+  private static long elapsedMillis(long startedNanos) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+  }
+
+  record Step(String name, Action action) {
+  }
+
+  @FunctionalInterface
+  interface Action {
+    void run() throws Exception;
+  }
+}
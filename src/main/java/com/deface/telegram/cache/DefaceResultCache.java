@@ -0,0 +1,225 @@
+package com.deface.telegram.cache;
+
+import com.deface.telegram.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class DefaceResultCache {
+  private static final String FILE_SUFFIX = ".bin";
+  private static final Logger logger = LoggerFactory.getLogger(DefaceResultCache.class);
+
+  private final long memoryMaxBytes;
+  private final LinkedHashMap<ResultKey, byte[]> memoryEntries = new LinkedHashMap<>(64, 0.75f, true);
+  private long memoryBytes;
+
+  private final Path diskDirectory;
+  private final long diskMaxBytes;
+  private final LinkedHashMap<String, Long> diskEntries = new LinkedHashMap<>(64, 0.75f, true);
+  private long diskBytes;
+
+  private final LongAdder memoryHits = new LongAdder();
+  private final LongAdder diskHits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public DefaceResultCache(AppConfig.ResultCacheSettings settings) {
+    Objects.requireNonNull(settings, "settings");
+    this.memoryMaxBytes = settings.memoryMaxBytes();
+    this.diskMaxBytes = settings.diskMaxBytes();
+    this.diskDirectory = settings.diskTier().map(Path::of).orElse(null);
+    if (diskDirectory != null) {
+      loadDiskIndex();
+    }
+  }
+
+  public Optional<byte[]> get(ResultKey key) {
+    Objects.requireNonNull(key, "key");
+    synchronized (memoryEntries) {
+      byte[] cached = memoryEntries.get(key);
+      if (cached != null) {
+        memoryHits.increment();
+        return Optional.of(cached);
+      }
+    }
+    byte[] fromDisk = readFromDisk(key);
+    if (fromDisk != null) {
+      diskHits.increment();
+      putInMemory(key, fromDisk);
+      return Optional.of(fromDisk);
+    }
+    misses.increment();
+    return Optional.empty();
+  }
+
+  public void put(ResultKey key, byte[] result) {
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(result, "result");
+    putInMemory(key, result);
+    writeToDisk(key, result);
+  }
+
+  public Stats stats() {
+    int entries;
+    long bytes;
+    synchronized (memoryEntries) {
+      entries = memoryEntries.size();
+      bytes = memoryBytes;
+    }
+    long onDisk;
+    synchronized (diskEntries) {
+      onDisk = diskBytes;
+    }
+    return new Stats(memoryHits.sum(), diskHits.sum(), misses.sum(), entries, bytes, onDisk);
+  }
+
+  private void putInMemory(ResultKey key, byte[] result) {
+    if (result.length > memoryMaxBytes) {
+      return;
+    }
+    synchronized (memoryEntries) {
+      byte[] previous = memoryEntries.put(key, result);
+      if (previous != null) {
+        memoryBytes -= previous.length;
+      }
+      memoryBytes += result.length;
+      Iterator<Map.Entry<ResultKey, byte[]>> eldest = memoryEntries.entrySet().iterator();
+      while (memoryBytes > memoryMaxBytes && eldest.hasNext()) {
+        memoryBytes -= eldest.next().getValue().length;
+        eldest.remove();
+      }
+    }
+  }
+
+  private byte[] readFromDisk(ResultKey key) {
+    if (diskDirectory == null) {
+      return null;
+    }
+    String name = fileName(key);
+    synchronized (diskEntries) {
+      if (diskEntries.get(name) == null) {
+        return null;
+      }
+    }
+    Path file = diskDirectory.resolve(name);
+    try {
+      byte[] bytes = Files.readAllBytes(file);
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      return bytes;
+    } catch (NoSuchFileException e) {
+      forgetDiskEntry(name);
+      return null;
+    } catch (IOException e) {
+      logger.warn("Failed to read cached result {}", file, e);
+      return null;
+    }
+  }
+
+  private void writeToDisk(ResultKey key, byte[] result) {
+    if (diskDirectory == null || result.length > diskMaxBytes) {
+      return;
+    }
+    String name = fileName(key);
+    Path target = diskDirectory.resolve(name);
+    try {
+      Path temp = Files.createTempFile(diskDirectory, "result-", ".tmp");
+      Files.write(temp, result);
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.warn("Failed to write cached result {}", target, e);
+      return;
+    }
+
+    List<String> evicted = new ArrayList<>();
+    synchronized (diskEntries) {
+      Long previous = diskEntries.put(name, (long) result.length);
+      if (previous != null) {
+        diskBytes -= previous;
+      }
+      diskBytes += result.length;
+      Iterator<Map.Entry<String, Long>> eldest = diskEntries.entrySet().iterator();
+      while (diskBytes > diskMaxBytes && eldest.hasNext()) {
+        Map.Entry<String, Long> entry = eldest.next();
+        diskBytes -= entry.getValue();
+        evicted.add(entry.getKey());
+        eldest.remove();
+      }
+    }
+    for (String stale : evicted) {
+      try {
+        Files.deleteIfExists(diskDirectory.resolve(stale));
+      } catch (IOException e) {
+        logger.warn("Failed to evict cached result {}", stale, e);
+      }
+    }
+  }
+
+  private void forgetDiskEntry(String name) {
+    synchronized (diskEntries) {
+      Long size = diskEntries.remove(name);
+      if (size != null) {
+        diskBytes -= size;
+      }
+    }
+  }
+
+  private void loadDiskIndex() {
+    List<DiskFile> files = new ArrayList<>();
+    try {
+      Files.createDirectories(diskDirectory);
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(diskDirectory, "*" + FILE_SUFFIX)) {
+        for (Path file : stream) {
+          files.add(new DiskFile(file.getFileName().toString(), Files.size(file),
+              Files.getLastModifiedTime(file).toMillis()));
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to open result cache directory " + diskDirectory, e);
+    }
+    files.sort((left, right) -> Long.compare(left.lastModified(), right.lastModified()));
+    synchronized (diskEntries) {
+      for (DiskFile file : files) {
+        diskEntries.put(file.name(), file.size());
+        diskBytes += file.size();
+      }
+    }
+    logger.info("Result cache disk tier at {} holds {} entries ({} bytes)", diskDirectory, files.size(), diskBytes);
+  }
+
+  private static String fileName(ResultKey key) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] hash = digest.digest(key.canonical().getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(hash) + FILE_SUFFIX;
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  private record DiskFile(String name, long size, long lastModified) {
+  }
+
+  public record Stats(long memoryHits, long diskHits, long misses, int entries, long bytes, long diskBytes) {
+    public long hits() {
+      return memoryHits + diskHits;
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.deface.telegram.cache;
+
+import java.util.Objects;
+
+public record ResultKey(String fileUniqueId, String filterName, String pasteStyle, String variant) {
+  public ResultKey {
+    Objects.requireNonNull(fileUniqueId, "fileUniqueId");
+    Objects.requireNonNull(filterName, "filterName");
+    Objects.requireNonNull(pasteStyle, "pasteStyle");
+    Objects.requireNonNull(variant, "variant");
+  }
+
+  public String canonical() {
+    return fileUniqueId + "|" + filterName + "|" + pasteStyle + "|" + variant;
+  }
+}
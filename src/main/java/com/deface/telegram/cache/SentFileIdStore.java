@@ -0,0 +1,177 @@
+package com.deface.telegram.cache;
+
+import com.deface.telegram.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+public final class SentFileIdStore implements AutoCloseable {
+  private static final char SEPARATOR = '\t';
+  private static final Logger logger = LoggerFactory.getLogger(SentFileIdStore.class);
+
+  private final int maxEntries;
+  private final Path file;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final LinkedHashMap<ResultKey, String> fileIds;
+  private BufferedWriter writer;
+  private int linesSinceCompaction;
+
+  public SentFileIdStore(AppConfig.SentFileIdSettings settings) {
+    Objects.requireNonNull(settings, "settings");
+    this.maxEntries = settings.maxEntries();
+    this.file = settings.persistence().map(Path::of).orElse(null);
+    this.fileIds = new LinkedHashMap<>(64, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<ResultKey, String> eldest) {
+        return size() > maxEntries;
+      }
+    };
+    if (file != null) {
+      load();
+    }
+  }
+
+  public Optional<String> get(ResultKey key) {
+    Objects.requireNonNull(key, "key");
+    lock.lock();
+    try {
+      return Optional.ofNullable(fileIds.get(key));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void put(ResultKey key, String fileId) {
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(fileId, "fileId");
+    lock.lock();
+    try {
+      if (fileId.equals(fileIds.put(key, fileId))) {
+        return;
+      }
+      append(key, fileId);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void remove(ResultKey key) {
+    Objects.requireNonNull(key, "key");
+    lock.lock();
+    try {
+      if (fileIds.remove(key) != null) {
+        append(key, "");
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int size() {
+    lock.lock();
+    try {
+      return fileIds.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      if (writer != null) {
+        writer.close();
+        writer = null;
+      }
+    } catch (IOException e) {
+      logger.warn("Failed to close sent file id log {}", file, e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void append(ResultKey key, String fileId) {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.write(key.fileUniqueId() + SEPARATOR + key.filterName() + SEPARATOR + key.pasteStyle()
+          + SEPARATOR + key.variant() + SEPARATOR + fileId);
+      writer.newLine();
+      writer.flush();
+      linesSinceCompaction++;
+      if (linesSinceCompaction > maxEntries * 2) {
+        compact();
+      }
+    } catch (IOException e) {
+      logger.warn("Failed to persist sent file id to {}", file, e);
+    }
+  }
+
+  private void load() {
+    try {
+      Path parent = file.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      if (Files.exists(file)) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            applyLine(line);
+          }
+        }
+      }
+      compact();
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to load sent file ids from " + file, e);
+    }
+    logger.info("Loaded {} sent file ids from {}", fileIds.size(), file);
+  }
+
+  private void applyLine(String line) {
+    String[] parts = line.split(String.valueOf(SEPARATOR), -1);
+    if (parts.length != 5 || parts[0].isEmpty()) {
+      return;
+    }
+    ResultKey key = new ResultKey(parts[0], parts[1], parts[2], parts[3]);
+    if (parts[4].isEmpty()) {
+      fileIds.remove(key);
+    } else {
+      fileIds.put(key, parts[4]);
+    }
+  }
+
+  private void compact() throws IOException {
+    if (writer != null) {
+      writer.close();
+    }
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (BufferedWriter compacted = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      for (Map.Entry<ResultKey, String> entry : fileIds.entrySet()) {
+        ResultKey key = entry.getKey();
+        compacted.write(key.fileUniqueId() + SEPARATOR + key.filterName() + SEPARATOR + key.pasteStyle()
+            + SEPARATOR + key.variant() + SEPARATOR + entry.getValue());
+        compacted.newLine();
+      }
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    linesSinceCompaction = 0;
+  }
+}
@@ -0,0 +1,63 @@
+package com.deface.telegram.cache;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class SingleFlight<K, V> {
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final LongAdder coalesced = new LongAdder();
+
+  public V execute(K key, Duration waitTimeout, Loader<V> loader) throws Exception {
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(waitTimeout, "waitTimeout");
+    Objects.requireNonNull(loader, "loader");
+
+    CompletableFuture<V> created = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+    if (existing == null) {
+      try {
+        V value = loader.load();
+        created.complete(value);
+        return value;
+      } catch (Throwable e) {
+        created.completeExceptionally(e);
+        throw e;
+      } finally {
+        inFlight.remove(key, created);
+      }
+    }
+
+    coalesced.increment();
+    try {
+      return existing.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception exception) {
+        throw exception;
+      }
+      if (cause instanceof Error error) {
+        throw error;
+      }
+      throw e;
+    }
+  }
+
+  public int inFlight() {
+    return inFlight.size();
+  }
+
+  public long coalesced() {
+    return coalesced.sum();
+  }
+
+  @FunctionalInterface
+  public interface Loader<V> {
+    V load() throws Exception;
+  }
+}
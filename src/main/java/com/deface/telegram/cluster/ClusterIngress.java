@@ -0,0 +1,252 @@
+package com.deface.telegram.cluster;
+
+import com.deface.telegram.config.AppConfig;
+import com.deface.telegram.metrics.MetricsRegistry;
+import com.deface.telegram.telegram.ChatSequencer;
+import com.deface.telegram.telegram.ChatSettingsStore;
+import com.deface.telegram.telegram.PhotoLostException;
+import com.deface.telegram.telegram.PhotoRouter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+public final class ClusterIngress implements PhotoRouter, AutoCloseable {
+  private static final int MAX_ATTEMPTS = 3;
+  private static final Logger logger = LoggerFactory.getLogger(ClusterIngress.class);
+
+  private final AppConfig.ClusterSettings settings;
+  private final RendezvousRouter router = new RendezvousRouter();
+  private final ChatSequencer chatOrder = new ChatSequencer();
+  private final ExecutorService dispatcher = Executors.newVirtualThreadPerTaskExecutor();
+  private final ScheduledExecutorService reaper;
+  private final HttpClient httpClient;
+  private final HttpServer server;
+  private final LongAdder remote;
+  private final LongAdder local;
+  private final LongAdder failed;
+
+  public ClusterIngress(AppConfig.ClusterSettings settings, MetricsRegistry metrics) throws IOException {
+    this.settings = Objects.requireNonNull(settings, "settings");
+    Objects.requireNonNull(metrics, "metrics");
+    this.httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(settings.heartbeatInterval())
+        .build();
+    this.server = HttpServer.create(new InetSocketAddress(settings.port()), 0);
+    server.createContext(ClusterProtocol.JOIN_PATH, exchange -> handleMembership(exchange, ClusterProtocol.JOIN_PATH));
+    server.createContext(ClusterProtocol.LEAVE_PATH,
+        exchange -> handleMembership(exchange, ClusterProtocol.LEAVE_PATH));
+    server.setExecutor(dispatcher);
+    this.reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "cluster-membership");
+      thread.setDaemon(true);
+      return thread;
+    });
+    metrics.gauge("deface_bot_cluster_workers", "Workers currently holding a cluster lease", router::size);
+    this.remote = metrics.counter("deface_bot_cluster_dispatches_total", "Photo updates by where they were processed",
+        "target", "worker");
+    this.local = metrics.counter("deface_bot_cluster_dispatches_total", "Photo updates by where they were processed",
+        "target", "local");
+    this.failed = metrics.counter("deface_bot_cluster_dispatches_total", "Photo updates by where they were processed",
+        "target", "failed");
+  }
+
+  public void start() {
+    server.start();
+    long period = settings.heartbeatInterval().toMillis();
+    reaper.scheduleWithFixedDelay(this::expireMembers, period, period, TimeUnit.MILLISECONDS);
+    logger.info("Cluster ingress listening on port {}", port());
+  }
+
+  public int port() {
+    return server.getAddress().getPort();
+  }
+
+  public int workers() {
+    return router.size();
+  }
+
+  @Override
+  public CompletableFuture<Void> route(Update update, ChatSettingsStore.ChatSettings chatSettings,
+      Function<Update, CompletableFuture<Void>> fallback) {
+    long chatId = update.getMessage().getChatId();
+    return chatOrder.submit(chatId, PhotoRouter.albumGroup(update.getMessage()), () -> {
+      dispatch(chatId, update, chatSettings, fallback);
+      return CompletableFuture.completedFuture(null);
+    }, dispatcher);
+  }
+
+  @Override
+  public void close() {
+    reaper.shutdownNow();
+    server.stop(0);
+    dispatcher.shutdown();
+    try {
+      if (!dispatcher.awaitTermination(30, TimeUnit.SECONDS)) {
+        logger.warn("Cluster dispatches did not finish within 30s; abandoning them");
+        dispatcher.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      dispatcher.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void dispatch(long chatId, Update update, ChatSettingsStore.ChatSettings chatSettings,
+      Function<Update, CompletableFuture<Void>> fallback) {
+    try {
+      if (dispatchRemote(chatId, update, chatSettings)) {
+        return;
+      }
+      local.increment();
+      fallback.apply(update).join();
+    } catch (PhotoLostException e) {
+      failed.increment();
+      logger.warn("Lost photo update {} for chat {}: {}; it may still be processed there, so it is not retried",
+          update.getUpdateId(), chatId, e.getMessage());
+      throw new CompletionException(e);
+    } catch (CompletionException e) {
+      logger.warn("Photo update {} for chat {} failed locally: {}", update.getUpdateId(), chatId,
+          String.valueOf(e.getCause()));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      failed.increment();
+      logger.error("Unexpected failure dispatching photo update {} for chat {}", update.getUpdateId(), chatId, e);
+    }
+  }
+
+  private boolean dispatchRemote(long chatId, Update update, ChatSettingsStore.ChatSettings chatSettings)
+      throws InterruptedException, PhotoLostException {
+    byte[] body;
+    try {
+      body = ClusterProtocol.MAPPER.writeValueAsBytes(
+          new ClusterProtocol.Job(update, chatSettings.filterName(), chatSettings.pasteStyle()));
+    } catch (IOException e) {
+      failed.increment();
+      logger.error("Failed to encode photo update {} for chat {}; processing it locally", update.getUpdateId(),
+          chatId, e);
+      return false;
+    }
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      Optional<String> worker = router.route(chatId);
+      if (worker.isEmpty()) {
+        return false;
+      }
+      switch (send(worker.get(), body)) {
+        case DONE -> {
+          remote.increment();
+          return true;
+        }
+        case UNAVAILABLE -> {
+          if (router.leave(worker.get())) {
+            logger.warn("Removed worker {} from the cluster: it is not accepting jobs", worker.get());
+          }
+        }
+        case REJECTED -> {
+          router.leave(worker.get());
+          failed.increment();
+          logger.error("Worker {} rejected photo update {} for chat {}; removed it from the cluster and "
+              + "processing the photo locally", worker.get(), update.getUpdateId(), chatId);
+          return false;
+        }
+      }
+    }
+    return false;
+  }
+
+  private Outcome send(String worker, byte[] body) throws InterruptedException, PhotoLostException {
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(worker + ClusterProtocol.JOBS_PATH))
+        .timeout(settings.dispatchTimeout())
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+    settings.secret().ifPresent(secret -> request.header(ClusterProtocol.SECRET_HEADER, secret));
+    try {
+      HttpResponse<Void> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding());
+      if (response.statusCode() == 200) {
+        return Outcome.DONE;
+      }
+      if (response.statusCode() == 503) {
+        return Outcome.UNAVAILABLE;
+      }
+      if (response.statusCode() >= 500) {
+        throw new PhotoLostException("worker " + worker + " failed the job with status " + response.statusCode());
+      }
+      logger.error("Worker {} rejected a job with status {}", worker, response.statusCode());
+      return Outcome.REJECTED;
+    } catch (ConnectException | HttpConnectTimeoutException e) {
+      return Outcome.UNAVAILABLE;
+    } catch (IOException e) {
+      throw new PhotoLostException("lost contact with worker " + worker + " while it was processing the job", e);
+    }
+  }
+
+  private void handleMembership(HttpExchange exchange, String path) throws IOException {
+    try (exchange) {
+      if (!ClusterProtocol.acceptPost(exchange, path)) {
+        return;
+      }
+      if (!ClusterProtocol.authorized(exchange, settings.secretToken())) {
+        logger.warn("Rejected cluster membership request from {} with missing or invalid secret",
+            exchange.getRemoteAddress());
+        exchange.sendResponseHeaders(401, -1);
+        return;
+      }
+      ClusterProtocol.Membership membership;
+      try (InputStream body = exchange.getRequestBody()) {
+        membership = ClusterProtocol.MAPPER.readValue(body, ClusterProtocol.Membership.class);
+      } catch (IOException e) {
+        exchange.sendResponseHeaders(400, -1);
+        return;
+      }
+      if (membership.url() == null || !(membership.url().startsWith("http://")
+          || membership.url().startsWith("https://"))) {
+        exchange.sendResponseHeaders(400, -1);
+        return;
+      }
+      if (path.equals(ClusterProtocol.JOIN_PATH)) {
+        long expiresAt = System.nanoTime() + settings.leaseDuration().toNanos();
+        if (router.join(membership.url(), expiresAt)) {
+          logger.info("Worker {} joined the cluster ({} workers)", membership.url(), router.size());
+        }
+      } else if (router.leave(membership.url())) {
+        logger.info("Worker {} left the cluster ({} workers)", membership.url(), router.size());
+      }
+      exchange.sendResponseHeaders(200, -1);
+    }
+  }
+
+  private void expireMembers() {
+    for (String worker : router.expire(System.nanoTime())) {
+      logger.warn("Worker {} dropped from the cluster: lease expired ({} workers)", worker, router.size());
+    }
+  }
+
+  private enum Outcome {
+    DONE,
+    UNAVAILABLE,
+    REJECTED
+  }
+}
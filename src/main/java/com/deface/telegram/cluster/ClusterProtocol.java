@@ -0,0 +1,50 @@
+package com.deface.telegram.cluster;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+final class ClusterProtocol {
+  static final String JOIN_PATH = "/cluster/join";
+  static final String LEAVE_PATH = "/cluster/leave";
+  static final String JOBS_PATH = "/cluster/jobs";
+  static final String SECRET_HEADER = "X-Deface-Cluster-Secret";
+  static final ObjectMapper MAPPER = new ObjectMapper()
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  private ClusterProtocol() {
+  }
+
+  static boolean authorized(HttpExchange exchange, String secretToken) {
+    if (secretToken == null) {
+      return false;
+    }
+    String provided = exchange.getRequestHeaders().getFirst(SECRET_HEADER);
+    return provided != null && MessageDigest.isEqual(secretToken.getBytes(StandardCharsets.UTF_8),
+        provided.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static boolean acceptPost(HttpExchange exchange, String path) throws IOException {
+    if (!"POST".equals(exchange.getRequestMethod())) {
+      exchange.getResponseHeaders().add("Allow", "POST");
+      exchange.sendResponseHeaders(405, -1);
+      return false;
+    }
+    if (!exchange.getRequestURI().getPath().equals(path)) {
+      exchange.sendResponseHeaders(404, -1);
+      return false;
+    }
+    return true;
+  }
+
+  record Membership(String url) {
+  }
+
+  record Job(Update update, String filterName, String pasteStyle) {
+  }
+}
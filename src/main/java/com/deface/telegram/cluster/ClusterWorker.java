@@ -0,0 +1,165 @@
+package com.deface.telegram.cluster;
+
+import com.deface.telegram.config.AppConfig;
+import com.deface.telegram.telegram.ChatSettingsStore;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+public final class ClusterWorker implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(ClusterWorker.class);
+
+  private final AppConfig.ClusterSettings settings;
+  private final BiFunction<Update, ChatSettingsStore.ChatSettings, CompletableFuture<Void>> processor;
+  private final ExecutorService handlers = Executors.newVirtualThreadPerTaskExecutor();
+  private final ScheduledExecutorService heartbeat;
+  private final HttpClient httpClient;
+  private final HttpServer server;
+  private volatile boolean accepting = true;
+  private volatile boolean joined;
+
+  public ClusterWorker(AppConfig.ClusterSettings settings,
+      BiFunction<Update, ChatSettingsStore.ChatSettings, CompletableFuture<Void>> processor) throws IOException {
+    this.settings = Objects.requireNonNull(settings, "settings");
+    this.processor = Objects.requireNonNull(processor, "processor");
+    this.httpClient = HttpClient.newBuilder()
+        .connectTimeout(settings.heartbeatInterval())
+        .build();
+    this.server = HttpServer.create(new InetSocketAddress(settings.port()), 0);
+    server.createContext(ClusterProtocol.JOBS_PATH, this::handleJob);
+    server.setExecutor(handlers);
+    this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "cluster-heartbeat");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public void start() {
+    server.start();
+    heartbeat.scheduleWithFixedDelay(this::renewLease, 0, settings.heartbeatInterval().toMillis(),
+        TimeUnit.MILLISECONDS);
+    logger.info("Cluster worker listening on port {} as {}", port(), settings.advertiseUrl());
+  }
+
+  public int port() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    accepting = false;
+    heartbeat.shutdownNow();
+    try {
+      post(ClusterProtocol.LEAVE_PATH);
+    } catch (IOException e) {
+      logger.warn("Could not leave the cluster at {}: {}", settings.ingressUrl(), e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    server.stop(1);
+    handlers.shutdown();
+    try {
+      if (!handlers.awaitTermination(30, TimeUnit.SECONDS)) {
+        handlers.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      handlers.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void renewLease() {
+    try {
+      int status = post(ClusterProtocol.JOIN_PATH);
+      if (status != 200) {
+        throw new IOException("status " + status);
+      }
+      if (!joined) {
+        joined = true;
+        logger.info("Joined the cluster at {}", settings.ingressUrl());
+      }
+    } catch (IOException e) {
+      joined = false;
+      logger.warn("Failed to renew cluster lease at {}: {}", settings.ingressUrl(), e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private int post(String path) throws IOException, InterruptedException {
+    byte[] body = ClusterProtocol.MAPPER.writeValueAsBytes(new ClusterProtocol.Membership(settings.advertiseUrl()));
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(settings.ingressUrl() + path))
+        .timeout(settings.heartbeatInterval())
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+    settings.secret().ifPresent(secret -> request.header(ClusterProtocol.SECRET_HEADER, secret));
+    return httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+  }
+
+  private void handleJob(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (!ClusterProtocol.acceptPost(exchange, ClusterProtocol.JOBS_PATH)) {
+        return;
+      }
+      if (!ClusterProtocol.authorized(exchange, settings.secretToken())) {
+        logger.warn("Rejected cluster job from {} with missing or invalid secret", exchange.getRemoteAddress());
+        exchange.sendResponseHeaders(401, -1);
+        return;
+      }
+      if (!accepting) {
+        exchange.sendResponseHeaders(503, -1);
+        return;
+      }
+      ClusterProtocol.Job job;
+      try (InputStream body = exchange.getRequestBody()) {
+        job = ClusterProtocol.MAPPER.readValue(body, ClusterProtocol.Job.class);
+      } catch (IOException e) {
+        logger.warn("Rejected malformed cluster job: {}", e.getMessage());
+        exchange.sendResponseHeaders(400, -1);
+        return;
+      }
+      if (job.update() == null || job.filterName() == null || job.pasteStyle() == null) {
+        exchange.sendResponseHeaders(400, -1);
+        return;
+      }
+      CompletableFuture<Void> done;
+      try {
+        done = processor.apply(job.update(),
+            new ChatSettingsStore.ChatSettings(job.filterName(), job.pasteStyle()));
+      } catch (IllegalArgumentException e) {
+        logger.warn("Rejected cluster job: {}", e.getMessage());
+        exchange.sendResponseHeaders(400, -1);
+        return;
+      }
+      try {
+        done.get();
+      } catch (ExecutionException e) {
+        logger.error("Cluster job for update {} failed", job.update().getUpdateId(), e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        exchange.sendResponseHeaders(500, -1);
+        return;
+      }
+      exchange.sendResponseHeaders(200, -1);
+    }
+  }
+}
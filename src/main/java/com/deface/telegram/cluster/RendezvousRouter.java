@@ -0,0 +1,69 @@
+package com.deface.telegram.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class RendezvousRouter {
+  private final Map<String, Member> members = new ConcurrentHashMap<>();
+
+  boolean join(String url, long expiresAtNanos) {
+    Objects.requireNonNull(url, "url");
+    return members.put(url, new Member(url, seedOf(url), expiresAtNanos)) == null;
+  }
+
+  boolean leave(String url) {
+    return members.remove(url) != null;
+  }
+
+  List<String> expire(long nowNanos) {
+    List<String> expired = new ArrayList<>();
+    for (Member member : members.values()) {
+      if (member.expiresAtNanos() - nowNanos <= 0 && members.remove(member.url(), member)) {
+        expired.add(member.url());
+      }
+    }
+    return expired;
+  }
+
+  Optional<String> route(long chatId) {
+    Member best = null;
+    long bestScore = 0;
+    for (Member member : members.values()) {
+      long score = mix(chatId ^ member.seed());
+      if (best == null || Long.compareUnsigned(score, bestScore) > 0
+          || (score == bestScore && member.url().compareTo(best.url()) < 0)) {
+        best = member;
+        bestScore = score;
+      }
+    }
+    return best == null ? Optional.empty() : Optional.of(best.url());
+  }
+
+  int size() {
+    return members.size();
+  }
+
+  private static long seedOf(String url) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : url.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return mix(hash);
+  }
+
+  private static long mix(long value) {
+    long z = value + 0x9e3779b97f4a7c15L;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  private record Member(String url, long seed, long expiresAtNanos) {
+  }
+}
@@ -15,6 +15,30 @@ public final class AppConfig {
   private final String defaultPasteStyle;
   private final java.util.List<String> allowedFilterNames;
   private final java.util.List<String> allowedPasteStyles;
+  private final PipelineLimits pipelineLimits;
+  private final ResultCacheSettings resultCacheSettings;
+  private final SentFileIdSettings sentFileIdSettings;
+  private final java.time.Duration singleFlightWaitTimeout;
+  private final boolean streamingEnabled;
+  private final BackendPoolSettings backendPoolSettings;
+  private final ResilienceSettings resilienceSettings;
+  private final TimeoutSettings defaceTimeouts;
+  private final TimeoutSettings telegramTimeouts;
+  private final AdmissionSettings admissionSettings;
+  private final boolean webhookMode;
+  private final WebhookSettings webhookSettings;
+  private final ChatSettingsStorage chatSettingsStorage;
+  private final BatchingSettings batchingSettings;
+  private final java.time.Duration albumCollectWindow;
+  private final PhotoSizing photoSizing;
+  private final PreviewSettings previewSettings;
+  private final LaneSettings laneSettings;
+  private final int metricsPort;
+  private final SlowJobSettings slowJobSettings;
+  private final String telegramApiBaseUrl;
+  private final ClusterSettings clusterSettings;
+  private final WarmupSettings warmupSettings;
+  private final DocumentSettings documentSettings;
 
   private AppConfig(
       String telegramBotToken,
@@ -23,7 +47,31 @@ public final class AppConfig {
       String defaultFilterName,
       String defaultPasteStyle,
       java.util.List<String> allowedFilterNames,
-      java.util.List<String> allowedPasteStyles
+      java.util.List<String> allowedPasteStyles,
+      PipelineLimits pipelineLimits,
+      ResultCacheSettings resultCacheSettings,
+      SentFileIdSettings sentFileIdSettings,
+      java.time.Duration singleFlightWaitTimeout,
+      boolean streamingEnabled,
+      BackendPoolSettings backendPoolSettings,
+      ResilienceSettings resilienceSettings,
+      TimeoutSettings defaceTimeouts,
+      TimeoutSettings telegramTimeouts,
+      AdmissionSettings admissionSettings,
+      boolean webhookMode,
+      WebhookSettings webhookSettings,
+      ChatSettingsStorage chatSettingsStorage,
+      BatchingSettings batchingSettings,
+      java.time.Duration albumCollectWindow,
+      PhotoSizing photoSizing,
+      PreviewSettings previewSettings,
+      LaneSettings laneSettings,
+      int metricsPort,
+      SlowJobSettings slowJobSettings,
+      String telegramApiBaseUrl,
+      ClusterSettings clusterSettings,
+      WarmupSettings warmupSettings,
+      DocumentSettings documentSettings
   ) {
     this.telegramBotToken = telegramBotToken;
     this.telegramBotUsername = telegramBotUsername;
@@ -32,24 +80,62 @@ public final class AppConfig {
     this.defaultPasteStyle = defaultPasteStyle;
     this.allowedFilterNames = allowedFilterNames;
     this.allowedPasteStyles = allowedPasteStyles;
+    this.pipelineLimits = pipelineLimits;
+    this.resultCacheSettings = resultCacheSettings;
+    this.sentFileIdSettings = sentFileIdSettings;
+    this.singleFlightWaitTimeout = singleFlightWaitTimeout;
+    this.streamingEnabled = streamingEnabled;
+    this.backendPoolSettings = backendPoolSettings;
+    this.resilienceSettings = resilienceSettings;
+    this.defaceTimeouts = defaceTimeouts;
+    this.telegramTimeouts = telegramTimeouts;
+    this.admissionSettings = admissionSettings;
+    this.webhookMode = webhookMode;
+    this.webhookSettings = webhookSettings;
+    this.chatSettingsStorage = chatSettingsStorage;
+    this.batchingSettings = batchingSettings;
+    this.albumCollectWindow = albumCollectWindow;
+    this.photoSizing = photoSizing;
+    this.previewSettings = previewSettings;
+    this.laneSettings = laneSettings;
+    this.metricsPort = metricsPort;
+    this.slowJobSettings = slowJobSettings;
+    this.telegramApiBaseUrl = telegramApiBaseUrl;
+    this.clusterSettings = clusterSettings;
+    this.warmupSettings = warmupSettings;
+    this.documentSettings = documentSettings;
   }
 
   public static AppConfig load() {
+    return load(java.util.Map.of());
+  }
+
+  public static AppConfig load(java.util.Map<String, String> overrides) {
     Properties properties = loadProperties("application.properties");
     Dotenv dotenv = Dotenv.configure()
         .ignoreIfMissing()
         .load();
+    Sources sources = new Sources(java.util.Map.copyOf(overrides), dotenv, properties);
 
-    String telegramBotToken = resolve("TELEGRAM_BOT_TOKEN", dotenv, properties, null);
-    String telegramBotUsername = resolve("TELEGRAM_BOT_USERNAME", dotenv, properties, null);
-    String defaceEndpoint = resolve("DEFACE_ENDPOINT", dotenv, properties, null);
-    String defaultFilterName = resolve("DEFAULT_FILTER_NAME", dotenv, properties, null);
-    String defaultPasteStyle = resolve("DEFAULT_PASTE_STYLE", dotenv, properties, null);
-    String allowedFilterNamesRaw = resolve("ALLOWED_FILTER_NAMES", dotenv, properties, null);
-    String allowedPasteStylesRaw = resolve("ALLOWED_PASTE_STYLES", dotenv, properties, null);
+    String telegramBotToken = resolve("TELEGRAM_BOT_TOKEN", sources, null);
+    String telegramBotUsername = resolve("TELEGRAM_BOT_USERNAME", sources, null);
+    String defaceEndpoint = resolve("DEFACE_ENDPOINT", sources, null);
+    String defaceEndpointsRaw = resolve("DEFACE_ENDPOINTS", sources, null);
+    String defaultFilterName = resolve("DEFAULT_FILTER_NAME", sources, null);
+    String defaultPasteStyle = resolve("DEFAULT_PASTE_STYLE", sources, null);
+    String allowedFilterNamesRaw = resolve("ALLOWED_FILTER_NAMES", sources, null);
+    String allowedPasteStylesRaw = resolve("ALLOWED_PASTE_STYLES", sources, null);
 
     requirePresent(telegramBotToken, "TELEGRAM_BOT_TOKEN");
-    requirePresent(defaceEndpoint, "DEFACE_ENDPOINT");
+    java.util.List<String> defaceEndpoints = defaceEndpointsRaw == null
+        ? null
+        : parseEndpoints(defaceEndpointsRaw, "DEFACE_ENDPOINTS");
+    if (defaceEndpoints == null) {
+      requirePresent(defaceEndpoint, "DEFACE_ENDPOINT");
+      defaceEndpoints = java.util.List.of(defaceEndpoint);
+    } else if (defaceEndpoint == null) {
+      defaceEndpoint = defaceEndpoints.get(0);
+    }
 
     requirePresent(allowedFilterNamesRaw, "ALLOWED_FILTER_NAMES");
     requirePresent(allowedPasteStylesRaw, "ALLOWED_PASTE_STYLES");
@@ -69,6 +155,207 @@ public final class AppConfig {
     validateInList("DEFAULT_FILTER_NAME", defaultFilterName, allowedFilterNames);
     validateInList("DEFAULT_PASTE_STYLE", defaultPasteStyle, allowedPasteStyles);
 
+    PipelineLimits pipelineLimits = new PipelineLimits(
+        resolvePositiveInt("PIPELINE_RESOLVE_CONCURRENCY", sources, 16),
+        resolvePositiveInt("PIPELINE_DOWNLOAD_CONCURRENCY", sources, 8),
+        resolvePositiveInt("PIPELINE_RESIZE_CONCURRENCY", sources, Runtime.getRuntime().availableProcessors()),
+        resolvePositiveInt("PIPELINE_DEFACE_CONCURRENCY", sources, 4),
+        resolvePositiveInt("PIPELINE_UPLOAD_CONCURRENCY", sources, 4),
+        parseFilterLimits(resolve("DEFACE_FILTER_CONCURRENCY", sources, null), allowedFilterNames)
+    );
+    ResultCacheSettings resultCacheSettings = new ResultCacheSettings(
+        resolveNonNegativeLong("RESULT_CACHE_MAX_BYTES", sources, 64L * 1024 * 1024),
+        resolve("RESULT_CACHE_DIR", sources, null),
+        resolveNonNegativeLong("RESULT_CACHE_DISK_MAX_BYTES", sources, 1024L * 1024 * 1024)
+    );
+    SentFileIdSettings sentFileIdSettings = new SentFileIdSettings(
+        resolvePositiveInt("SENT_FILE_ID_MAX_ENTRIES", sources, 100_000),
+        resolve("SENT_FILE_ID_FILE", sources, null)
+    );
+    java.time.Duration singleFlightWaitTimeout = java.time.Duration.ofMillis(
+        resolvePositiveInt("SINGLE_FLIGHT_WAIT_TIMEOUT_MS", sources, 60_000));
+    boolean streamingEnabled = resolveBoolean("STREAMING_ENABLED", sources, false);
+    BackendPoolSettings backendPoolSettings = new BackendPoolSettings(
+        defaceEndpoints,
+        java.time.Duration.ofMillis(resolvePositiveInt("DEFACE_HEALTH_INTERVAL_MS", sources, 5_000)),
+        resolvePositiveInt("DEFACE_EJECT_AFTER_FAILURES", sources, 3),
+        java.time.Duration.ofMillis(resolvePositiveInt("DEFACE_EJECT_DURATION_MS", sources, 30_000)),
+        resolve("DEFACE_HEALTH_PATH", sources, null)
+    );
+    ResilienceSettings resilienceSettings = new ResilienceSettings(
+        resolveNonNegativeInt("DEFACE_MAX_RETRIES", sources, 2),
+        resolveNonNegativeInt("DEFACE_RETRY_BUDGET_PERCENT", sources, 20),
+        resolveNonNegativeInt("DEFACE_RETRY_BUDGET_RESERVE", sources, 10),
+        java.time.Duration.ofMillis(resolvePositiveInt("DEFACE_RETRY_BASE_DELAY_MS", sources, 100)),
+        java.time.Duration.ofMillis(resolvePositiveInt("DEFACE_RETRY_MAX_DELAY_MS", sources, 2_000)),
+        resolvePositiveInt("DEFACE_CIRCUIT_WINDOW_SIZE", sources, 20),
+        resolvePositiveInt("DEFACE_CIRCUIT_MIN_CALLS", sources, 10),
+        resolvePositiveInt("DEFACE_CIRCUIT_FAILURE_RATE_PERCENT", sources, 50),
+        java.time.Duration.ofMillis(resolvePositiveInt("DEFACE_CIRCUIT_OPEN_MS", sources, 15_000)),
+        resolveBoolean("DEFACE_HEDGING_ENABLED", sources, false),
+        java.time.Duration.ofMillis(resolvePositiveInt("DEFACE_HEDGE_MIN_DELAY_MS", sources, 50)),
+        resolvePositiveInt("DEFACE_HEDGE_MAX_OUTSTANDING", sources, 1)
+    );
+    int timeoutPercentile = resolvePositiveInt("TIMEOUT_PERCENTILE", sources, 99);
+    if (timeoutPercentile > 100) {
+      throw new IllegalStateException("Invalid TIMEOUT_PERCENTILE: " + timeoutPercentile + ". Expected 1-100");
+    }
+    int timeoutMultiplierPercent = resolvePositiveInt("TIMEOUT_MULTIPLIER_PERCENT", sources, 300);
+    int timeoutMinSamples = resolvePositiveInt("TIMEOUT_MIN_SAMPLES", sources, 20);
+    java.time.Duration timeoutWindow =
+        java.time.Duration.ofMillis(resolvePositiveInt("TIMEOUT_WINDOW_MS", sources, 300_000));
+    TimeoutSettings defaceTimeouts = new TimeoutSettings(
+        java.time.Duration.ofMillis(resolvePositiveInt("DEFACE_CONNECT_TIMEOUT_MS", sources, 10_000)),
+        java.time.Duration.ofMillis(resolvePositiveInt("DEFACE_TIMEOUT_FLOOR_MS", sources, 2_000)),
+        java.time.Duration.ofMillis(resolvePositiveInt("DEFACE_TIMEOUT_CEILING_MS", sources, 120_000)),
+        timeoutPercentile,
+        timeoutMultiplierPercent,
+        timeoutMinSamples,
+        timeoutWindow
+    );
+    TimeoutSettings telegramTimeouts = new TimeoutSettings(
+        java.time.Duration.ofMillis(resolvePositiveInt("TELEGRAM_CONNECT_TIMEOUT_MS", sources, 10_000)),
+        java.time.Duration.ofMillis(resolvePositiveInt("TELEGRAM_TIMEOUT_FLOOR_MS", sources, 1_000)),
+        java.time.Duration.ofMillis(resolvePositiveInt("TELEGRAM_TIMEOUT_CEILING_MS", sources, 20_000)),
+        timeoutPercentile,
+        timeoutMultiplierPercent,
+        timeoutMinSamples,
+        timeoutWindow
+    );
+    validateRange("DEFACE_TIMEOUT_FLOOR_MS", defaceTimeouts);
+    validateRange("TELEGRAM_TIMEOUT_FLOOR_MS", telegramTimeouts);
+    AdmissionSettings admissionSettings = new AdmissionSettings(
+        resolvePositiveInt("RATE_LIMIT_CHAT_PER_MINUTE", sources, 20),
+        resolvePositiveInt("RATE_LIMIT_CHAT_BURST", sources, 10),
+        resolvePositiveInt("RATE_LIMIT_GLOBAL_PER_SECOND", sources, 20),
+        resolvePositiveInt("RATE_LIMIT_GLOBAL_BURST", sources, 50),
+        resolvePositiveInt("JOB_QUEUE_CAPACITY", sources, 200)
+    );
+    String updateMode = resolve("TELEGRAM_UPDATE_MODE", sources, "polling").toLowerCase(java.util.Locale.ROOT);
+    validateInList("TELEGRAM_UPDATE_MODE", updateMode, java.util.List.of("polling", "webhook"));
+    boolean webhookMode = updateMode.equals("webhook");
+    String webhookUrl = resolve("WEBHOOK_URL", sources, null);
+    if (webhookMode) {
+      requirePresent(webhookUrl, "WEBHOOK_URL");
+    }
+    String webhookPath = resolve("WEBHOOK_PATH", sources, "/telegram");
+    if (!webhookPath.startsWith("/")) {
+      throw new IllegalStateException("Invalid WEBHOOK_PATH: " + webhookPath + ". Expected a path starting with /");
+    }
+    int webhookPort = resolvePositiveInt("WEBHOOK_PORT", sources, 8080);
+    if (webhookPort > 65535) {
+      throw new IllegalStateException("Invalid WEBHOOK_PORT: " + webhookPort + ". Expected 1-65535");
+    }
+    WebhookSettings webhookSettings = new WebhookSettings(
+        webhookUrl,
+        webhookPort,
+        webhookPath,
+        resolve("WEBHOOK_SECRET_TOKEN", sources, null),
+        resolvePositiveInt("WEBHOOK_THREADS", sources, 4)
+    );
+    long chatSettingsLogBytes = resolveNonNegativeLong("CHAT_SETTINGS_LOG_BYTES", sources, 16L * 1024 * 1024);
+    if (chatSettingsLogBytes < 4096 || chatSettingsLogBytes > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Invalid CHAT_SETTINGS_LOG_BYTES: " + chatSettingsLogBytes
+          + ". Expected 4096-" + Integer.MAX_VALUE);
+    }
+    ChatSettingsStorage chatSettingsStorage = new ChatSettingsStorage(
+        resolve("CHAT_SETTINGS_DIR", sources, null),
+        chatSettingsLogBytes
+    );
+    BatchingSettings batchingSettings = new BatchingSettings(
+        resolveBoolean("DEFACE_BATCHING_ENABLED", sources, false),
+        resolvePositiveInt("DEFACE_BATCH_MAX_SIZE", sources, 8),
+        java.time.Duration.ofMillis(resolvePositiveInt("DEFACE_BATCH_MAX_DELAY_MS", sources, 10))
+    );
+    java.time.Duration albumCollectWindow = java.time.Duration.ofMillis(
+        resolvePositiveInt("ALBUM_COLLECT_WINDOW_MS", sources, 1_000));
+    int downscaleJpegQuality = resolvePositiveInt("DOWNSCALE_JPEG_QUALITY", sources, 85);
+    if (downscaleJpegQuality > 100) {
+      throw new IllegalStateException("Invalid DOWNSCALE_JPEG_QUALITY: " + downscaleJpegQuality + ". Expected 1-100");
+    }
+    PhotoSizing photoSizing = new PhotoSizing(
+        resolveNonNegativeLong("PHOTO_TARGET_PIXELS", sources, 0),
+        resolveNonNegativeLong("PHOTO_MAX_BYTES", sources, 0),
+        resolveNonNegativeInt("DOWNSCALE_MAX_DIMENSION", sources, 0),
+        downscaleJpegQuality
+    );
+    PreviewSettings previewSettings = new PreviewSettings(
+        resolveBoolean("PREVIEW_ENABLED", sources, false),
+        resolvePositiveInt("PREVIEW_TARGET_PIXELS", sources, 320 * 240),
+        java.time.Duration.ofMillis(resolveNonNegativeLong("PREVIEW_SKIP_BELOW_MS", sources, 1_500)),
+        resolveBoolean("PREVIEW_REPLACE", sources, true)
+    );
+    LaneSettings laneSettings = new LaneSettings(
+        resolvePositiveInt("COMMAND_LANE_CONCURRENCY", sources, 8),
+        resolvePositiveInt("COMMAND_LANE_QUEUE_CAPACITY", sources, 256),
+        resolvePositiveInt("PHOTO_LANE_CONCURRENCY", sources, 64)
+    );
+    int metricsPort = resolveNonNegativeInt("METRICS_PORT", sources, 0);
+    if (metricsPort > 65535) {
+      throw new IllegalStateException("Invalid METRICS_PORT: " + metricsPort + ". Expected 0-65535");
+    }
+    String adminChatIdsRaw = resolve("ADMIN_CHAT_IDS", sources, null);
+    SlowJobSettings slowJobSettings = new SlowJobSettings(
+        resolveNonNegativeInt("SLOW_JOB_BUFFER_SIZE", sources, 32),
+        java.time.Duration.ofMillis(resolveNonNegativeLong("SLOW_JOB_THRESHOLD_MS", sources, 2_000)),
+        adminChatIdsRaw == null ? java.util.Set.of() : parseChatIds(adminChatIdsRaw, "ADMIN_CHAT_IDS")
+    );
+    String telegramApiBaseUrl = resolve("TELEGRAM_API_BASE_URL", sources, "https://api.telegram.org");
+    while (telegramApiBaseUrl.endsWith("/")) {
+      telegramApiBaseUrl = telegramApiBaseUrl.substring(0, telegramApiBaseUrl.length() - 1);
+    }
+    if (!telegramApiBaseUrl.startsWith("http://") && !telegramApiBaseUrl.startsWith("https://")) {
+      throw new IllegalStateException("Invalid TELEGRAM_API_BASE_URL: " + telegramApiBaseUrl
+          + ". Expected an http(s) URL");
+    }
+    String clusterRole = resolve("CLUSTER_ROLE", sources, "standalone").toLowerCase(java.util.Locale.ROOT);
+    validateInList("CLUSTER_ROLE", clusterRole, java.util.List.of("standalone", "ingress", "worker"));
+    int clusterPort = resolvePositiveInt("CLUSTER_PORT", sources, 9090);
+    if (clusterPort > 65535) {
+      throw new IllegalStateException("Invalid CLUSTER_PORT: " + clusterPort + ". Expected 1-65535");
+    }
+    String clusterIngressUrl = resolve("CLUSTER_INGRESS_URL", sources, null);
+    String clusterAdvertiseUrl = resolve("CLUSTER_ADVERTISE_URL", sources, null);
+    String clusterSecret = resolve("CLUSTER_SECRET", sources, null);
+    if (!clusterRole.equals("standalone")) {
+      requirePresent(clusterSecret, "CLUSTER_SECRET");
+    }
+    if (clusterRole.equals("worker")) {
+      requirePresent(clusterIngressUrl, "CLUSTER_INGRESS_URL");
+      requirePresent(clusterAdvertiseUrl, "CLUSTER_ADVERTISE_URL");
+    }
+    int clusterHeartbeatMs = resolvePositiveInt("CLUSTER_HEARTBEAT_MS", sources, 2_000);
+    int clusterLeaseMs = resolvePositiveInt("CLUSTER_LEASE_MS", sources, 6_000);
+    if (clusterLeaseMs <= clusterHeartbeatMs) {
+      throw new IllegalStateException("Invalid CLUSTER_LEASE_MS: " + clusterLeaseMs
+          + ". Expected more than CLUSTER_HEARTBEAT_MS (" + clusterHeartbeatMs + ")");
+    }
+    int clusterDispatchTimeoutMs = resolvePositiveInt("CLUSTER_DISPATCH_TIMEOUT_MS", sources, 120_000);
+    if (clusterDispatchTimeoutMs > 300_000) {
+      throw new IllegalStateException("Invalid CLUSTER_DISPATCH_TIMEOUT_MS: " + clusterDispatchTimeoutMs
+          + ". Expected 1-300000");
+    }
+    ClusterSettings clusterSettings = new ClusterSettings(
+        clusterRole,
+        clusterPort,
+        clusterIngressUrl,
+        clusterAdvertiseUrl,
+        clusterSecret,
+        java.time.Duration.ofMillis(clusterHeartbeatMs),
+        java.time.Duration.ofMillis(clusterLeaseMs),
+        java.time.Duration.ofMillis(clusterDispatchTimeoutMs)
+    );
+    WarmupSettings warmupSettings = new WarmupSettings(
+        resolveBoolean("WARMUP_ENABLED", sources, false),
+        java.time.Duration.ofMillis(resolvePositiveInt("WARMUP_TIMEOUT_MS", sources, 60_000))
+    );
+    DocumentSettings documentSettings = new DocumentSettings(
+        resolveNonNegativeLong("DOCUMENT_MAX_BYTES", sources, 20L * 1024 * 1024),
+        resolveNonNegativeLong("DOCUMENT_SPILL_THRESHOLD_BYTES", sources, 5L * 1024 * 1024),
+        resolveNonNegativeLong("DOCUMENT_MEMORY_BUDGET_BYTES", sources, 64L * 1024 * 1024),
+        resolve("DOCUMENT_SPILL_DIR", sources, null)
+    );
+
     return new AppConfig(
         telegramBotToken,
         telegramBotUsername,
@@ -76,7 +363,31 @@ public final class AppConfig {
         defaultFilterName,
         defaultPasteStyle,
         allowedFilterNames,
-        allowedPasteStyles
+        allowedPasteStyles,
+        pipelineLimits,
+        resultCacheSettings,
+        sentFileIdSettings,
+        singleFlightWaitTimeout,
+        streamingEnabled,
+        backendPoolSettings,
+        resilienceSettings,
+        defaceTimeouts,
+        telegramTimeouts,
+        admissionSettings,
+        webhookMode,
+        webhookSettings,
+        chatSettingsStorage,
+        batchingSettings,
+        albumCollectWindow,
+        photoSizing,
+        previewSettings,
+        laneSettings,
+        metricsPort,
+        slowJobSettings,
+        telegramApiBaseUrl,
+        clusterSettings,
+        warmupSettings,
+        documentSettings
     );
   }
 
@@ -92,6 +403,86 @@ public final class AppConfig {
     return defaceEndpoint;
   }
 
+  public java.util.List<String> getDefaceEndpoints() {
+    return backendPoolSettings.endpoints();
+  }
+
+  public BackendPoolSettings getBackendPoolSettings() {
+    return backendPoolSettings;
+  }
+
+  public ResilienceSettings getResilienceSettings() {
+    return resilienceSettings;
+  }
+
+  public TimeoutSettings getDefaceTimeouts() {
+    return defaceTimeouts;
+  }
+
+  public TimeoutSettings getTelegramTimeouts() {
+    return telegramTimeouts;
+  }
+
+  public AdmissionSettings getAdmissionSettings() {
+    return admissionSettings;
+  }
+
+  public boolean isWebhookMode() {
+    return webhookMode;
+  }
+
+  public WebhookSettings getWebhookSettings() {
+    return webhookSettings;
+  }
+
+  public ChatSettingsStorage getChatSettingsStorage() {
+    return chatSettingsStorage;
+  }
+
+  public BatchingSettings getBatchingSettings() {
+    return batchingSettings;
+  }
+
+  public java.time.Duration getAlbumCollectWindow() {
+    return albumCollectWindow;
+  }
+
+  public PhotoSizing getPhotoSizing() {
+    return photoSizing;
+  }
+
+  public PreviewSettings getPreviewSettings() {
+    return previewSettings;
+  }
+
+  public LaneSettings getLaneSettings() {
+    return laneSettings;
+  }
+
+  public int getMetricsPort() {
+    return metricsPort;
+  }
+
+  public SlowJobSettings getSlowJobSettings() {
+    return slowJobSettings;
+  }
+
+  public String getTelegramApiBaseUrl() {
+    return telegramApiBaseUrl;
+  }
+
+  public ClusterSettings getClusterSettings() {
+    return clusterSettings;
+  }
+
+  public WarmupSettings getWarmupSettings() {
+    return warmupSettings;
+  }
+
+  public DocumentSettings getDocumentSettings() {
+    return documentSettings;
+  }
+
   public String getDefaultFilterName() {
     return defaultFilterName;
   }
@@ -108,23 +499,47 @@ public final class AppConfig {
     return allowedPasteStyles;
   }
 
+  public PipelineLimits getPipelineLimits() {
+    return pipelineLimits;
+  }
+
+  public ResultCacheSettings getResultCacheSettings() {
+    return resultCacheSettings;
+  }
+
+  public SentFileIdSettings getSentFileIdSettings() {
+    return sentFileIdSettings;
+  }
+
+  public java.time.Duration getSingleFlightWaitTimeout() {
+    return singleFlightWaitTimeout;
+  }
+
+  public boolean isStreamingEnabled() {
+    return streamingEnabled;
+  }
+
   private static String resolve(
       String key,
-      Dotenv dotenv,
-      Properties properties,
+      Sources sources,
       String defaultValue
   ) {
+    String overrideValue = normalize(sources.overrides().get(key));
+    if (overrideValue != null) {
+      return overrideValue;
+    }
+
     String envValue = normalize(System.getenv(key));
     if (envValue != null) {
       return envValue;
     }
 
-    String dotenvValue = normalize(dotenv.get(key));
+    String dotenvValue = normalize(sources.dotenv().get(key));
     if (dotenvValue != null) {
       return dotenvValue;
     }
 
-    String propertyValue = normalize(properties.getProperty(key));
+    String propertyValue = normalize(sources.properties().getProperty(key));
     if (propertyValue != null) {
       return propertyValue;
     }
@@ -132,6 +547,79 @@ public final class AppConfig {
     return defaultValue;
   }
 
+  private static boolean resolveBoolean(
+      String key,
+      Sources sources,
+      boolean defaultValue
+  ) {
+    String raw = resolve(key, sources, null);
+    if (raw == null) {
+      return defaultValue;
+    }
+    String normalized = raw.toLowerCase(java.util.Locale.ROOT);
+    if ("true".equals(normalized)) {
+      return true;
+    }
+    if ("false".equals(normalized)) {
+      return false;
+    }
+    throw new IllegalStateException("Invalid " + key + ": " + raw + ". Expected true or false");
+  }
+
+  private static int resolvePositiveInt(
+      String key,
+      Sources sources,
+      int defaultValue
+  ) {
+    String raw = resolve(key, sources, null);
+    if (raw == null) {
+      return defaultValue;
+    }
+    int value;
+    try {
+      value = Integer.parseInt(raw);
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException("Invalid " + key + ": " + raw + ". Expected an integer", e);
+    }
+    if (value <= 0) {
+      throw new IllegalStateException("Invalid " + key + ": " + raw + ". Expected a positive integer");
+    }
+    return value;
+  }
+
+  private static int resolveNonNegativeInt(
+      String key,
+      Sources sources,
+      int defaultValue
+  ) {
+    long value = resolveNonNegativeLong(key, sources, defaultValue);
+    if (value > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Invalid " + key + ": " + value + ". Value too large");
+    }
+    return (int) value;
+  }
+
+  private static long resolveNonNegativeLong(
+      String key,
+      Sources sources,
+      long defaultValue
+  ) {
+    String raw = resolve(key, sources, null);
+    if (raw == null) {
+      return defaultValue;
+    }
+    long value;
+    try {
+      value = Long.parseLong(raw);
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException("Invalid " + key + ": " + raw + ". Expected an integer", e);
+    }
+    if (value < 0) {
+      throw new IllegalStateException("Invalid " + key + ": " + raw + ". Expected a non-negative integer");
+    }
+    return value;
+  }
+
   private static String normalize(String value) {
     if (value == null) {
       return null;
@@ -154,6 +642,13 @@ public final class AppConfig {
     }
   }
 
+  private static void validateRange(String key, TimeoutSettings timeouts) {
+    if (timeouts.floor().compareTo(timeouts.ceiling()) > 0) {
+      throw new IllegalStateException("Invalid " + key + ": " + timeouts.floor().toMillis()
+          + " exceeds the ceiling of " + timeouts.ceiling().toMillis());
+    }
+  }
+
   private static java.util.List<String> parseList(String raw, String key) {
     String[] parts = raw.split(",");
     java.util.List<String> values = new java.util.ArrayList<>();
@@ -169,6 +664,70 @@ public final class AppConfig {
     return java.util.List.copyOf(values);
   }
 
+  private static java.util.List<String> parseEndpoints(String raw, String key) {
+    java.util.List<String> values = new java.util.ArrayList<>();
+    for (String part : raw.split(",")) {
+      String normalized = normalize(part);
+      if (normalized != null) {
+        values.add(normalized);
+      }
+    }
+    if (values.isEmpty()) {
+      throw new IllegalStateException("Missing or empty configuration: " + key);
+    }
+    return java.util.List.copyOf(values);
+  }
+
+  private static java.util.Set<Long> parseChatIds(String raw, String key) {
+    java.util.Set<Long> values = new java.util.HashSet<>();
+    for (String part : raw.split(",")) {
+      String normalized = normalize(part);
+      if (normalized == null) {
+        continue;
+      }
+      try {
+        values.add(Long.parseLong(normalized));
+      } catch (NumberFormatException e) {
+        throw new IllegalStateException("Invalid " + key + ": " + normalized + ". Expected numeric chat ids", e);
+      }
+    }
+    return java.util.Set.copyOf(values);
+  }
+
+  private static java.util.Map<String, Integer> parseFilterLimits(String raw, java.util.List<String> filterNames) {
+    if (raw == null) {
+      return java.util.Map.of();
+    }
+    java.util.Map<String, Integer> limits = new java.util.HashMap<>();
+    for (String part : raw.split(",")) {
+      String normalized = normalize(part);
+      if (normalized == null) {
+        continue;
+      }
+      int separator = normalized.indexOf('=');
+      if (separator <= 0) {
+        throw new IllegalStateException("Invalid DEFACE_FILTER_CONCURRENCY entry: " + normalized
+            + ". Expected filter=limit");
+      }
+      String filterName = normalized.substring(0, separator).trim().toLowerCase(java.util.Locale.ROOT);
+      validateInList("DEFACE_FILTER_CONCURRENCY", filterName, filterNames);
+      String value = normalized.substring(separator + 1).trim();
+      int limit;
+      try {
+        limit = Integer.parseInt(value);
+      } catch (NumberFormatException e) {
+        throw new IllegalStateException("Invalid DEFACE_FILTER_CONCURRENCY limit for " + filterName + ": " + value
+            + ". Expected a positive integer", e);
+      }
+      if (limit <= 0) {
+        throw new IllegalStateException("Invalid DEFACE_FILTER_CONCURRENCY limit for " + filterName + ": " + value
+            + ". Expected a positive integer");
+      }
+      limits.put(filterName, limit);
+    }
+    return java.util.Map.copyOf(limits);
+  }
+
   private static Properties loadProperties(String resourceName) {
     Properties properties = new Properties();
     try (InputStream input = AppConfig.class.getClassLoader().getResourceAsStream(resourceName)) {
@@ -180,4 +739,141 @@ public final class AppConfig {
     }
     return properties;
   }
+
+  private record Sources(java.util.Map<String, String> overrides, Dotenv dotenv, Properties properties) {
+  }
+
+  public record PipelineLimits(
+      int resolveConcurrency,
+      int downloadConcurrency,
+      int resizeConcurrency,
+      int defaceConcurrency,
+      int uploadConcurrency,
+      java.util.Map<String, Integer> defaceFilterConcurrency
+  ) {
+  }
+
+  public record ResultCacheSettings(long memoryMaxBytes, String diskDirectory, long diskMaxBytes) {
+    public Optional<String> diskTier() {
+      return Optional.ofNullable(diskDirectory);
+    }
+  }
+
+  public record SentFileIdSettings(int maxEntries, String file) {
+    public Optional<String> persistence() {
+      return Optional.ofNullable(file);
+    }
+  }
+
+  public record BackendPoolSettings(
+      java.util.List<String> endpoints,
+      java.time.Duration healthInterval,
+      int ejectAfterFailures,
+      java.time.Duration ejectDuration,
+      String healthCheckPath
+  ) {
+    public Optional<String> healthPath() {
+      return Optional.ofNullable(healthCheckPath);
+    }
+  }
+
+  public record ResilienceSettings(
+      int maxRetries,
+      int retryBudgetPercent,
+      int retryBudgetReserve,
+      java.time.Duration retryBaseDelay,
+      java.time.Duration retryMaxDelay,
+      int breakerWindowSize,
+      int breakerMinimumCalls,
+      int breakerFailureRatePercent,
+      java.time.Duration breakerOpenDuration,
+      boolean hedgingEnabled,
+      java.time.Duration hedgeMinDelay,
+      int hedgeMaxOutstanding
+  ) {
+  }
+
+  public record TimeoutSettings(
+      java.time.Duration connectTimeout,
+      java.time.Duration floor,
+      java.time.Duration ceiling,
+      int percentile,
+      int multiplierPercent,
+      int minSamples,
+      java.time.Duration window
+  ) {
+  }
+
+  public record AdmissionSettings(
+      int chatPerMinute,
+      int chatBurst,
+      int globalPerSecond,
+      int globalBurst,
+      int queueCapacity
+  ) {
+  }
+
+  public record WebhookSettings(String url, int port, String path, String secretToken, int threads) {
+    public Optional<String> secret() {
+      return Optional.ofNullable(secretToken);
+    }
+  }
+
+  public record ChatSettingsStorage(String directory, long logSegmentBytes) {
+    public Optional<String> persistence() {
+      return Optional.ofNullable(directory);
+    }
+  }
+
+  public record BatchingSettings(boolean enabled, int maxSize, java.time.Duration maxDelay) {
+  }
+
+  public record PhotoSizing(long targetPixels, long maxBytes, int downscaleMaxDimension, int jpegQuality) {
+  }
+
+  public record PreviewSettings(boolean enabled, long targetPixels, java.time.Duration skipBelow, boolean replace) {
+  }
+
+  public record LaneSettings(int commandConcurrency, int commandQueueCapacity, int photoConcurrency) {
+  }
+
+  public record SlowJobSettings(int bufferSize, java.time.Duration threshold, java.util.Set<Long> adminChatIds) {
+  }
+
+  public record ClusterSettings(
+      String role,
+      int port,
+      String ingressUrl,
+      String advertiseUrl,
+      String secretToken,
+      java.time.Duration heartbeatInterval,
+      java.time.Duration leaseDuration,
+      java.time.Duration dispatchTimeout
+  ) {
+    public boolean ingress() {
+      return role.equals("ingress");
+    }
+
+    public boolean worker() {
+      return role.equals("worker");
+    }
+
+    public Optional<String> secret() {
+      return Optional.ofNullable(secretToken);
+    }
+  }
+
+  public record WarmupSettings(boolean enabled, java.time.Duration timeout) {
+  }
+
+  public record DocumentSettings(
+      long maxBytes,
+      long spillThresholdBytes,
+      long memoryBudgetBytes,
+      String spillDirectory
+  ) {
+    public Optional<String> spillDir() {
+      return Optional.ofNullable(spillDirectory);
+    }
+  }
 }
@@ -0,0 +1,15 @@
+package com.deface.telegram.deface;
+
+import java.io.IOException;
+
+final class BatchRejectedException extends IOException {
+  private static final long serialVersionUID = 1L;
+
+  BatchRejectedException(String message) {
+    super(message);
+  }
+
+  BatchRejectedException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
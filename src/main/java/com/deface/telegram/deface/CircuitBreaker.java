@@ -0,0 +1,116 @@
+package com.deface.telegram.deface;
+
+import com.deface.telegram.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+public final class CircuitBreaker {
+  private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+  private final int minimumCalls;
+  private final int failureRatePercent;
+  private final long openNanos;
+  private final LongSupplier nanoClock;
+  private final boolean[] outcomes;
+  private int recorded;
+  private int next;
+  private int failures;
+  private State state = State.CLOSED;
+  private long openedAtNanos;
+  private boolean halfOpenProbeInFlight;
+
+  public CircuitBreaker(AppConfig.ResilienceSettings settings) {
+    this(settings, System::nanoTime);
+  }
+
+  CircuitBreaker(AppConfig.ResilienceSettings settings, LongSupplier nanoClock) {
+    Objects.requireNonNull(settings, "settings");
+    this.outcomes = new boolean[settings.breakerWindowSize()];
+    this.minimumCalls = Math.min(settings.breakerMinimumCalls(), outcomes.length);
+    this.failureRatePercent = settings.breakerFailureRatePercent();
+    this.openNanos = settings.breakerOpenDuration().toNanos();
+    this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock");
+  }
+
+  public synchronized boolean tryAcquirePermission() {
+    if (state == State.CLOSED) {
+      return true;
+    }
+    if (state == State.OPEN) {
+      if (nanoClock.getAsLong() - openedAtNanos < openNanos) {
+        return false;
+      }
+      state = State.HALF_OPEN;
+      halfOpenProbeInFlight = false;
+      logger.info("Deface circuit half-open; letting a trial request through");
+    }
+    if (halfOpenProbeInFlight) {
+      return false;
+    }
+    halfOpenProbeInFlight = true;
+    return true;
+  }
+
+  public synchronized void onSuccess() {
+    if (state == State.HALF_OPEN) {
+      logger.info("Deface circuit closed after successful trial request");
+      state = State.CLOSED;
+      resetWindow();
+      return;
+    }
+    record(false);
+  }
+
+  public synchronized void onFailure() {
+    if (state == State.HALF_OPEN) {
+      open();
+      return;
+    }
+    record(true);
+    if (state == State.CLOSED && recorded >= minimumCalls && failures * 100 >= failureRatePercent * recorded) {
+      open();
+    }
+  }
+
+  public synchronized State state() {
+    return state;
+  }
+
+  private void record(boolean failure) {
+    if (recorded == outcomes.length) {
+      if (outcomes[next]) {
+        failures--;
+      }
+    } else {
+      recorded++;
+    }
+    outcomes[next] = failure;
+    if (failure) {
+      failures++;
+    }
+    next = (next + 1) % outcomes.length;
+  }
+
+  private void open() {
+    logger.warn("Deface circuit opened ({} of last {} calls failed)", failures, recorded);
+    state = State.OPEN;
+    openedAtNanos = nanoClock.getAsLong();
+    halfOpenProbeInFlight = false;
+    resetWindow();
+  }
+
+  private void resetWindow() {
+    recorded = 0;
+    next = 0;
+    failures = 0;
+  }
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+}
@@ -0,0 +1,11 @@
+package com.deface.telegram.deface;
+
+import java.io.IOException;
+
+public final class CircuitOpenException extends IOException {
+  private static final long serialVersionUID = 1L;
+
+  public CircuitOpenException() {
+    super("Deface API circuit is open; failing fast");
+  }
+}
@@ -0,0 +1,91 @@
+package com.deface.telegram.deface;
+
+import com.deface.telegram.metrics.LatencyHistogram;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class DefaceBackend {
+  private final String endpoint;
+  private final AtomicInteger outstanding = new AtomicInteger();
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+  private final AtomicLong ejectedUntilNanos = new AtomicLong();
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final LongAdder successes = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private volatile boolean ejected;
+
+  DefaceBackend(String endpoint) {
+    this.endpoint = Objects.requireNonNull(endpoint, "endpoint");
+  }
+
+  public String endpoint() {
+    return endpoint;
+  }
+
+  public int outstanding() {
+    return outstanding.get();
+  }
+
+  public boolean isEjected() {
+    return ejected;
+  }
+
+  public LatencyHistogram latency() {
+    return latency;
+  }
+
+  public Stats stats() {
+    return new Stats(endpoint, outstanding.get(), ejected, successes.sum(), failures.sum(),
+        latency.percentileMillis(0.5), latency.percentileMillis(0.95), latency.percentileMillis(0.99));
+  }
+
+  void acquire() {
+    outstanding.incrementAndGet();
+  }
+
+  void release() {
+    outstanding.decrementAndGet();
+  }
+
+  void recordSuccess(long latencyNanos) {
+    latency.recordNanos(latencyNanos);
+    successes.increment();
+    consecutiveFailures.set(0);
+  }
+
+  int recordFailure() {
+    failures.increment();
+    return consecutiveFailures.incrementAndGet();
+  }
+
+  boolean eject(long nowNanos, long durationNanos) {
+    ejectedUntilNanos.set(nowNanos + durationNanos);
+    boolean wasEjected = ejected;
+    ejected = true;
+    return !wasEjected;
+  }
+
+  boolean readmitIfDue(long nowNanos) {
+    if (!ejected || nowNanos - ejectedUntilNanos.get() < 0) {
+      return false;
+    }
+    consecutiveFailures.set(0);
+    ejected = false;
+    return true;
+  }
+
+  public record Stats(
+      String endpoint,
+      int outstanding,
+      boolean ejected,
+      long successes,
+      long failures,
+      long p50Millis,
+      long p95Millis,
+      long p99Millis
+  ) {
+  }
+}
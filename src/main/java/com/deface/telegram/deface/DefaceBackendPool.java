@@ -0,0 +1,168 @@
+package com.deface.telegram.deface;
+
+import com.deface.telegram.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class DefaceBackendPool implements AutoCloseable {
+  private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(5);
+  private static final Logger logger = LoggerFactory.getLogger(DefaceBackendPool.class);
+
+  private final List<DefaceBackend> backends;
+  private final AppConfig.BackendPoolSettings settings;
+  private final AtomicInteger rotation = new AtomicInteger();
+  private final HttpClient probeClient;
+  private final ScheduledExecutorService prober;
+
+  public DefaceBackendPool(AppConfig.BackendPoolSettings settings) {
+    this.settings = Objects.requireNonNull(settings, "settings");
+    List<DefaceBackend> created = new ArrayList<>();
+    for (String endpoint : settings.endpoints()) {
+      created.add(new DefaceBackend(endpoint));
+    }
+    this.backends = List.copyOf(created);
+    this.probeClient = HttpClient.newBuilder()
+        .connectTimeout(PROBE_TIMEOUT)
+        .build();
+    this.prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "deface-health-probe");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long intervalMillis = settings.healthInterval().toMillis();
+    prober.scheduleWithFixedDelay(this::probeAll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public DefaceBackend acquire() {
+    DefaceBackend chosen = leastOutstanding(true);
+    if (chosen == null) {
+      chosen = leastOutstanding(false);
+    }
+    chosen.acquire();
+    return chosen;
+  }
+
+  public Optional<DefaceBackend> acquireSpare(DefaceBackend exclude, int maxOutstanding) {
+    int size = backends.size();
+    int start = Math.floorMod(rotation.getAndIncrement(), size);
+    DefaceBackend best = null;
+    for (int i = 0; i < size; i++) {
+      DefaceBackend candidate = backends.get((start + i) % size);
+      if (candidate == exclude || candidate.isEjected() || candidate.outstanding() >= maxOutstanding) {
+        continue;
+      }
+      if (best == null || candidate.outstanding() < best.outstanding()) {
+        best = candidate;
+      }
+    }
+    if (best == null) {
+      return Optional.empty();
+    }
+    best.acquire();
+    return Optional.of(best);
+  }
+
+  public void abandon(DefaceBackend backend) {
+    backend.release();
+  }
+
+  public void release(DefaceBackend backend, long latencyNanos, boolean success) {
+    backend.release();
+    if (success) {
+      backend.recordSuccess(latencyNanos);
+      return;
+    }
+    int failures = backend.recordFailure();
+    if (failures >= settings.ejectAfterFailures()) {
+      eject(backend, "after " + failures + " consecutive failures");
+    }
+  }
+
+  public List<DefaceBackend> backends() {
+    return backends;
+  }
+
+  public List<DefaceBackend.Stats> stats() {
+    List<DefaceBackend.Stats> stats = new ArrayList<>(backends.size());
+    for (DefaceBackend backend : backends) {
+      stats.add(backend.stats());
+    }
+    return stats;
+  }
+
+  @Override
+  public void close() {
+    prober.shutdownNow();
+  }
+
+  void probeAll() {
+    for (DefaceBackend backend : backends) {
+      boolean healthy = probe(backend);
+      long now = System.nanoTime();
+      if (healthy) {
+        if (backend.readmitIfDue(now)) {
+          logger.info("Deface backend {} passed health probe; readmitted", backend.endpoint());
+        }
+      } else if (backend.recordFailure() >= settings.ejectAfterFailures()) {
+        eject(backend, "after failed health probes");
+      }
+    }
+  }
+
+  private DefaceBackend leastOutstanding(boolean healthyOnly) {
+    int size = backends.size();
+    int start = Math.floorMod(rotation.getAndIncrement(), size);
+    DefaceBackend best = null;
+    for (int i = 0; i < size; i++) {
+      DefaceBackend candidate = backends.get((start + i) % size);
+      if (healthyOnly && candidate.isEjected()) {
+        continue;
+      }
+      if (best == null || candidate.outstanding() < best.outstanding()) {
+        best = candidate;
+      }
+    }
+    return best;
+  }
+
+  private void eject(DefaceBackend backend, String reason) {
+    if (backend.eject(System.nanoTime(), settings.ejectDuration().toNanos())) {
+      logger.warn("Ejecting deface backend {} for {} {}", backend.endpoint(), settings.ejectDuration(), reason);
+    }
+  }
+
+  private boolean probe(DefaceBackend backend) {
+    URI target = settings.healthPath()
+        .map(path -> URI.create(backend.endpoint()).resolve(path))
+        .orElse(URI.create(backend.endpoint()));
+    HttpRequest request = HttpRequest.newBuilder(target)
+        .timeout(PROBE_TIMEOUT)
+        .GET()
+        .build();
+    try {
+      HttpResponse<Void> response = probeClient.send(request, HttpResponse.BodyHandlers.discarding());
+      return response.statusCode() < 500;
+    } catch (IOException e) {
+      logger.debug("Health probe to {} failed", target, e);
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
@@ -0,0 +1,244 @@
+package com.deface.telegram.deface;
+
+import com.deface.telegram.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+final class DefaceBatcher implements AutoCloseable {
+  private static final double INTERVAL_SMOOTHING = 0.2;
+  private static final long REJECTION_PAUSE_NANOS = TimeUnit.MINUTES.toNanos(10);
+  private static final Logger logger = LoggerFactory.getLogger(DefaceBatcher.class);
+
+  private final int maxSize;
+  private final long maxDelayNanos;
+  private final BatchSender batchSender;
+  private final SingleSender singleSender;
+  private final RetrySender retrySender;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Map<BatchKey, Lane> lanes = new HashMap<>();
+  private final ScheduledExecutorService timer;
+  private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder batchedImages = new LongAdder();
+  private volatile long pausedUntilNanos;
+
+  DefaceBatcher(AppConfig.BatchingSettings settings, BatchSender batchSender, SingleSender singleSender,
+      RetrySender retrySender) {
+    Objects.requireNonNull(settings, "settings");
+    this.maxSize = settings.maxSize();
+    this.maxDelayNanos = settings.maxDelay().toNanos();
+    this.batchSender = Objects.requireNonNull(batchSender, "batchSender");
+    this.singleSender = Objects.requireNonNull(singleSender, "singleSender");
+    this.retrySender = Objects.requireNonNull(retrySender, "retrySender");
+    this.pausedUntilNanos = System.nanoTime();
+    this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "deface-batcher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  CompletableFuture<byte[]> submit(byte[] image, String filterName, String pasteStyle) {
+    BatchKey key = new BatchKey(filterName, pasteStyle);
+    Job job = new Job(image, new CompletableFuture<>());
+    if (paused()) {
+      sendIndividually(key, job);
+      return job.result();
+    }
+    List<Job> ready = null;
+    lock.lock();
+    try {
+      Lane lane = lanes.computeIfAbsent(key, Lane::new);
+      lane.observeArrival(System.nanoTime());
+      lane.pending.add(job);
+      int targetSize = lane.targetSize();
+      if (lane.pending.size() >= targetSize) {
+        ready = lane.drain();
+      } else if (lane.pending.size() == 1) {
+        lane.flushTimer = timer.schedule(() -> flushDue(lane), lane.delayNanos(targetSize), TimeUnit.NANOSECONDS);
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (ready != null) {
+      dispatch(key, ready);
+    }
+    return job.result();
+  }
+
+  long batches() {
+    return batches.sum();
+  }
+
+  long batchedImages() {
+    return batchedImages.sum();
+  }
+
+  boolean paused() {
+    return pausedUntilNanos - System.nanoTime() > 0;
+  }
+
+  @Override
+  public void close() {
+    timer.shutdownNow();
+    senders.close();
+  }
+
+  private void flushDue(Lane lane) {
+    List<Job> ready;
+    lock.lock();
+    try {
+      lane.flushTimer = null;
+      if (lane.pending.isEmpty()) {
+        return;
+      }
+      ready = lane.drain();
+    } finally {
+      lock.unlock();
+    }
+    dispatch(lane.key, ready);
+  }
+
+  private void dispatch(BatchKey key, List<Job> jobs) {
+    if (jobs.size() == 1 || paused()) {
+      for (Job job : jobs) {
+        sendIndividually(key, job);
+      }
+      return;
+    }
+    batches.increment();
+    batchedImages.add(jobs.size());
+    List<byte[]> images = new ArrayList<>(jobs.size());
+    for (Job job : jobs) {
+      images.add(job.image());
+    }
+    batchSender.send(key.filterName(), key.pasteStyle(), images).whenComplete((results, error) -> {
+      if (error == null) {
+        for (int i = 0; i < jobs.size(); i++) {
+          jobs.get(i).result().complete(results.get(i));
+        }
+        return;
+      }
+      Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+      if (cause instanceof BatchRejectedException) {
+        pausedUntilNanos = System.nanoTime() + REJECTION_PAUSE_NANOS;
+        logger.warn("Deface API rejected a batch of {} images ({}); sending them individually and pausing "
+            + "batching for {} minutes", jobs.size(), cause.getMessage(),
+            TimeUnit.NANOSECONDS.toMinutes(REJECTION_PAUSE_NANOS));
+        for (Job job : jobs) {
+          sendIndividually(key, job);
+        }
+        return;
+      }
+      if (cause instanceof IOException failure) {
+        logger.warn("Batched deface request of {} images failed ({}); retrying them individually", jobs.size(),
+            failure.toString());
+        for (Job job : jobs) {
+          sendIndividually(job, () -> retrySender.send(job.image(), key.filterName(), key.pasteStyle(), failure));
+        }
+        return;
+      }
+      logger.warn("Batched deface request of {} images failed: {}", jobs.size(), cause.toString());
+      for (Job job : jobs) {
+        job.result().completeExceptionally(cause);
+      }
+    });
+  }
+
+  private void sendIndividually(BatchKey key, Job job) {
+    sendIndividually(job, () -> singleSender.send(job.image(), key.filterName(), key.pasteStyle()));
+  }
+
+  private void sendIndividually(Job job, Call call) {
+    senders.execute(() -> {
+      try {
+        job.result().complete(call.run());
+      } catch (IOException | RuntimeException e) {
+        job.result().completeExceptionally(e);
+      } catch (InterruptedException e) {
+        job.result().completeExceptionally(e);
+        Thread.currentThread().interrupt();
+      }
+    });
+  }
+
+  private final class Lane {
+    private final BatchKey key;
+    private final List<Job> pending = new ArrayList<>();
+    private long lastArrivalNanos;
+    private double meanIntervalNanos = Double.MAX_VALUE;
+    private ScheduledFuture<?> flushTimer;
+
+    private Lane(BatchKey key) {
+      this.key = key;
+    }
+
+    private void observeArrival(long nowNanos) {
+      if (lastArrivalNanos != 0) {
+        double interval = Math.max(1, nowNanos - lastArrivalNanos);
+        meanIntervalNanos = meanIntervalNanos == Double.MAX_VALUE
+            ? interval
+            : meanIntervalNanos + INTERVAL_SMOOTHING * (interval - meanIntervalNanos);
+      }
+      lastArrivalNanos = nowNanos;
+    }
+
+    private int targetSize() {
+      double expectedArrivals = maxDelayNanos / meanIntervalNanos;
+      return (int) Math.max(1, Math.min(maxSize, Math.floor(expectedArrivals) + 1));
+    }
+
+    private long delayNanos(int targetSize) {
+      return (long) Math.min(maxDelayNanos, (targetSize - 1) * meanIntervalNanos);
+    }
+
+    private List<Job> drain() {
+      if (flushTimer != null) {
+        flushTimer.cancel(false);
+        flushTimer = null;
+      }
+      List<Job> drained = new ArrayList<>(pending);
+      pending.clear();
+      return drained;
+    }
+  }
+
+  private record BatchKey(String filterName, String pasteStyle) {
+  }
+
+  private record Job(byte[] image, CompletableFuture<byte[]> result) {
+  }
+
+  interface BatchSender {
+    CompletableFuture<List<byte[]>> send(String filterName, String pasteStyle, List<byte[]> images);
+  }
+
+  interface SingleSender {
+    byte[] send(byte[] image, String filterName, String pasteStyle) throws IOException, InterruptedException;
+  }
+
+  interface RetrySender {
+    byte[] send(byte[] image, String filterName, String pasteStyle, IOException batchFailure)
+        throws IOException, InterruptedException;
+  }
+
+  private interface Call {
+    byte[] run() throws IOException, InterruptedException;
+  }
+}
@@ -1,39 +1,72 @@
 package com.deface.telegram.deface;
 
 import com.deface.telegram.config.AppConfig;
+import com.deface.telegram.metrics.AdaptiveTimeout;
+import com.deface.telegram.pipeline.JobTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
-public final class DefaceClient {
-  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
-  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+public final class DefaceClient implements AutoCloseable {
+  private static final String BATCH_OPERATION_SUFFIX = ":batch";
   private static final Logger logger = LoggerFactory.getLogger(DefaceClient.class);
 
   private final HttpClient httpClient;
-  private final String endpoint;
+  private final DefaceBackendPool backendPool;
+  private final AppConfig.ResilienceSettings resilience;
+  private final CircuitBreaker circuitBreaker;
+  private final RetryBudget retryBudget;
+  private final AdaptiveTimeout timeouts;
+  private final LongAdder hedgedRequests = new LongAdder();
+  private final DefaceBatcher batcher;
   private final String defaultFilterName;
   private final String defaultPasteStyle;
+  private final String boundary = "----DefaceBoundary" + UUID.randomUUID();
+  private final byte[] multipartHeader = multipartHeader(boundary);
+  private final byte[] multipartTrailer = multipartTrailer(boundary);
+  private final byte[] multipartPartSeparator = multipartPartSeparator(boundary);
 
   public DefaceClient(AppConfig config) {
     Objects.requireNonNull(config, "config");
+    this.timeouts = new AdaptiveTimeout(config.getDefaceTimeouts());
     this.httpClient = HttpClient.newBuilder()
-        .connectTimeout(CONNECT_TIMEOUT)
+        .connectTimeout(timeouts.connectTimeout())
         .build();
-    this.endpoint = config.getDefaceEndpoint();
+    this.backendPool = new DefaceBackendPool(config.getBackendPoolSettings());
+    this.resilience = config.getResilienceSettings();
+    this.circuitBreaker = new CircuitBreaker(resilience);
+    this.retryBudget = new RetryBudget(resilience.retryBudgetPercent(), resilience.retryBudgetReserve());
     this.defaultFilterName = config.getDefaultFilterName();
     this.defaultPasteStyle = config.getDefaultPasteStyle();
+    this.batcher = config.getBatchingSettings().enabled()
+        ? new DefaceBatcher(config.getBatchingSettings(), this::sendBatch, this::defaceDirect, this::retryBatched)
+        : null;
   }
 
   public byte[] defaceImage(byte[] imageBytes) throws IOException, InterruptedException {
@@ -43,28 +76,420 @@ public final class DefaceClient {
   public byte[] defaceImage(byte[] imageBytes, String filterName, String pasteStyle)
       throws IOException, InterruptedException {
     Objects.requireNonNull(imageBytes, "imageBytes");
+    DefaceRequestEvent event = new DefaceRequestEvent();
+    event.begin();
+    byte[] result = null;
+    try {
+      result = batcher != null
+          ? await(batcher.submit(imageBytes, filterName, pasteStyle))
+          : defaceDirect(imageBytes, filterName, pasteStyle);
+      return result;
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        JobTrace.current().ifPresent(trace -> {
+          event.refId = trace.refId();
+          event.chatId = trace.chatId();
+        });
+        event.filterName = filterName;
+        event.pasteStyle = pasteStyle;
+        event.inputBytes = imageBytes.length;
+        event.outputBytes = result == null ? -1 : result.length;
+        event.batched = batcher != null;
+        event.commit();
+      }
+    }
+  }
+
+  private byte[] defaceDirect(byte[] imageBytes, String filterName, String pasteStyle)
+      throws IOException, InterruptedException {
+    retryBudget.recordRequest();
+    return defaceWithRetries(imageBytes, filterName, pasteStyle, 0);
+  }
+
+  private byte[] retryBatched(byte[] imageBytes, String filterName, String pasteStyle, IOException batchFailure)
+      throws IOException, InterruptedException {
+    if (!isRetryable(batchFailure) || resilience.maxRetries() == 0 || !retryBudget.tryWithdraw()) {
+      throw batchFailure;
+    }
+    Thread.sleep(backoffMillis(1));
+    return defaceWithRetries(imageBytes, filterName, pasteStyle, 1);
+  }
+
+  private byte[] defaceWithRetries(byte[] imageBytes, String filterName, String pasteStyle, int firstAttempt)
+      throws IOException, InterruptedException {
+    int attempt = firstAttempt;
+    while (true) {
+      if (!circuitBreaker.tryAcquirePermission()) {
+        throw new CircuitOpenException();
+      }
+      boolean healthy = false;
+      IOException failure;
+      try {
+        byte[] result = attemptWithHedge(imageBytes, filterName, pasteStyle);
+        healthy = true;
+        return result;
+      } catch (IOException e) {
+        healthy = !isRetryable(e);
+        failure = e;
+      } finally {
+        if (healthy) {
+          circuitBreaker.onSuccess();
+        } else {
+          circuitBreaker.onFailure();
+        }
+      }
+      if (!isRetryable(failure) || attempt >= resilience.maxRetries() || !retryBudget.tryWithdraw()) {
+        throw failure;
+      }
+      attempt++;
+      long backoffMillis = backoffMillis(attempt);
+      logger.warn("Deface attempt {} failed ({}); retrying in {} ms", attempt, failure.getMessage(), backoffMillis);
+      Thread.sleep(backoffMillis);
+    }
+  }
+
+  public void warmUp(byte[] imageBytes, String filterName, String pasteStyle)
+      throws IOException, InterruptedException {
+    Objects.requireNonNull(imageBytes, "imageBytes");
+    IOException failure = null;
+    for (DefaceBackend backend : backendPool.backends()) {
+      try {
+        backend.acquire();
+        await(send(backend, imageBytes, filterName, pasteStyle, false).result());
+      } catch (IOException e) {
+        logger.warn("Warm-up call to deface API {} failed: {}", backend.endpoint(), e.getMessage());
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  public InputStream defaceImageStream(InputStream image, long contentLength, String filterName, String pasteStyle)
+      throws IOException, InterruptedException {
+    Objects.requireNonNull(image, "image");
+    if (!circuitBreaker.tryAcquirePermission()) {
+      throw new CircuitOpenException();
+    }
 
-    String url = buildUrl(endpoint, filterName, pasteStyle);
-    logger.info("Sending image to deface API with filter={} paste={}", filterName, pasteStyle);
-    String boundary = "----DefaceBoundary" + UUID.randomUUID();
-    byte[] body = buildMultipartBody(boundary, imageBytes);
+    DefaceBackend backend = backendPool.acquire();
+    long started = System.nanoTime();
+    boolean healthy = false;
+    boolean handedOff = false;
+    try {
+      String url = buildUrl(backend.endpoint(), filterName, pasteStyle);
+      logger.info("Streaming image to deface API {} with filter={} paste={} length={}", backend.endpoint(),
+          filterName, pasteStyle, contentLength);
+      AtomicBoolean imageTaken = new AtomicBoolean();
+      HttpRequest.BodyPublisher imagePart = HttpRequest.BodyPublishers.ofInputStream(() -> {
+        if (!imageTaken.compareAndSet(false, true)) {
+          throw new IllegalStateException("Image stream was already sent and cannot be replayed");
+        }
+        return image;
+      });
+      if (contentLength >= 0) {
+        imagePart = HttpRequest.BodyPublishers.fromPublisher(imagePart, contentLength);
+      }
+      HttpRequest request = multipartRequest(url, imagePart, timeouts.timeoutFor(filterName, contentLength));
 
-    HttpRequest request = HttpRequest.newBuilder(URI.create(url))
-        .timeout(REQUEST_TIMEOUT)
+      HttpResponse<InputStream> response;
+      try {
+        response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+      } catch (HttpTimeoutException e) {
+        recordTimeout(filterName, contentLength, request, System.nanoTime() - started);
+        throw e;
+      }
+      healthy = response.statusCode() < 500;
+      if (response.statusCode() < 200 || response.statusCode() >= 300) {
+        String contentType = response.headers().firstValue("Content-Type").orElse("unknown");
+        String bodyPreview;
+        try (InputStream body = response.body()) {
+          bodyPreview = truncateBytes(body.readNBytes(8193), 8192);
+        }
+        logger.error("Deface API returned status {} content-type={} body={}",
+            response.statusCode(), contentType, bodyPreview);
+        throw new DefaceStatusException(response.statusCode());
+      }
+      InputStream body = new ResponseStream(response.body(), backend, filterName, contentLength, started);
+      handedOff = true;
+      return body;
+    } finally {
+      if (!handedOff) {
+        backendPool.release(backend, System.nanoTime() - started, healthy);
+        if (healthy) {
+          circuitBreaker.onSuccess();
+        } else {
+          circuitBreaker.onFailure();
+        }
+      }
+    }
+  }
+
+  public DefaceBackendPool backendPool() {
+    return backendPool;
+  }
+
+  @Override
+  public void close() {
+    if (batcher != null) {
+      batcher.close();
+    }
+    backendPool.close();
+  }
+
+  public CircuitBreaker.State circuitState() {
+    return circuitBreaker.state();
+  }
+
+  public long expectedLatencyMillis(String filterName, long sizeBytes) {
+    return timeouts.percentileMillis(filterName, sizeBytes, 0.5);
+  }
+
+  public long hedgedRequests() {
+    return hedgedRequests.sum();
+  }
+
+  public long batchedRequests() {
+    return batcher == null ? 0 : batcher.batches();
+  }
+
+  public long batchedImages() {
+    return batcher == null ? 0 : batcher.batchedImages();
+  }
+
+  private CompletableFuture<List<byte[]>> sendBatch(String filterName, String pasteStyle, List<byte[]> images) {
+    if (!circuitBreaker.tryAcquirePermission()) {
+      return CompletableFuture.failedFuture(new CircuitOpenException());
+    }
+    for (int i = 0; i < images.size(); i++) {
+      retryBudget.recordRequest();
+    }
+    DefaceBackend backend = backendPool.acquire();
+    long totalBytes = 0;
+    List<HttpRequest.BodyPublisher> parts = new ArrayList<>(images.size() * 2 + 1);
+    for (byte[] image : images) {
+      parts.add(HttpRequest.BodyPublishers.ofByteArray(parts.isEmpty() ? multipartHeader : multipartPartSeparator));
+      parts.add(HttpRequest.BodyPublishers.ofByteArray(image));
+      totalBytes += image.length;
+    }
+    parts.add(HttpRequest.BodyPublishers.ofByteArray(multipartTrailer));
+    String operation = filterName + BATCH_OPERATION_SUFFIX;
+    long batchBytes = totalBytes;
+    logger.info("Sending batch of {} images to deface API {} with filter={} paste={}", images.size(),
+        backend.endpoint(), filterName, pasteStyle);
+    HttpRequest request = HttpRequest.newBuilder(URI.create(buildUrl(backend.endpoint(), filterName, pasteStyle)))
+        .timeout(timeouts.timeoutFor(operation, batchBytes))
         .header("Content-Type", "multipart/form-data; boundary=" + boundary)
-        .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+        .POST(HttpRequest.BodyPublishers.concat(parts.toArray(HttpRequest.BodyPublisher[]::new)))
         .build();
+    long started = System.nanoTime();
+    return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).handle((response, error) -> {
+      long elapsed = System.nanoTime() - started;
+      boolean healthy = error == null && response.statusCode() < 500;
+      backendPool.release(backend, elapsed, healthy);
+      if (healthy) {
+        circuitBreaker.onSuccess();
+      } else {
+        circuitBreaker.onFailure();
+      }
+      if (error != null) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof HttpTimeoutException) {
+          recordTimeout(operation, batchBytes, request, elapsed);
+        }
+        throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+      }
+      DefaceStatusException status = new DefaceStatusException(response.statusCode());
+      if (response.statusCode() >= 400 && response.statusCode() < 500 && !status.isRetryable()) {
+        throw new CompletionException(new BatchRejectedException(status.getMessage(), status));
+      }
+      if (response.statusCode() < 200 || response.statusCode() >= 300) {
+        throw new CompletionException(status);
+      }
+      List<byte[]> results;
+      try {
+        results = MultipartParts.split(response.headers().firstValue("Content-Type").orElse(null), response.body());
+      } catch (IOException e) {
+        throw new CompletionException(new BatchRejectedException(e.getMessage(), e));
+      }
+      if (results.size() != images.size()) {
+        throw new CompletionException(new BatchRejectedException(
+            "Deface API returned " + results.size() + " parts for " + images.size() + " images"));
+      }
+      timeouts.record(operation, batchBytes, elapsed);
+      return results;
+    });
+  }
+
+  private byte[] attemptWithHedge(byte[] imageBytes, String filterName, String pasteStyle)
+      throws IOException, InterruptedException {
+    DefaceBackend primaryBackend = backendPool.acquire();
+    Attempt primary = send(primaryBackend, imageBytes, filterName, pasteStyle, true);
+    long hedgeDelayMillis = hedgeDelayMillis(filterName, imageBytes.length);
+    if (hedgeDelayMillis < 0) {
+      return await(primary.result());
+    }
+    try {
+      return await(primary.result(), hedgeDelayMillis);
+    } catch (TimeoutException e) {
+      Optional<DefaceBackend> spare = backendPool.acquireSpare(primaryBackend, resilience.hedgeMaxOutstanding());
+      if (spare.isEmpty()) {
+        return await(primary.result());
+      }
+      hedgedRequests.increment();
+      logger.info("Hedging deface request to {} after {} ms", spare.get().endpoint(), hedgeDelayMillis);
+      Attempt hedge = send(spare.get(), imageBytes, filterName, pasteStyle, true);
+      try {
+        return await(firstSuccessful(primary.result(), hedge.result()));
+      } finally {
+        primary.exchange().cancel(true);
+        hedge.exchange().cancel(true);
+      }
+    }
+  }
+
+  private Attempt send(DefaceBackend backend, byte[] imageBytes, String filterName, String pasteStyle,
+      boolean recordStats) {
+    String url = buildUrl(backend.endpoint(), filterName, pasteStyle);
+    logger.info("Sending image to deface API {} with filter={} paste={}", backend.endpoint(), filterName,
+        pasteStyle);
+    HttpRequest request = multipartRequest(url, HttpRequest.BodyPublishers.ofByteArray(imageBytes),
+        timeouts.timeoutFor(filterName, imageBytes.length));
+    long started = System.nanoTime();
+    CompletableFuture<HttpResponse<byte[]>> exchange =
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+    CompletableFuture<byte[]> result = exchange.handle((response, error) -> {
+      long elapsed = System.nanoTime() - started;
+      if (error != null) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (cause instanceof CancellationException || !recordStats) {
+          backendPool.abandon(backend);
+        } else {
+          backendPool.release(backend, elapsed, false);
+        }
+        if (recordStats && cause instanceof HttpTimeoutException) {
+          recordTimeout(filterName, imageBytes.length, request, elapsed);
+        }
+        throw new CompletionException(cause);
+      }
+      if (recordStats) {
+        backendPool.release(backend, elapsed, response.statusCode() < 500);
+      } else {
+        backendPool.abandon(backend);
+      }
+      if (response.statusCode() < 200 || response.statusCode() >= 300) {
+        String contentType = response.headers().firstValue("Content-Type").orElse("unknown");
+        String bodyPreview = truncateBytes(response.body(), 8192);
+        logger.error("Deface API {} returned status {} content-type={} body={}",
+            backend.endpoint(), response.statusCode(), contentType, bodyPreview);
+        throw new CompletionException(new DefaceStatusException(response.statusCode()));
+      }
+      if (recordStats) {
+        timeouts.record(filterName, imageBytes.length, elapsed);
+      }
+      logger.info("Deface API responded with {} bytes", response.body().length);
+      return response.body();
+    });
+    return new Attempt(exchange, result);
+  }
+
+  private void recordTimeout(String operation, long sizeBytes, HttpRequest request, long elapsedNanos) {
+    long deadlineNanos = request.timeout().map(Duration::toNanos).orElse(0L);
+    timeouts.record(operation, sizeBytes, Math.max(elapsedNanos, deadlineNanos));
+  }
+
+  private long hedgeDelayMillis(String filterName, long sizeBytes) {
+    if (!resilience.hedgingEnabled() || backendPool.backends().size() < 2) {
+      return -1;
+    }
+    long p95 = timeouts.percentileMillis(filterName, sizeBytes, 0.95);
+    if (p95 < 0) {
+      return -1;
+    }
+    return Math.max(resilience.hedgeMinDelay().toMillis(), p95);
+  }
+
+  private long backoffMillis(int attempt) {
+    long base = resilience.retryBaseDelay().toMillis();
+    long cap = resilience.retryMaxDelay().toMillis();
+    long ceiling = Math.min(cap, base << Math.min(attempt - 1, 20));
+    return ThreadLocalRandom.current().nextLong(ceiling + 1);
+  }
 
-    HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
-    if (response.statusCode() < 200 || response.statusCode() >= 300) {
-      String contentType = response.headers().firstValue("Content-Type").orElse("unknown");
-      String bodyPreview = truncateBytes(response.body(), 8192);
-      logger.error("Deface API returned status {} content-type={} body={}",
-          response.statusCode(), contentType, bodyPreview);
-      throw new IOException("Deface API returned status " + response.statusCode());
+  private static boolean isRetryable(IOException error) {
+    if (error instanceof DefaceStatusException status) {
+      return status.isRetryable();
     }
-    logger.info("Deface API responded with {} bytes", response.body().length);
-    return response.body();
+    return !(error instanceof CircuitOpenException);
+  }
+
+  private static <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> first, CompletableFuture<T> second) {
+    CompletableFuture<T> winner = new CompletableFuture<>();
+    AtomicInteger remaining = new AtomicInteger(2);
+    for (CompletableFuture<T> candidate : List.of(first, second)) {
+      candidate.whenComplete((value, error) -> {
+        if (error == null) {
+          winner.complete(value);
+        } else if (remaining.decrementAndGet() == 0) {
+          winner.completeExceptionally(error);
+        }
+      });
+    }
+    return winner;
+  }
+
+  private static <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  private static <T> T await(CompletableFuture<T> future, long timeoutMillis)
+      throws IOException, InterruptedException, TimeoutException {
+    try {
+      return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  private static IOException unwrap(ExecutionException e) {
+    Throwable cause = e.getCause();
+    while (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    if (cause instanceof IOException io) {
+      return io;
+    }
+    if (cause instanceof RuntimeException runtime) {
+      throw runtime;
+    }
+    if (cause instanceof Error error) {
+      throw error;
+    }
+    return new IOException(cause);
+  }
+
+  HttpRequest.BodyPublisher buildMultipartBody(HttpRequest.BodyPublisher imagePart) {
+    return HttpRequest.BodyPublishers.concat(
+        HttpRequest.BodyPublishers.ofByteArray(multipartHeader),
+        imagePart,
+        HttpRequest.BodyPublishers.ofByteArray(multipartTrailer)
+    );
+  }
+
+  private HttpRequest multipartRequest(String url, HttpRequest.BodyPublisher imagePart, Duration timeout) {
+    return HttpRequest.newBuilder(URI.create(url))
+        .timeout(timeout)
+        .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+        .POST(buildMultipartBody(imagePart))
+        .build();
   }
 
   private static String buildUrl(String endpoint, String filterName, String pasteStyle) {
@@ -79,19 +504,26 @@ public final class DefaceClient {
     return URLEncoder.encode(value, StandardCharsets.UTF_8);
   }
 
-  private static byte[] buildMultipartBody(String boundary, byte[] imageBytes) throws IOException {
-    ByteArrayOutputStream output = new ByteArrayOutputStream();
+  private static byte[] multipartHeader(String boundary) {
+    return ("--" + boundary + "\r\n"
+        + "Content-Disposition: form-data; name=\"input_file\"; filename=\"image.jpg\"\r\n"
+        + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+  }
 
-    output.write(("--" + boundary + "\r\n").getBytes(StandardCharsets.UTF_8));
-    output.write("Content-Disposition: form-data; name=\"input_file\"; filename=\"image.jpg\"\r\n"
-        .getBytes(StandardCharsets.UTF_8));
-    output.write("Content-Type: application/octet-stream\r\n\r\n"
-        .getBytes(StandardCharsets.UTF_8));
-    output.write(imageBytes);
-    output.write("\r\n".getBytes(StandardCharsets.UTF_8));
-    output.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+  private static byte[] multipartPartSeparator(String boundary) {
+    byte[] header = multipartHeader(boundary);
+    byte[] separator = new byte[header.length + 2];
+    separator[0] = '\r';
+    separator[1] = '\n';
+    System.arraycopy(header, 0, separator, 2, header.length);
+    return separator;
+  }
 
-    return output.toByteArray();
+  private static byte[] multipartTrailer(String boundary) {
+    return ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+  }
+
+  private record Attempt(CompletableFuture<HttpResponse<byte[]>> exchange, CompletableFuture<byte[]> result) {
   }
 
   private static String truncateBytes(byte[] bytes, int limit) {
@@ -105,4 +537,69 @@ public final class DefaceClient {
     }
     return text;
   }
+
+  private final class ResponseStream extends FilterInputStream {
+    private final DefaceBackend backend;
+    private final String filterName;
+    private final long contentLength;
+    private final long started;
+    private boolean complete;
+    private boolean failed;
+    private boolean closed;
+
+    private ResponseStream(InputStream body, DefaceBackend backend, String filterName, long contentLength,
+        long started) {
+      super(body);
+      this.backend = backend;
+      this.filterName = filterName;
+      this.contentLength = contentLength;
+      this.started = started;
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        int value = super.read();
+        complete |= value == -1;
+        return value;
+      } catch (IOException e) {
+        failed = true;
+        throw e;
+      }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      try {
+        int read = super.read(buffer, offset, length);
+        complete |= read == -1;
+        return read;
+      } catch (IOException e) {
+        failed = true;
+        throw e;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      long elapsed = System.nanoTime() - started;
+      try {
+        super.close();
+      } finally {
+        backendPool.release(backend, elapsed, !failed);
+        if (failed) {
+          circuitBreaker.onFailure();
+        } else {
+          circuitBreaker.onSuccess();
+        }
+        if (complete) {
+          timeouts.record(filterName, contentLength, elapsed);
+        }
+      }
+    }
+  }
 }
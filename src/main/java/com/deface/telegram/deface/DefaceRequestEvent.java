@@ -0,0 +1,37 @@
+package com.deface.telegram.deface;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.deface.telegram.DefaceRequest")
+@Label("Deface Request")
+@Category({"Deface Telegram", "Deface API"})
+@Description("A defaceImage call including retries, hedging and batching")
+final class DefaceRequestEvent extends Event {
+  @Label("Ref Id")
+  String refId;
+
+  @Label("Chat Id")
+  long chatId;
+
+  @Label("Filter")
+  String filterName;
+
+  @Label("Paste Style")
+  String pasteStyle;
+
+  @Label("Input Bytes")
+  @DataAmount
+  long inputBytes;
+
+  @Label("Output Bytes")
+  @DataAmount
+  long outputBytes;
+
+  @Label("Batched")
+  boolean batched;
+}
@@ -0,0 +1,22 @@
+package com.deface.telegram.deface;
+
+import java.io.IOException;
+
+public final class DefaceStatusException extends IOException {
+  private static final long serialVersionUID = 1L;
+
+  private final int statusCode;
+
+  public DefaceStatusException(int statusCode) {
+    super("Deface API returned status " + statusCode);
+    this.statusCode = statusCode;
+  }
+
+  public int statusCode() {
+    return statusCode;
+  }
+
+  public boolean isRetryable() {
+    return statusCode >= 500 || statusCode == 429;
+  }
+}
@@ -0,0 +1,85 @@
+package com.deface.telegram.deface;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+final class MultipartParts {
+  private static final byte[] HEADER_END = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+  private MultipartParts() {
+  }
+
+  static List<byte[]> split(String contentType, byte[] body) throws IOException {
+    String boundary = boundaryOf(contentType);
+    byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.US_ASCII);
+    byte[] separator = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+    int position = indexOf(body, delimiter, 0);
+    if (position < 0) {
+      throw new IOException("Multipart response has no boundary delimiter");
+    }
+    List<byte[]> parts = new ArrayList<>();
+    position += delimiter.length;
+    while (!startsWith(body, position, "--")) {
+      int headersEnd = indexOf(body, HEADER_END, position);
+      if (headersEnd < 0) {
+        throw new IOException("Multipart response part has no header terminator");
+      }
+      int contentStart = headersEnd + HEADER_END.length;
+      int contentEnd = indexOf(body, separator, contentStart);
+      if (contentEnd < 0) {
+        throw new IOException("Multipart response is truncated");
+      }
+      parts.add(Arrays.copyOfRange(body, contentStart, contentEnd));
+      position = contentEnd + separator.length;
+    }
+    return parts;
+  }
+
+  private static String boundaryOf(String contentType) throws IOException {
+    if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) {
+      throw new IOException("Expected a multipart response but got " + contentType);
+    }
+    for (String parameter : contentType.split(";")) {
+      String trimmed = parameter.trim();
+      if (trimmed.toLowerCase(Locale.ROOT).startsWith("boundary=")) {
+        String boundary = trimmed.substring("boundary=".length());
+        if (boundary.length() >= 2 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+          boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        if (!boundary.isEmpty()) {
+          return boundary;
+        }
+      }
+    }
+    throw new IOException("Multipart response has no boundary: " + contentType);
+  }
+
+  private static boolean startsWith(byte[] body, int position, String marker) {
+    if (position + marker.length() > body.length) {
+      return true;
+    }
+    for (int i = 0; i < marker.length(); i++) {
+      if (body[position + i] != marker.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int indexOf(byte[] body, byte[] pattern, int from) {
+    outer:
+    for (int i = from; i <= body.length - pattern.length; i++) {
+      for (int j = 0; j < pattern.length; j++) {
+        if (body[i + j] != pattern[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,37 @@
+package com.deface.telegram.deface;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class RetryBudget {
+  private static final long MILLI_TOKENS_PER_RETRY = 1_000;
+
+  private final long depositPerRequest;
+  private final long maxMilliTokens;
+  private final AtomicLong milliTokens;
+
+  public RetryBudget(int retryPercent, int maxReserve) {
+    this.depositPerRequest = retryPercent * MILLI_TOKENS_PER_RETRY / 100;
+    this.maxMilliTokens = maxReserve * MILLI_TOKENS_PER_RETRY;
+    this.milliTokens = new AtomicLong(maxMilliTokens);
+  }
+
+  public void recordRequest() {
+    milliTokens.getAndUpdate(current -> Math.min(maxMilliTokens, current + depositPerRequest));
+  }
+
+  public boolean tryWithdraw() {
+    while (true) {
+      long current = milliTokens.get();
+      if (current < MILLI_TOKENS_PER_RETRY) {
+        return false;
+      }
+      if (milliTokens.compareAndSet(current, current - MILLI_TOKENS_PER_RETRY)) {
+        return true;
+      }
+    }
+  }
+
+  public double available() {
+    return milliTokens.get() / (double) MILLI_TOKENS_PER_RETRY;
+  }
+}
@@ -0,0 +1,118 @@
+package com.deface.telegram.image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+public final class ImageDownscaler {
+  public static final String ORIGINAL = "original";
+  private static final Logger logger = LoggerFactory.getLogger(ImageDownscaler.class);
+
+  private final int maxDimension;
+  private final float jpegQuality;
+  private final String variant;
+
+  public ImageDownscaler(int maxDimension, int jpegQuality) {
+    if (maxDimension < 0) {
+      throw new IllegalArgumentException("maxDimension must be non-negative");
+    }
+    if (jpegQuality < 1 || jpegQuality > 100) {
+      throw new IllegalArgumentException("jpegQuality must be 1-100");
+    }
+    this.maxDimension = maxDimension;
+    this.jpegQuality = jpegQuality / 100f;
+    this.variant = maxDimension > 0 ? maxDimension + "px-q" + jpegQuality : ORIGINAL;
+  }
+
+  public boolean enabled() {
+    return maxDimension > 0;
+  }
+
+  public String variant() {
+    return variant;
+  }
+
+  public byte[] downscale(byte[] image) throws IOException {
+    if (!enabled()) {
+      return image;
+    }
+    try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(image))) {
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+      if (!readers.hasNext()) {
+        logger.debug("No image reader for {} byte image; sending it unchanged", image.length);
+        return image;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        int longest = Math.max(width, height);
+        if (longest <= maxDimension) {
+          return image;
+        }
+        double scale = (double) maxDimension / longest;
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        ImageReadParam param = reader.getDefaultReadParam();
+        int subsampling = longest / (maxDimension * 2);
+        if (subsampling > 1) {
+          param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        }
+        BufferedImage decoded = reader.read(0, param);
+        byte[] encoded = encodeJpeg(resize(decoded, targetWidth, targetHeight));
+        if (encoded.length >= image.length) {
+          return image;
+        }
+        logger.debug("Downscaled {}x{} ({} bytes) to {}x{} ({} bytes)", width, height, image.length,
+            targetWidth, targetHeight, encoded.length);
+        return encoded;
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  private static BufferedImage resize(BufferedImage source, int width, int height) {
+    BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = target.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      graphics.drawImage(source, 0, 0, width, height, null);
+    } finally {
+      graphics.dispose();
+    }
+    return target;
+  }
+
+  private byte[] encodeJpeg(BufferedImage image) throws IOException {
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (ImageOutputStream output = ImageIO.createImageOutputStream(buffer)) {
+      writer.setOutput(output);
+      ImageWriteParam param = writer.getDefaultWriteParam();
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(jpegQuality);
+      writer.write(null, new IIOImage(image, null, null), param);
+    } finally {
+      writer.dispose();
+    }
+    return buffer.toByteArray();
+  }
+}
@@ -0,0 +1,62 @@
+package com.deface.telegram.metrics;
+
+import com.deface.telegram.config.AppConfig;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public final class AdaptiveTimeout {
+  private static final long[] SIZE_BUCKET_LIMITS = {64L << 10, 256L << 10, 1L << 20, 4L << 20};
+
+  private final AppConfig.TimeoutSettings settings;
+  private final ConcurrentMap<Key, RollingLatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+  public AdaptiveTimeout(AppConfig.TimeoutSettings settings) {
+    this.settings = Objects.requireNonNull(settings, "settings");
+  }
+
+  public Duration connectTimeout() {
+    return settings.connectTimeout();
+  }
+
+  public Duration timeoutFor(String operation, long sizeBytes) {
+    long percentileMillis = percentileMillis(operation, sizeBytes, settings.percentile() / 100.0);
+    if (percentileMillis < 0) {
+      return settings.ceiling();
+    }
+    long deadline = percentileMillis * settings.multiplierPercent() / 100;
+    long clamped = Math.max(settings.floor().toMillis(), Math.min(settings.ceiling().toMillis(), deadline));
+    return Duration.ofMillis(clamped);
+  }
+
+  public long percentileMillis(String operation, long sizeBytes, double quantile) {
+    RollingLatencyHistogram histogram = histograms.get(new Key(operation, sizeBucket(sizeBytes)));
+    if (histogram == null || histogram.count() < settings.minSamples()) {
+      return -1;
+    }
+    return histogram.percentileMillis(quantile);
+  }
+
+  public void record(String operation, long sizeBytes, long nanos) {
+    histograms.computeIfAbsent(new Key(operation, sizeBucket(sizeBytes)),
+            key -> new RollingLatencyHistogram(settings.window().toMillis()))
+        .recordNanos(nanos);
+  }
+
+  static int sizeBucket(long sizeBytes) {
+    if (sizeBytes < 0) {
+      return SIZE_BUCKET_LIMITS.length;
+    }
+    for (int i = 0; i < SIZE_BUCKET_LIMITS.length; i++) {
+      if (sizeBytes < SIZE_BUCKET_LIMITS[i]) {
+        return i;
+      }
+    }
+    return SIZE_BUCKET_LIMITS.length;
+  }
+
+  private record Key(String operation, int sizeBucket) {
+  }
+}
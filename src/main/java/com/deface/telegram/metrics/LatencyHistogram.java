@@ -0,0 +1,106 @@
+package com.deface.telegram.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class LatencyHistogram {
+  private static final int SUB_BUCKETS = 4;
+  private static final int MAX_EXPONENT = 40;
+  static final int BUCKET_COUNT = MAX_EXPONENT * SUB_BUCKETS + SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder totalCount = new LongAdder();
+  private final LongAdder totalMicros = new LongAdder();
+
+  public void recordNanos(long nanos) {
+    long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+    counts.incrementAndGet(bucketIndex(micros));
+    totalCount.increment();
+    totalMicros.add(micros);
+  }
+
+  public void recordMillis(long millis) {
+    recordNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+  }
+
+  public long count() {
+    return totalCount.sum();
+  }
+
+  public long sumMicros() {
+    return totalMicros.sum();
+  }
+
+  public long percentileMicros(double quantile) {
+    return percentileMicros(snapshotCounts(), quantile);
+  }
+
+  public static long percentileMicros(long[] snapshot, double quantile) {
+    long total = 0;
+    for (long count : snapshot) {
+      total += count;
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(Math.min(1.0, Math.max(0.0, quantile)) * total);
+    long seen = 0;
+    for (int i = 0; i < snapshot.length; i++) {
+      seen += snapshot[i];
+      if (seen >= Math.max(1, rank)) {
+        return bucketUpperBoundMicros(i);
+      }
+    }
+    return bucketUpperBoundMicros(snapshot.length - 1);
+  }
+
+  public long percentileMillis(double quantile) {
+    return TimeUnit.MICROSECONDS.toMillis(percentileMicros(quantile));
+  }
+
+  public long[] snapshotCounts() {
+    long[] snapshot = new long[BUCKET_COUNT];
+    addCountsTo(snapshot);
+    return snapshot;
+  }
+
+  public void addCountsTo(long[] target) {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      target[i] += counts.get(i);
+    }
+  }
+
+  public static long[] emptyCounts() {
+    return new long[BUCKET_COUNT];
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+    totalCount.reset();
+    totalMicros.reset();
+  }
+
+  static int bucketIndex(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKET_COUNT - 1;
+    }
+    int subBucket = (int) ((micros >>> (exponent - 2)) & (SUB_BUCKETS - 1));
+    return (exponent - 1) * SUB_BUCKETS + subBucket;
+  }
+
+  public static long bucketUpperBoundMicros(int index) {
+    if (index < SUB_BUCKETS) {
+      return index + 1;
+    }
+    int exponent = index / SUB_BUCKETS + 1;
+    int subBucket = index % SUB_BUCKETS;
+    return (long) (SUB_BUCKETS + subBucket + 1) << (exponent - 2);
+  }
+}
@@ -0,0 +1,203 @@
+package com.deface.telegram.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+public final class MetricsRegistry {
+  private static final double[] BUCKET_BOUNDS_SECONDS = {
+      0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60
+  };
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Map<String, Family> families = new LinkedHashMap<>();
+
+  public LongAdder counter(String name, String help, String... labels) {
+    LongAdder counter = new LongAdder();
+    register(name, help, Type.COUNTER, labels, new CounterSeries(counter::sum));
+    return counter;
+  }
+
+  public void counter(String name, String help, LongSupplier value, String... labels) {
+    register(name, help, Type.COUNTER, labels, new CounterSeries(value));
+  }
+
+  public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+    register(name, help, Type.GAUGE, labels, new GaugeSeries(value));
+  }
+
+  public LatencyHistogram histogram(String name, String help, String... labels) {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram(name, help, histogram, labels);
+    return histogram;
+  }
+
+  public void histogram(String name, String help, LatencyHistogram histogram, String... labels) {
+    Objects.requireNonNull(histogram, "histogram");
+    register(name, help, Type.HISTOGRAM, labels, new HistogramSeries(histogram));
+  }
+
+  public String scrape() {
+    List<Family> snapshot;
+    lock.lock();
+    try {
+      snapshot = new ArrayList<>(families.values());
+    } finally {
+      lock.unlock();
+    }
+    StringBuilder out = new StringBuilder(4096);
+    for (Family family : snapshot) {
+      out.append("# HELP ").append(family.name).append(' ').append(escapeHelp(family.help)).append('\n');
+      out.append("# TYPE ").append(family.name).append(' ').append(family.type.text).append('\n');
+      for (Labeled labeled : family.series) {
+        labeled.series.write(out, family.name, labeled.labels);
+      }
+    }
+    return out.toString();
+  }
+
+  private void register(String name, String help, Type type, String[] labels, Series series) {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(help, "help");
+    if (labels.length % 2 != 0) {
+      throw new IllegalArgumentException("labels must be name/value pairs");
+    }
+    String renderedLabels = renderLabels(labels);
+    lock.lock();
+    try {
+      Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+      if (family.type != type) {
+        throw new IllegalArgumentException("Metric " + name + " is already registered as " + family.type.text);
+      }
+      for (Labeled existing : family.series) {
+        if (existing.labels.equals(renderedLabels)) {
+          throw new IllegalArgumentException("Metric " + name + renderedLabels + " is already registered");
+        }
+      }
+      family.series.add(new Labeled(renderedLabels, series));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static String renderLabels(String[] labels) {
+    if (labels.length == 0) {
+      return "";
+    }
+    StringBuilder rendered = new StringBuilder("{");
+    for (int i = 0; i < labels.length; i += 2) {
+      if (i > 0) {
+        rendered.append(',');
+      }
+      rendered.append(labels[i]).append("=\"").append(escapeLabelValue(labels[i + 1])).append('"');
+    }
+    return rendered.append('}').toString();
+  }
+
+  private static String withLabel(String labels, String name, String value) {
+    String label = name + "=\"" + value + "\"";
+    if (labels.isEmpty()) {
+      return "{" + label + "}";
+    }
+    return labels.substring(0, labels.length() - 1) + "," + label + "}";
+  }
+
+  private static String escapeLabelValue(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static String escapeHelp(String help) {
+    return help.replace("\\", "\\\\").replace("\n", "\\n");
+  }
+
+  private static String formatDouble(double value) {
+    if (Double.isNaN(value)) {
+      return "NaN";
+    }
+    if (Double.isInfinite(value)) {
+      return value > 0 ? "+Inf" : "-Inf";
+    }
+    if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+
+  private enum Type {
+    COUNTER("counter"),
+    GAUGE("gauge"),
+    HISTOGRAM("histogram");
+
+    private final String text;
+
+    Type(String text) {
+      this.text = text;
+    }
+  }
+
+  private interface Series {
+    void write(StringBuilder out, String name, String labels);
+  }
+
+  private record CounterSeries(LongSupplier value) implements Series {
+    @Override
+    public void write(StringBuilder out, String name, String labels) {
+      out.append(name).append(labels).append(' ').append(value.getAsLong()).append('\n');
+    }
+  }
+
+  private record GaugeSeries(DoubleSupplier value) implements Series {
+    @Override
+    public void write(StringBuilder out, String name, String labels) {
+      out.append(name).append(labels).append(' ').append(formatDouble(value.getAsDouble())).append('\n');
+    }
+  }
+
+  private record HistogramSeries(LatencyHistogram histogram) implements Series {
+    @Override
+    public void write(StringBuilder out, String name, String labels) {
+      long[] counts = histogram.snapshotCounts();
+      long cumulative = 0;
+      int bucket = 0;
+      for (double bound : BUCKET_BOUNDS_SECONDS) {
+        long boundMicros = (long) (bound * TimeUnit.SECONDS.toMicros(1));
+        while (bucket < counts.length && LatencyHistogram.bucketUpperBoundMicros(bucket) <= boundMicros) {
+          cumulative += counts[bucket++];
+        }
+        out.append(name).append("_bucket").append(withLabel(labels, "le", formatDouble(bound)))
+            .append(' ').append(cumulative).append('\n');
+      }
+      while (bucket < counts.length) {
+        cumulative += counts[bucket++];
+      }
+      out.append(name).append("_bucket").append(withLabel(labels, "le", "+Inf"))
+          .append(' ').append(cumulative).append('\n');
+      out.append(name).append("_sum").append(labels).append(' ')
+          .append(formatDouble(histogram.sumMicros() / 1_000_000.0)).append('\n');
+      out.append(name).append("_count").append(labels).append(' ').append(cumulative).append('\n');
+    }
+  }
+
+  private record Labeled(String labels, Series series) {
+  }
+
+  private static final class Family {
+    private final String name;
+    private final String help;
+    private final Type type;
+    private final List<Labeled> series = new ArrayList<>();
+
+    private Family(String name, String help, Type type) {
+      this.name = name;
+      this.help = help;
+      this.type = type;
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.deface.telegram.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+public final class MetricsServer implements AutoCloseable {
+  static final String PATH = "/metrics";
+  static final String SLOW_JOBS_PATH = "/debug/slow-jobs";
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  private static final String TEXT_CONTENT_TYPE = "text/plain; charset=utf-8";
+  private static final Logger logger = LoggerFactory.getLogger(MetricsServer.class);
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  public MetricsServer(int port, MetricsRegistry registry, Supplier<String> slowJobs) throws IOException {
+    Objects.requireNonNull(registry, "registry");
+    Objects.requireNonNull(slowJobs, "slowJobs");
+    this.executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "metrics-server");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.createContext(PATH, exchange -> handle(exchange, PATH, CONTENT_TYPE, registry::scrape));
+    server.createContext(SLOW_JOBS_PATH, exchange -> handle(exchange, SLOW_JOBS_PATH, TEXT_CONTENT_TYPE, slowJobs));
+    server.setExecutor(executor);
+  }
+
+  public void start() {
+    server.start();
+    logger.info("Metrics server listening on port {} at {} and {}", port(), PATH, SLOW_JOBS_PATH);
+  }
+
+  public int port() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private static void handle(HttpExchange exchange, String path, String contentType, Supplier<String> body)
+      throws IOException {
+    try (exchange) {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().add("Allow", "GET");
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      if (!exchange.getRequestURI().getPath().equals(path)) {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+      byte[] response = body.get().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", contentType);
+      exchange.sendResponseHeaders(200, response.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(response);
+      }
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package com.deface.telegram.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public final class RollingLatencyHistogram {
+  private final long windowNanos;
+  private final LongSupplier nanoClock;
+  private final LatencyHistogram[] slots = {new LatencyHistogram(), new LatencyHistogram()};
+  private final AtomicLong currentEpoch;
+
+  public RollingLatencyHistogram(long windowMillis) {
+    this(windowMillis, System::nanoTime);
+  }
+
+  RollingLatencyHistogram(long windowMillis, LongSupplier nanoClock) {
+    this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    this.nanoClock = nanoClock;
+    this.currentEpoch = new AtomicLong(epoch());
+  }
+
+  public void recordNanos(long nanos) {
+    long epoch = advance();
+    slots[(int) (epoch & 1)].recordNanos(nanos);
+  }
+
+  public long count() {
+    advance();
+    return slots[0].count() + slots[1].count();
+  }
+
+  public long percentileMicros(double quantile) {
+    advance();
+    long[] merged = LatencyHistogram.emptyCounts();
+    slots[0].addCountsTo(merged);
+    slots[1].addCountsTo(merged);
+    return LatencyHistogram.percentileMicros(merged, quantile);
+  }
+
+  public long percentileMillis(double quantile) {
+    return TimeUnit.MICROSECONDS.toMillis(percentileMicros(quantile));
+  }
+
+  private long advance() {
+    long now = epoch();
+    long seen = currentEpoch.get();
+    while (now > seen) {
+      if (currentEpoch.compareAndSet(seen, now)) {
+        if (now - seen > 1) {
+          slots[(int) ((now + 1) & 1)].reset();
+        }
+        slots[(int) (now & 1)].reset();
+        return now;
+      }
+      seen = currentEpoch.get();
+    }
+    return seen;
+  }
+
+  private long epoch() {
+    return nanoClock.getAsLong() / windowNanos;
+  }
+}
@@ -0,0 +1,102 @@
+package com.deface.telegram.pipeline;
+
+import com.deface.telegram.config.AppConfig;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public final class AdmissionController {
+  private static final int CLEANUP_THRESHOLD = 10_000;
+  private static final long CLEANUP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private final AppConfig.AdmissionSettings settings;
+  private final LongSupplier nanoClock;
+  private final TokenBucket globalBucket;
+  private final ConcurrentMap<Long, TokenBucket> chatBuckets = new ConcurrentHashMap<>();
+  private final AtomicInteger queuedJobs = new AtomicInteger();
+  private final AtomicLong nextCleanupNanos;
+  private final LongAdder admitted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  public AdmissionController(AppConfig.AdmissionSettings settings) {
+    this(settings, System::nanoTime);
+  }
+
+  AdmissionController(AppConfig.AdmissionSettings settings, LongSupplier nanoClock) {
+    this.settings = Objects.requireNonNull(settings, "settings");
+    this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock");
+    this.globalBucket = new TokenBucket(settings.globalBurst(), settings.globalPerSecond(), nanoClock.getAsLong());
+    this.nextCleanupNanos = new AtomicLong(nanoClock.getAsLong());
+  }
+
+  public Decision tryAdmit(long chatId) {
+    return tryAdmit(chatId, 1);
+  }
+
+  public Decision tryAdmit(long chatId, int photos) {
+    if (photos <= 0) {
+      throw new IllegalArgumentException("photos must be positive");
+    }
+    long now = nanoClock.getAsLong();
+    removeIdleBuckets(now);
+    TokenBucket chatBucket = chatBuckets.computeIfAbsent(chatId,
+        id -> new TokenBucket(settings.chatBurst(), settings.chatPerMinute() / 60.0, now));
+    if (!chatBucket.tryAcquire(now, photos)) {
+      rejected.increment();
+      return Decision.CHAT_RATE_LIMITED;
+    }
+    if (queuedJobs.incrementAndGet() > settings.queueCapacity()) {
+      queuedJobs.decrementAndGet();
+      chatBucket.refund(photos);
+      rejected.increment();
+      return Decision.QUEUE_FULL;
+    }
+    if (!globalBucket.tryAcquire(now, photos)) {
+      queuedJobs.decrementAndGet();
+      chatBucket.refund(photos);
+      rejected.increment();
+      return Decision.GLOBAL_RATE_LIMITED;
+    }
+    admitted.increment();
+    return Decision.ADMITTED;
+  }
+
+  public void release() {
+    queuedJobs.decrementAndGet();
+  }
+
+  int trackedChats() {
+    return chatBuckets.size();
+  }
+
+  public Snapshot snapshot() {
+    return new Snapshot(queuedJobs.get(), settings.queueCapacity(),
+        globalBucket.available(nanoClock.getAsLong()), admitted.sum(), rejected.sum());
+  }
+
+  private void removeIdleBuckets(long now) {
+    if (chatBuckets.size() <= CLEANUP_THRESHOLD) {
+      return;
+    }
+    long due = nextCleanupNanos.get();
+    if (now - due >= 0 && nextCleanupNanos.compareAndSet(due, now + CLEANUP_INTERVAL_NANOS)) {
+      chatBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+  }
+
+  public enum Decision {
+    ADMITTED,
+    CHAT_RATE_LIMITED,
+    GLOBAL_RATE_LIMITED,
+    QUEUE_FULL
+  }
+
+  public record Snapshot(int queuedJobs, int queueCapacity, double globalTokens, long admitted, long rejected) {
+  }
+}
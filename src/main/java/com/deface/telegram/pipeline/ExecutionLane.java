@@ -0,0 +1,164 @@
+package com.deface.telegram.pipeline;
+
+import com.deface.telegram.metrics.LatencyHistogram;
+import com.deface.telegram.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class ExecutionLane implements Executor, AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(ExecutionLane.class);
+
+  private final String name;
+  private final int concurrency;
+  private final int queueCapacity;
+  private final Semaphore permits;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicInteger active = new AtomicInteger();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LatencyHistogram waitTimes = new LatencyHistogram();
+  private final LatencyHistogram runTimes = new LatencyHistogram();
+
+  public ExecutionLane(String name, int concurrency, int queueCapacity) {
+    this.name = Objects.requireNonNull(name, "name");
+    if (concurrency <= 0) {
+      throw new IllegalArgumentException("concurrency must be positive");
+    }
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException("queueCapacity must be positive");
+    }
+    this.concurrency = concurrency;
+    this.queueCapacity = queueCapacity;
+    this.permits = new Semaphore(concurrency, true);
+  }
+
+  public boolean tryExecute(Runnable task) {
+    Objects.requireNonNull(task, "task");
+    if (queued.incrementAndGet() > queueCapacity) {
+      queued.decrementAndGet();
+      rejected.increment();
+      return false;
+    }
+    long submitted = System.nanoTime();
+    try {
+      executor.execute(() -> run(task, submitted));
+    } catch (RejectedExecutionException e) {
+      queued.decrementAndGet();
+      rejected.increment();
+      return false;
+    }
+    return true;
+  }
+
+  public boolean tryRunNow(Runnable task) {
+    Objects.requireNonNull(task, "task");
+    if (!permits.tryAcquire()) {
+      return false;
+    }
+    queued.incrementAndGet();
+    long submitted = System.nanoTime();
+    try {
+      executor.execute(() -> runHolding(task, submitted));
+    } catch (RejectedExecutionException e) {
+      queued.decrementAndGet();
+      permits.release();
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    if (!tryExecute(task)) {
+      throw new RejectedExecutionException(name + " lane is full");
+    }
+  }
+
+  public void registerMetrics(MetricsRegistry registry) {
+    registry.gauge("deface_bot_lane_active_tasks", "Tasks currently running in the lane", active::get, "lane", name);
+    registry.gauge("deface_bot_lane_queued_tasks", "Tasks waiting for a lane permit",
+        () -> Math.max(0, queued.get() - active.get()), "lane", name);
+    registry.counter("deface_bot_lane_completed_total", "Tasks completed by the lane", completed::sum, "lane", name);
+    registry.counter("deface_bot_lane_failed_total", "Tasks that failed with an unexpected exception",
+        failed::sum, "lane", name);
+    registry.counter("deface_bot_lane_rejected_total", "Tasks rejected because the lane was full",
+        rejected::sum, "lane", name);
+    registry.histogram("deface_bot_lane_wait_seconds", "Time tasks waited for a lane permit", waitTimes,
+        "lane", name);
+    registry.histogram("deface_bot_lane_run_seconds", "Time tasks ran in the lane", runTimes, "lane", name);
+  }
+
+  public Stats stats() {
+    return new Stats(name, concurrency, active.get(), Math.max(0, queued.get() - active.get()), completed.sum(),
+        failed.sum(), rejected.sum(), waitTimes.percentileMillis(0.99), runTimes.percentileMillis(0.99));
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+        logger.warn("{} lane did not drain within 30s; abandoning remaining tasks", name);
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run(Runnable task, long submitted) {
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      queued.decrementAndGet();
+      rejected.increment();
+      Thread.currentThread().interrupt();
+      return;
+    }
+    runHolding(task, submitted);
+  }
+
+  private void runHolding(Runnable task, long submitted) {
+    long started = System.nanoTime();
+    waitTimes.recordNanos(started - submitted);
+    active.incrementAndGet();
+    try {
+      task.run();
+    } catch (RuntimeException e) {
+      failed.increment();
+      logger.error("Task on {} lane failed unexpectedly", name, e);
+    } finally {
+      runTimes.recordNanos(System.nanoTime() - started);
+      active.decrementAndGet();
+      queued.decrementAndGet();
+      completed.increment();
+      permits.release();
+    }
+  }
+
+  public record Stats(
+      String name,
+      int concurrency,
+      int active,
+      int queued,
+      long completed,
+      long failed,
+      long rejected,
+      long waitP99Millis,
+      long runP99Millis
+  ) {
+  }
+}
@@ -0,0 +1,173 @@
+package com.deface.telegram.pipeline;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public final class FairScheduler {
+  static final long UNKNOWN_COST_MILLIS = 1_000;
+
+  private final int capacity;
+  private final Map<String, Integer> flowLimits;
+  private final CostModel costModel;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Map<String, Flow> flows = new HashMap<>();
+  private double virtualTime;
+  private long sequence;
+  private int running;
+
+  public FairScheduler(int capacity, Map<String, Integer> flowLimits, CostModel costModel) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    this.capacity = capacity;
+    this.flowLimits = Map.copyOf(flowLimits);
+    this.costModel = Objects.requireNonNull(costModel, "costModel");
+  }
+
+  public Permit acquire(String flowName, long sizeBytes) throws InterruptedException {
+    Objects.requireNonNull(flowName, "flowName");
+    long expected = costModel.expectedMillis(flowName, sizeBytes);
+    long cost = expected < 0 ? UNKNOWN_COST_MILLIS : Math.max(1, expected);
+    lock.lock();
+    try {
+      Flow flow = flows.computeIfAbsent(flowName,
+          name -> new Flow(Math.min(capacity, flowLimits.getOrDefault(name, capacity))));
+      double start = Math.max(virtualTime, flow.lastFinish);
+      Permit permit = new Permit(flow, start, start + cost, sequence++, lock.newCondition());
+      flow.lastFinish = permit.finish;
+      flow.waiting.addLast(permit);
+      dispatch();
+      while (!permit.granted) {
+        try {
+          permit.ready.await();
+        } catch (InterruptedException e) {
+          if (permit.granted) {
+            release(permit);
+          } else {
+            flow.waiting.remove(permit);
+          }
+          throw e;
+        }
+      }
+      return permit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int running() {
+    lock.lock();
+    try {
+      return running;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int running(String flowName) {
+    lock.lock();
+    try {
+      Flow flow = flows.get(flowName);
+      return flow == null ? 0 : flow.running;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int queued(String flowName) {
+    lock.lock();
+    try {
+      Flow flow = flows.get(flowName);
+      return flow == null ? 0 : flow.waiting.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void release(Permit permit) {
+    if (permit.released) {
+      return;
+    }
+    permit.released = true;
+    permit.flow.running--;
+    running--;
+    if (running == 0 && flows.values().stream().allMatch(flow -> flow.waiting.isEmpty())) {
+      virtualTime = 0;
+      flows.values().forEach(flow -> flow.lastFinish = 0);
+    }
+    dispatch();
+  }
+
+  private void dispatch() {
+    while (running < capacity) {
+      Permit next = null;
+      for (Flow flow : flows.values()) {
+        Permit head = flow.waiting.peekFirst();
+        if (head != null && flow.running < flow.limit && (next == null || head.precedes(next))) {
+          next = head;
+        }
+      }
+      if (next == null) {
+        return;
+      }
+      next.flow.waiting.pollFirst();
+      next.flow.running++;
+      running++;
+      virtualTime = Math.max(virtualTime, next.start);
+      next.granted = true;
+      next.ready.signal();
+    }
+  }
+
+  @FunctionalInterface
+  public interface CostModel {
+    long expectedMillis(String flowName, long sizeBytes);
+  }
+
+  public final class Permit implements AutoCloseable {
+    private final Flow flow;
+    private final double start;
+    private final double finish;
+    private final long sequence;
+    private final Condition ready;
+    private boolean granted;
+    private boolean released;
+
+    private Permit(Flow flow, double start, double finish, long sequence, Condition ready) {
+      this.flow = flow;
+      this.start = start;
+      this.finish = finish;
+      this.sequence = sequence;
+      this.ready = ready;
+    }
+
+    private boolean precedes(Permit other) {
+      return finish < other.finish || (finish == other.finish && sequence < other.sequence);
+    }
+
+    @Override
+    public void close() {
+      lock.lock();
+      try {
+        release(this);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private static final class Flow {
+    private final int limit;
+    private final ArrayDeque<Permit> waiting = new ArrayDeque<>();
+    private double lastFinish;
+    private int running;
+
+    private Flow(int limit) {
+      this.limit = limit;
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package com.deface.telegram.pipeline;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.deface.telegram.PhotoJob")
+@Label("Photo Job")
+@Category({"Deface Telegram", "Pipeline"})
+@Description("A complete photo or album job with its per-stage breakdown")
+final class JobEvent extends Event {
+  @Label("Ref Id")
+  String refId;
+
+  @Label("Chat Id")
+  long chatId;
+
+  @Label("Filter")
+  String filterName;
+
+  @Label("Paste Style")
+  String pasteStyle;
+
+  @Label("Failure")
+  String failure;
+
+  @Label("Resolve")
+  @Timespan(Timespan.MILLISECONDS)
+  long resolveMillis;
+
+  @Label("Download")
+  @Timespan(Timespan.MILLISECONDS)
+  long downloadMillis;
+
+  @Label("Resize")
+  @Timespan(Timespan.MILLISECONDS)
+  long resizeMillis;
+
+  @Label("Deface")
+  @Timespan(Timespan.MILLISECONDS)
+  long defaceMillis;
+
+  @Label("Upload")
+  @Timespan(Timespan.MILLISECONDS)
+  long uploadMillis;
+
+  @Label("Downloaded Bytes")
+  @DataAmount
+  long downloadedBytes;
+
+  @Label("Defaced Bytes")
+  @DataAmount
+  long defacedBytes;
+}
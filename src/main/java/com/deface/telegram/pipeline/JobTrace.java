@@ -0,0 +1,133 @@
+package com.deface.telegram.pipeline;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class JobTrace {
+  private static final ThreadLocal<JobTrace> CURRENT = new ThreadLocal<>();
+  private static final PhotoPipeline.Stage[] STAGES = PhotoPipeline.Stage.values();
+
+  private final String refId = UUID.randomUUID().toString();
+  private final long chatId;
+  private final Instant startedAt = Instant.now();
+  private final long startedNanos = System.nanoTime();
+  private final AtomicLongArray stageNanos = new AtomicLongArray(STAGES.length);
+  private final AtomicLongArray stageBytes = new AtomicLongArray(STAGES.length);
+  private volatile String filterName;
+  private volatile String pasteStyle;
+  private volatile String failure;
+
+  private JobTrace(long chatId) {
+    this.chatId = chatId;
+    for (int i = 0; i < STAGES.length; i++) {
+      stageBytes.set(i, -1);
+    }
+  }
+
+  public static Optional<JobTrace> current() {
+    return Optional.ofNullable(CURRENT.get());
+  }
+
+  public static void describe(String filterName, String pasteStyle) {
+    JobTrace trace = CURRENT.get();
+    if (trace != null) {
+      trace.filterName = filterName;
+      trace.pasteStyle = pasteStyle;
+    }
+  }
+
+  public static String markFailed(Throwable error) {
+    JobTrace trace = CURRENT.get();
+    if (trace == null) {
+      return UUID.randomUUID().toString();
+    }
+    trace.failure = error == null ? "unknown" : error.getClass().getSimpleName();
+    return trace.refId;
+  }
+
+  public static <T> Callable<T> carry(Callable<T> task) {
+    JobTrace trace = CURRENT.get();
+    return () -> {
+      JobTrace previous = CURRENT.get();
+      CURRENT.set(trace);
+      try {
+        return task.call();
+      } finally {
+        CURRENT.set(previous);
+      }
+    };
+  }
+
+  static JobTrace begin(long chatId) {
+    JobTrace trace = new JobTrace(chatId);
+    CURRENT.set(trace);
+    return trace;
+  }
+
+  static void end() {
+    CURRENT.remove();
+  }
+
+  public String refId() {
+    return refId;
+  }
+
+  public long chatId() {
+    return chatId;
+  }
+
+  public String filterName() {
+    return filterName;
+  }
+
+  public String pasteStyle() {
+    return pasteStyle;
+  }
+
+  void recordStage(PhotoPipeline.Stage stage, long nanos, long bytes) {
+    stageNanos.addAndGet(stage.ordinal(), nanos);
+    if (bytes >= 0) {
+      stageBytes.accumulateAndGet(stage.ordinal(), bytes, (previous, added) -> Math.max(0, previous) + added);
+    }
+  }
+
+  long stageMillis(PhotoPipeline.Stage stage) {
+    return TimeUnit.NANOSECONDS.toMillis(stageNanos.get(stage.ordinal()));
+  }
+
+  long stageBytes(PhotoPipeline.Stage stage) {
+    return stageBytes.get(stage.ordinal());
+  }
+
+  Summary finish() {
+    Map<PhotoPipeline.Stage, Long> millis = new EnumMap<>(PhotoPipeline.Stage.class);
+    Map<PhotoPipeline.Stage, Long> bytes = new EnumMap<>(PhotoPipeline.Stage.class);
+    for (PhotoPipeline.Stage stage : STAGES) {
+      millis.put(stage, stageMillis(stage));
+      bytes.put(stage, stageBytes(stage));
+    }
+    return new Summary(refId, chatId, filterName, pasteStyle, startedAt,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos),
+        Collections.unmodifiableMap(millis), Collections.unmodifiableMap(bytes), failure);
+  }
+
+  public record Summary(
+      String refId,
+      long chatId,
+      String filterName,
+      String pasteStyle,
+      Instant startedAt,
+      long totalMillis,
+      Map<PhotoPipeline.Stage, Long> stageMillis,
+      Map<PhotoPipeline.Stage, Long> stageBytes,
+      String failure
+  ) {
+  }
+}
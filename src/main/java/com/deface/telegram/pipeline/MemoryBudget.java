@@ -0,0 +1,42 @@
+package com.deface.telegram.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class MemoryBudget {
+  private final long capacityBytes;
+  private final AtomicLong reserved = new AtomicLong();
+
+  public MemoryBudget(long capacityBytes) {
+    if (capacityBytes < 0) {
+      throw new IllegalArgumentException("capacityBytes must not be negative");
+    }
+    this.capacityBytes = capacityBytes;
+  }
+
+  public boolean tryReserve(long bytes) {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("bytes must not be negative");
+    }
+    while (true) {
+      long current = reserved.get();
+      if (current + bytes > capacityBytes) {
+        return false;
+      }
+      if (reserved.compareAndSet(current, current + bytes)) {
+        return true;
+      }
+    }
+  }
+
+  public void release(long bytes) {
+    reserved.addAndGet(-bytes);
+  }
+
+  public long reservedBytes() {
+    return reserved.get();
+  }
+
+  public long capacityBytes() {
+    return capacityBytes;
+  }
+}
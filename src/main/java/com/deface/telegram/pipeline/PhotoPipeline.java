@@ -0,0 +1,277 @@
+package com.deface.telegram.pipeline;
+
+import com.deface.telegram.config.AppConfig;
+import com.deface.telegram.metrics.LatencyHistogram;
+import com.deface.telegram.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+public final class PhotoPipeline implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(PhotoPipeline.class);
+
+  private final ExecutionLane lane;
+  private final ConcurrentMap<Long, CompletableFuture<Void>> chatTails = new ConcurrentHashMap<>();
+  private final Map<Stage, Semaphore> stagePermits = new EnumMap<>(Stage.class);
+  private final FairScheduler defaceScheduler;
+  private final Map<Stage, LatencyHistogram> stageWaits = new EnumMap<>(Stage.class);
+  private final Map<Stage, LatencyHistogram> stageDurations = new EnumMap<>(Stage.class);
+  private final SlowJobRecorder slowJobs;
+
+  public PhotoPipeline(AppConfig config) {
+    this(config, new MetricsRegistry());
+  }
+
+  public PhotoPipeline(AppConfig config, MetricsRegistry metrics) {
+    this(config, metrics, (filterName, sizeBytes) -> -1);
+  }
+
+  public PhotoPipeline(AppConfig config, MetricsRegistry metrics, FairScheduler.CostModel defaceCost) {
+    Objects.requireNonNull(config, "config");
+    Objects.requireNonNull(metrics, "metrics");
+    AppConfig.PipelineLimits limits = config.getPipelineLimits();
+    this.defaceScheduler = new FairScheduler(limits.defaceConcurrency(), limits.defaceFilterConcurrency(),
+        defaceCost);
+    this.slowJobs = new SlowJobRecorder(config.getSlowJobSettings());
+    this.lane = new ExecutionLane("photo", config.getLaneSettings().photoConcurrency(),
+        config.getAdmissionSettings().queueCapacity());
+    for (Stage stage : Stage.values()) {
+      String label = stage.name().toLowerCase(Locale.ROOT);
+      stageWaits.put(stage, metrics.histogram("deface_bot_stage_wait_seconds",
+          "Time photo jobs waited for a stage permit", "stage", label));
+      stageDurations.put(stage, metrics.histogram("deface_bot_stage_duration_seconds",
+          "Time photo jobs spent in a stage", "stage", label));
+      if (stage == Stage.DEFACE) {
+        metrics.gauge("deface_bot_stage_in_flight", "Photo jobs currently in a stage", defaceScheduler::running,
+            "stage", label);
+        continue;
+      }
+      int limit = limitOf(limits, stage);
+      Semaphore permits = new Semaphore(limit, true);
+      stagePermits.put(stage, permits);
+      metrics.gauge("deface_bot_stage_in_flight", "Photo jobs currently in a stage",
+          () -> limit - permits.availablePermits(), "stage", label);
+    }
+    for (String filterName : config.getAllowedFilterNames()) {
+      metrics.gauge("deface_bot_deface_queued", "Photo jobs waiting for a deface slot by filter",
+          () -> defaceScheduler.queued(filterName), "filter", filterName);
+      metrics.gauge("deface_bot_deface_running", "Photo jobs holding a deface slot by filter",
+          () -> defaceScheduler.running(filterName), "filter", filterName);
+    }
+    lane.registerMetrics(metrics);
+    metrics.gauge("deface_bot_active_chats", "Chats with queued or running photo jobs", chatTails::size);
+  }
+
+  public CompletableFuture<Void> submit(long chatId, Runnable job) {
+    Objects.requireNonNull(job, "job");
+    CompletableFuture<Void> next = chatTails.compute(chatId, (id, tail) -> {
+      CompletableFuture<Void> previous = tail == null
+          ? CompletableFuture.completedFuture(null)
+          : tail.exceptionally(error -> null);
+      return previous.thenRunAsync(() -> runGuarded(chatId, job), lane);
+    });
+    next.whenComplete((ignored, error) -> chatTails.remove(chatId, next));
+    return next;
+  }
+
+  public <T> Optional<Future<T>> tryFork(Callable<T> task) {
+    FutureTask<T> forked = new FutureTask<>(JobTrace.carry(task));
+    return lane.tryRunNow(forked) ? Optional.of(forked) : Optional.empty();
+  }
+
+  public <T> T stage(Stage stage, StageTask<T> task) throws Exception {
+    return stage(stage, "", -1, task);
+  }
+
+  public <T> T stage(Stage stage, String filterName, long sizeBytes, StageTask<T> task) throws Exception {
+    StageRun run = begin(stage, filterName, sizeBytes);
+    long bytes = -1;
+    try {
+      T result = task.run();
+      if (result instanceof byte[] data) {
+        bytes = data.length;
+      }
+      return result;
+    } finally {
+      run.finish(bytes);
+    }
+  }
+
+  public InputStream streamStage(Stage stage, String filterName, long sizeBytes, StageTask<InputStream> task)
+      throws Exception {
+    StageRun run = begin(stage, filterName, sizeBytes);
+    InputStream stream;
+    try {
+      stream = task.run();
+    } catch (Exception | Error e) {
+      run.finish(-1);
+      throw e;
+    }
+    return new FilterInputStream(stream) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          run.finish(-1);
+        }
+      }
+    };
+  }
+
+  public int activeChats() {
+    return chatTails.size();
+  }
+
+  public SlowJobRecorder slowJobs() {
+    return slowJobs;
+  }
+
+  public ExecutionLane.Stats laneStats() {
+    return lane.stats();
+  }
+
+  @Override
+  public void close() {
+    lane.close();
+  }
+
+  private AutoCloseable acquire(Stage stage, String filterName, long sizeBytes) throws InterruptedException {
+    if (stage == Stage.DEFACE) {
+      return defaceScheduler.acquire(filterName, sizeBytes);
+    }
+    Semaphore permits = stagePermits.get(stage);
+    permits.acquire();
+    return permits::release;
+  }
+
+  private static int limitOf(AppConfig.PipelineLimits limits, Stage stage) {
+    return switch (stage) {
+      case RESOLVE -> limits.resolveConcurrency();
+      case DOWNLOAD -> limits.downloadConcurrency();
+      case RESIZE -> limits.resizeConcurrency();
+      case DEFACE -> limits.defaceConcurrency();
+      case UPLOAD -> limits.uploadConcurrency();
+    };
+  }
+
+  private void runGuarded(long chatId, Runnable job) {
+    JobTrace trace = JobTrace.begin(chatId);
+    JobEvent event = new JobEvent();
+    event.begin();
+    try {
+      job.run();
+    } catch (RuntimeException e) {
+      JobTrace.markFailed(e);
+      logger.error("Photo job for chat {} failed unexpectedly refId={}", chatId, trace.refId(), e);
+    } finally {
+      event.end();
+      JobTrace.Summary summary = trace.finish();
+      JobTrace.end();
+      slowJobs.record(summary);
+      if (event.shouldCommit()) {
+        event.refId = summary.refId();
+        event.chatId = chatId;
+        event.filterName = summary.filterName();
+        event.pasteStyle = summary.pasteStyle();
+        event.failure = summary.failure();
+        event.resolveMillis = summary.stageMillis().get(Stage.RESOLVE);
+        event.downloadMillis = summary.stageMillis().get(Stage.DOWNLOAD);
+        event.resizeMillis = summary.stageMillis().get(Stage.RESIZE);
+        event.defaceMillis = summary.stageMillis().get(Stage.DEFACE);
+        event.uploadMillis = summary.stageMillis().get(Stage.UPLOAD);
+        event.downloadedBytes = summary.stageBytes().get(Stage.DOWNLOAD);
+        event.defacedBytes = summary.stageBytes().get(Stage.DEFACE);
+        event.commit();
+      }
+    }
+  }
+
+  private StageRun begin(Stage stage, String filterName, long sizeBytes) throws InterruptedException {
+    long waiting = System.nanoTime();
+    AutoCloseable permit = acquire(stage, filterName, sizeBytes);
+    long started = System.nanoTime();
+    stageWaits.get(stage).recordNanos(started - waiting);
+    StageEvent event = new StageEvent();
+    event.begin();
+    return new StageRun(stage, permit, waiting, started, event, JobTrace.current().orElse(null));
+  }
+
+  private final class StageRun {
+    private final Stage stage;
+    private final AutoCloseable permit;
+    private final long waiting;
+    private final long started;
+    private final StageEvent event;
+    private final JobTrace trace;
+    private boolean finished;
+
+    private StageRun(Stage stage, AutoCloseable permit, long waiting, long started, StageEvent event,
+        JobTrace trace) {
+      this.stage = stage;
+      this.permit = permit;
+      this.waiting = waiting;
+      this.started = started;
+      this.event = event;
+      this.trace = trace;
+    }
+
+    private void finish(long bytes) {
+      if (finished) {
+        return;
+      }
+      finished = true;
+      long elapsed = System.nanoTime() - started;
+      try {
+        permit.close();
+      } catch (Exception e) {
+        logger.warn("Failed to release {} stage permit", stage, e);
+      }
+      stageDurations.get(stage).recordNanos(elapsed);
+      event.end();
+      if (trace != null) {
+        trace.recordStage(stage, elapsed, bytes);
+      }
+      if (event.shouldCommit()) {
+        event.stage = stage.name();
+        event.bytes = bytes;
+        event.waitNanos = started - waiting;
+        if (trace != null) {
+          event.refId = trace.refId();
+          event.chatId = trace.chatId();
+          event.filterName = trace.filterName();
+          event.pasteStyle = trace.pasteStyle();
+        }
+        event.commit();
+      }
+    }
+  }
+
+  public enum Stage {
+    RESOLVE,
+    DOWNLOAD,
+    RESIZE,
+    DEFACE,
+    UPLOAD
+  }
+
+  @FunctionalInterface
+  public interface StageTask<T> {
+    T run() throws Exception;
+  }
+}
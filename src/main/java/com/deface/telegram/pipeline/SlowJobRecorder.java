@@ -0,0 +1,86 @@
+package com.deface.telegram.pipeline;
+
+import com.deface.telegram.config.AppConfig;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+public final class SlowJobRecorder {
+  private final JobTrace.Summary[] ring;
+  private final long thresholdMillis;
+  private final ReentrantLock lock = new ReentrantLock();
+  private int next;
+
+  public SlowJobRecorder(AppConfig.SlowJobSettings settings) {
+    Objects.requireNonNull(settings, "settings");
+    this.ring = new JobTrace.Summary[settings.bufferSize()];
+    this.thresholdMillis = settings.threshold().toMillis();
+  }
+
+  public void record(JobTrace.Summary summary) {
+    if (ring.length == 0 || summary.totalMillis() < thresholdMillis) {
+      return;
+    }
+    lock.lock();
+    try {
+      ring[next] = summary;
+      next = (next + 1) % ring.length;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public List<JobTrace.Summary> slowest() {
+    List<JobTrace.Summary> jobs = new ArrayList<>(ring.length);
+    lock.lock();
+    try {
+      for (JobTrace.Summary summary : ring) {
+        if (summary != null) {
+          jobs.add(summary);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    jobs.sort(Comparator.comparingLong(JobTrace.Summary::totalMillis).reversed());
+    return jobs;
+  }
+
+  public String dump(boolean withChatIds) {
+    List<JobTrace.Summary> jobs = slowest();
+    if (jobs.isEmpty()) {
+      return "No slow jobs recorded (threshold " + thresholdMillis + " ms).";
+    }
+    StringBuilder out = new StringBuilder();
+    for (JobTrace.Summary job : jobs) {
+      out.append(job.refId())
+          .append(" at ").append(job.startedAt());
+      if (withChatIds) {
+        out.append(" chat=").append(job.chatId());
+      }
+      out.append(" filter=").append(job.filterName())
+          .append(" paste=").append(job.pasteStyle())
+          .append(" total=").append(job.totalMillis()).append("ms");
+      for (PhotoPipeline.Stage stage : PhotoPipeline.Stage.values()) {
+        long millis = job.stageMillis().getOrDefault(stage, 0L);
+        long bytes = job.stageBytes().getOrDefault(stage, -1L);
+        if (millis == 0 && bytes < 0) {
+          continue;
+        }
+        out.append(' ').append(stage.name().toLowerCase(Locale.ROOT)).append('=').append(millis).append("ms");
+        if (bytes >= 0) {
+          out.append('/').append(bytes).append('B');
+        }
+      }
+      if (job.failure() != null) {
+        out.append(" failed=").append(job.failure());
+      }
+      out.append('\n');
+    }
+    return out.toString();
+  }
+}
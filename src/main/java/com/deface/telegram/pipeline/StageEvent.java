@@ -0,0 +1,38 @@
+package com.deface.telegram.pipeline;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.deface.telegram.PipelineStage")
+@Label("Pipeline Stage")
+@Category({"Deface Telegram", "Pipeline"})
+@Description("One stage of a photo job, measured from permit acquisition to completion")
+final class StageEvent extends Event {
+  @Label("Ref Id")
+  String refId;
+
+  @Label("Chat Id")
+  long chatId;
+
+  @Label("Stage")
+  String stage;
+
+  @Label("Filter")
+  String filterName;
+
+  @Label("Paste Style")
+  String pasteStyle;
+
+  @Label("Bytes")
+  @DataAmount
+  long bytes;
+
+  @Label("Permit Wait")
+  @Timespan
+  long waitNanos;
+}
@@ -0,0 +1,52 @@
+package com.deface.telegram.pipeline;
+
+import java.util.concurrent.TimeUnit;
+
+final class TokenBucket {
+  private final double capacity;
+  private final double tokensPerNano;
+  private double tokens;
+  private long lastRefillNanos;
+
+  TokenBucket(double capacity, double tokensPerSecond, long nowNanos) {
+    this.capacity = capacity;
+    this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+    this.tokens = capacity;
+    this.lastRefillNanos = nowNanos;
+  }
+
+  boolean tryAcquire(long nowNanos) {
+    return tryAcquire(nowNanos, 1);
+  }
+
+  synchronized boolean tryAcquire(long nowNanos, int permits) {
+    refill(nowNanos);
+    if (tokens < 1.0) {
+      return false;
+    }
+    tokens -= permits;
+    return true;
+  }
+
+  synchronized void refund(int permits) {
+    tokens = Math.min(capacity, tokens + permits);
+  }
+
+  synchronized double available(long nowNanos) {
+    refill(nowNanos);
+    return tokens;
+  }
+
+  synchronized boolean isFull(long nowNanos) {
+    refill(nowNanos);
+    return tokens >= capacity;
+  }
+
+  private void refill(long nowNanos) {
+    long elapsed = nowNanos - lastRefillNanos;
+    if (elapsed > 0) {
+      tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+      lastRefillNanos = nowNanos;
+    }
+  }
+}
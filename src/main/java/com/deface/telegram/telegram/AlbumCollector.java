@@ -0,0 +1,121 @@
+package com.deface.telegram.telegram;
+
+import org.telegram.telegrambots.meta.api.objects.Message;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+final class AlbumCollector implements AutoCloseable {
+  static final int MAX_ALBUM_SIZE = 10;
+
+  private final long windowMillis;
+  private final Function<List<Message>, CompletableFuture<Void>> onAlbum;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Map<String, Pending> albums = new HashMap<>();
+  private final ScheduledExecutorService timer;
+
+  AlbumCollector(Duration window, Function<List<Message>, CompletableFuture<Void>> onAlbum) {
+    this.windowMillis = Objects.requireNonNull(window, "window").toMillis();
+    this.onAlbum = Objects.requireNonNull(onAlbum, "onAlbum");
+    this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "album-collector");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  CompletableFuture<Void> add(Message message) {
+    String albumKey = message.getChatId() + ":" + message.getMediaGroupId();
+    Pending ready = null;
+    Pending pending;
+    lock.lock();
+    try {
+      pending = albums.computeIfAbsent(albumKey, key -> new Pending());
+      pending.messages.add(message);
+      if (pending.flush != null) {
+        pending.flush.cancel(false);
+      }
+      if (pending.messages.size() >= MAX_ALBUM_SIZE) {
+        albums.remove(albumKey);
+        ready = pending;
+      } else {
+        pending.flush = timer.schedule(() -> flush(albumKey, pending), windowMillis, TimeUnit.MILLISECONDS);
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (ready != null) {
+      deliver(ready);
+    }
+    return pending.done;
+  }
+
+  int pendingAlbums() {
+    lock.lock();
+    try {
+      return albums.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    timer.shutdownNow();
+    lock.lock();
+    try {
+      for (Pending pending : albums.values()) {
+        pending.done.cancel(false);
+      }
+      albums.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void flush(String albumKey, Pending expected) {
+    lock.lock();
+    try {
+      if (!albums.remove(albumKey, expected)) {
+        return;
+      }
+    } finally {
+      lock.unlock();
+    }
+    deliver(expected);
+  }
+
+  private void deliver(Pending pending) {
+    pending.messages.sort(Comparator.comparing(Message::getMessageId));
+    try {
+      onAlbum.apply(pending.messages).whenComplete((ignored, error) -> {
+        if (error != null) {
+          pending.done.completeExceptionally(error);
+        } else {
+          pending.done.complete(null);
+        }
+      });
+    } catch (RuntimeException e) {
+      pending.done.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  private static final class Pending {
+    private final List<Message> messages = new ArrayList<>();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private ScheduledFuture<?> flush;
+  }
+}
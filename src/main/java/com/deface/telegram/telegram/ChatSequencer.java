@@ -0,0 +1,55 @@
+package com.deface.telegram.telegram;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+public final class ChatSequencer {
+  private static final Logger logger = LoggerFactory.getLogger(ChatSequencer.class);
+
+  private final ConcurrentMap<Long, Tail> tails = new ConcurrentHashMap<>();
+
+  public CompletableFuture<Void> submit(long chatId, Runnable task, Executor executor) {
+    Objects.requireNonNull(task, "task");
+    return submit(chatId, null, () -> {
+      task.run();
+      return CompletableFuture.completedFuture(null);
+    }, executor).handle((ignored, error) -> {
+      if (error != null) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        logger.warn("Dropped update from chat {}: {}", chatId, cause.toString());
+      }
+      return null;
+    });
+  }
+
+  public CompletableFuture<Void> submit(long chatId, String group, Supplier<CompletableFuture<Void>> task,
+      Executor executor) {
+    Objects.requireNonNull(task, "task");
+    Objects.requireNonNull(executor, "executor");
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    Tail tail = tails.compute(chatId, (id, previous) -> {
+      if (previous == null) {
+        return new Tail(group, CompletableFuture.completedFuture(null), done);
+      }
+      if (group != null && group.equals(previous.group())) {
+        return new Tail(group, previous.ready(), CompletableFuture.allOf(previous.done(), done));
+      }
+      return new Tail(group, previous.done(), done);
+    });
+    CompletableFuture<Void> result = tail.ready().thenComposeAsync(ignored -> task.get(), executor);
+    result.whenComplete((ignored, error) -> done.complete(null));
+    tail.done().whenComplete((ignored, error) -> tails.remove(chatId, tail));
+    return result;
+  }
+
+  private record Tail(String group, CompletableFuture<Void> ready, CompletableFuture<Void> done) {
+  }
+}
@@ -0,0 +1,294 @@
+package com.deface.telegram.telegram;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+final class ChatSettingsJournal implements AutoCloseable {
+  private static final int SNAPSHOT_MAGIC = 0x43534e31;
+  private static final int STREAM_BUFFER_BYTES = 1 << 16;
+  private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+  private static final String SNAPSHOT_FILE = "chat-settings.snapshot";
+  private static final String LOG_PREFIX = "chat-settings-";
+  private static final String LOG_SUFFIX = ".log";
+  private static final Logger logger = LoggerFactory.getLogger(ChatSettingsJournal.class);
+
+  private final Path directory;
+  private final long segmentBytes;
+  private final SnapshotSource live;
+  private final ExecutorService compactor;
+  private FileChannel channel;
+  private MappedByteBuffer segment;
+  private long generation;
+
+  ChatSettingsJournal(Path directory, long segmentBytes, SnapshotSource live) {
+    this.directory = Objects.requireNonNull(directory, "directory");
+    this.segmentBytes = segmentBytes;
+    this.live = Objects.requireNonNull(live, "live");
+    this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "chat-settings-compactor");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  long replay(RecordConsumer consumer) throws IOException {
+    Files.createDirectories(directory);
+    long snapshotGeneration = readSnapshot(consumer);
+    long replayed = 0;
+    long lastGeneration = snapshotGeneration;
+    boolean replayedLogs = false;
+    for (long logGeneration : logGenerations()) {
+      if (logGeneration < snapshotGeneration) {
+        Files.deleteIfExists(logPath(logGeneration));
+        continue;
+      }
+      replayed += replayLog(logPath(logGeneration), consumer);
+      lastGeneration = Math.max(lastGeneration, logGeneration);
+      replayedLogs = true;
+    }
+    generation = lastGeneration + 1;
+    openSegment(generation);
+    if (replayedLogs) {
+      scheduleCompaction(generation);
+    }
+    return replayed;
+  }
+
+  void append(long chatId, String filterName, String pasteStyle) {
+    if (segment == null) {
+      return;
+    }
+    byte[] filter = filterName.getBytes(StandardCharsets.UTF_8);
+    byte[] paste = pasteStyle.getBytes(StandardCharsets.UTF_8);
+    int payloadLength = Long.BYTES + Short.BYTES + filter.length + Short.BYTES + paste.length;
+    try {
+      if (segment.remaining() < RECORD_HEADER_BYTES + payloadLength) {
+        roll();
+      }
+      int start = segment.position();
+      segment.position(start + RECORD_HEADER_BYTES);
+      segment.putLong(chatId)
+          .putShort((short) filter.length).put(filter)
+          .putShort((short) paste.length).put(paste);
+      CRC32 crc = new CRC32();
+      crc.update(segment.slice(start + RECORD_HEADER_BYTES, payloadLength));
+      segment.putInt(start + Integer.BYTES, (int) crc.getValue());
+      segment.putInt(start, payloadLength);
+    } catch (IOException e) {
+      logger.warn("Failed to persist chat settings of chat {} to {}; the change is kept in memory only", chatId,
+          directory, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    compactor.shutdown();
+    try {
+      if (!compactor.awaitTermination(30, TimeUnit.SECONDS)) {
+        compactor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      compactor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    try {
+      closeSegment();
+    } catch (IOException e) {
+      logger.warn("Failed to close chat settings log in {}", directory, e);
+    }
+  }
+
+  private void roll() throws IOException {
+    FileChannel previousChannel = channel;
+    MappedByteBuffer previousSegment = segment;
+    openSegment(generation + 1);
+    generation++;
+    try {
+      previousSegment.force();
+      previousChannel.close();
+    } catch (IOException e) {
+      logger.warn("Failed to close chat settings log generation {} in {}", generation - 1, directory, e);
+    }
+    scheduleCompaction(generation);
+  }
+
+  private void openSegment(long logGeneration) throws IOException {
+    FileChannel opened = FileChannel.open(logPath(logGeneration),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      segment = opened.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+    } catch (IOException e) {
+      opened.close();
+      throw e;
+    }
+    channel = opened;
+  }
+
+  private void closeSegment() throws IOException {
+    if (segment == null) {
+      return;
+    }
+    segment.force();
+    segment = null;
+    channel.close();
+    channel = null;
+  }
+
+  private void scheduleCompaction(long snapshotGeneration) {
+    compactor.execute(() -> {
+      try {
+        long started = System.nanoTime();
+        int entries = writeSnapshot(snapshotGeneration);
+        for (long logGeneration : logGenerations()) {
+          if (logGeneration < snapshotGeneration) {
+            Files.deleteIfExists(logPath(logGeneration));
+          }
+        }
+        logger.info("Compacted {} chat settings into snapshot generation {} in {} ms", entries,
+            snapshotGeneration, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+      } catch (IOException e) {
+        logger.warn("Failed to compact chat settings in {}", directory, e);
+      }
+    });
+  }
+
+  private int writeSnapshot(long snapshotGeneration) throws IOException {
+    Path snapshot = directory.resolve(SNAPSHOT_FILE);
+    Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+    int[] entries = new int[1];
+    try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      OutputStream stream = Channels.newOutputStream(tempChannel);
+      DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, STREAM_BUFFER_BYTES));
+      output.writeInt(SNAPSHOT_MAGIC);
+      output.writeLong(snapshotGeneration);
+      try {
+        live.forEach((chatId, filterName, pasteStyle) -> {
+          try {
+            output.writeBoolean(true);
+            output.writeLong(chatId);
+            output.writeUTF(filterName);
+            output.writeUTF(pasteStyle);
+            entries[0]++;
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      output.writeBoolean(false);
+      output.flush();
+      tempChannel.force(true);
+    }
+    Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return entries[0];
+  }
+
+  private long readSnapshot(RecordConsumer consumer) throws IOException {
+    Path snapshot = directory.resolve(SNAPSHOT_FILE);
+    if (!Files.exists(snapshot)) {
+      return 0;
+    }
+    try (InputStream stream = Files.newInputStream(snapshot)) {
+      DataInputStream input = new DataInputStream(new BufferedInputStream(stream, STREAM_BUFFER_BYTES));
+      if (input.readInt() != SNAPSHOT_MAGIC) {
+        throw new IOException("Unrecognized chat settings snapshot " + snapshot);
+      }
+      long snapshotGeneration = input.readLong();
+      while (input.readBoolean()) {
+        consumer.accept(input.readLong(), input.readUTF(), input.readUTF());
+      }
+      return snapshotGeneration;
+    }
+  }
+
+  private long replayLog(Path log, RecordConsumer consumer) throws IOException {
+    long replayed = 0;
+    try (FileChannel logChannel = FileChannel.open(log, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = logChannel.map(FileChannel.MapMode.READ_ONLY, 0, logChannel.size());
+      CRC32 crc = new CRC32();
+      while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+        int payloadLength = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (payloadLength <= 0 || payloadLength > buffer.remaining()) {
+          break;
+        }
+        ByteBuffer payload = buffer.slice(buffer.position(), payloadLength);
+        crc.reset();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) {
+          logger.warn("Stopping replay of {} at a torn record", log);
+          break;
+        }
+        buffer.position(buffer.position() + payloadLength);
+        long chatId = payload.getLong();
+        String filterName = readName(payload);
+        String pasteStyle = readName(payload);
+        consumer.accept(chatId, filterName, pasteStyle);
+        replayed++;
+      }
+    }
+    return replayed;
+  }
+
+  private static String readName(ByteBuffer payload) {
+    byte[] bytes = new byte[Short.toUnsignedInt(payload.getShort())];
+    payload.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private List<Long> logGenerations() throws IOException {
+    List<Long> generations = new ArrayList<>();
+    try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, LOG_PREFIX + "*" + LOG_SUFFIX)) {
+      for (Path log : logs) {
+        String name = log.getFileName().toString();
+        try {
+          generations.add(Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length())));
+        } catch (NumberFormatException e) {
+          logger.warn("Ignoring unexpected file {}", log);
+        }
+      }
+    }
+    generations.sort(null);
+    return generations;
+  }
+
+  private Path logPath(long logGeneration) {
+    return directory.resolve(LOG_PREFIX + logGeneration + LOG_SUFFIX);
+  }
+
+  interface RecordConsumer {
+    void accept(long chatId, String filterName, String pasteStyle);
+  }
+
+  interface SnapshotSource {
+    void forEach(RecordConsumer consumer);
+  }
+}
@@ -1,50 +1,162 @@
 package com.deface.telegram.telegram;
 
 import com.deface.telegram.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
-public final class ChatSettingsStore {
-  private final ConcurrentMap<Long, ChatSettings> settingsByChat = new ConcurrentHashMap<>();
+public final class ChatSettingsStore implements AutoCloseable {
+  private static final int INDEX_BITS = 16;
+  private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+  private static final Logger logger = LoggerFactory.getLogger(ChatSettingsStore.class);
+
+  private final ChatSettingsTable settingsByChat = new ChatSettingsTable();
   private final AppConfig config;
+  private final List<String> filterNames;
+  private final List<String> pasteStyles;
+  private final ChatSettings[] combinations;
+  private final int defaultPacked;
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final ChatSettingsJournal journal;
 
   public ChatSettingsStore(AppConfig config) {
     this.config = Objects.requireNonNull(config, "config");
+    this.filterNames = config.getAllowedFilterNames();
+    this.pasteStyles = config.getAllowedPasteStyles();
+    if (filterNames.size() > INDEX_MASK || pasteStyles.size() > INDEX_MASK) {
+      throw new IllegalStateException("Too many allowed filter names or paste styles");
+    }
+    this.combinations = new ChatSettings[filterNames.size() * pasteStyles.size()];
+    for (int filter = 0; filter < filterNames.size(); filter++) {
+      for (int paste = 0; paste < pasteStyles.size(); paste++) {
+        combinations[filter * pasteStyles.size() + paste] =
+            new ChatSettings(filterNames.get(filter), pasteStyles.get(paste));
+      }
+    }
+    this.defaultPacked = pack(filterNames.indexOf(config.getDefaultFilterName()),
+        pasteStyles.indexOf(config.getDefaultPasteStyle()));
+    AppConfig.ChatSettingsStorage storage = config.getChatSettingsStorage();
+    this.journal = storage.persistence()
+        .map(directory -> openJournal(Path.of(directory), storage.logSegmentBytes()))
+        .orElse(null);
   }
 
-  public ChatSettings get(Long chatId) {
-    return settingsByChat.computeIfAbsent(chatId, id -> new ChatSettings(
-        config.getDefaultFilterName(),
-        config.getDefaultPasteStyle()
-    ));
+  public ChatSettings get(long chatId) {
+    return settingsFor(packedOf(chatId));
   }
 
-  public ChatSettings updateFilter(Long chatId, String filterName) {
-    if (!config.getAllowedFilterNames().contains(filterName)) {
+  public ChatSettings updateFilter(long chatId, String filterName) {
+    int filter = filterNames.indexOf(filterName);
+    if (filter < 0) {
       throw new IllegalArgumentException("Invalid filter. Allowed: "
           + String.join(", ", config.getAllowedFilterNames()));
     }
-    return settingsByChat.compute(chatId, (id, existing) -> {
-      ChatSettings current = existing == null
-          ? new ChatSettings(config.getDefaultFilterName(), config.getDefaultPasteStyle())
-          : existing;
-      return new ChatSettings(filterName, current.pasteStyle());
-    });
+    writeLock.lock();
+    try {
+      return update(chatId, pack(filter, pasteIndex(packedOf(chatId))));
+    } finally {
+      writeLock.unlock();
+    }
   }
 
-  public ChatSettings updatePasteStyle(Long chatId, String pasteStyle) {
-    if (!config.getAllowedPasteStyles().contains(pasteStyle)) {
+  public ChatSettings updatePasteStyle(long chatId, String pasteStyle) {
+    int paste = pasteStyles.indexOf(pasteStyle);
+    if (paste < 0) {
       throw new IllegalArgumentException("Invalid paste style. Allowed: "
           + String.join(", ", config.getAllowedPasteStyles()));
     }
-    return settingsByChat.compute(chatId, (id, existing) -> {
-      ChatSettings current = existing == null
-          ? new ChatSettings(config.getDefaultFilterName(), config.getDefaultPasteStyle())
-          : existing;
-      return new ChatSettings(current.filterName(), pasteStyle);
-    });
+    writeLock.lock();
+    try {
+      return update(chatId, pack(filterIndex(packedOf(chatId)), paste));
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  public int size() {
+    return settingsByChat.size();
+  }
+
+  @Override
+  public void close() {
+    if (journal == null) {
+      return;
+    }
+    writeLock.lock();
+    try {
+      journal.close();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private ChatSettings update(long chatId, int packed) {
+    apply(chatId, packed);
+    ChatSettings updated = settingsFor(packed);
+    if (journal != null) {
+      journal.append(chatId, updated.filterName(), updated.pasteStyle());
+    }
+    return updated;
+  }
+
+  private void apply(long chatId, int packed) {
+    if (packed == defaultPacked) {
+      settingsByChat.remove(chatId);
+    } else {
+      settingsByChat.put(chatId, packed);
+    }
+  }
+
+  private int packedOf(long chatId) {
+    int packed = settingsByChat.get(chatId);
+    return packed < 0 ? defaultPacked : packed;
+  }
+
+  private ChatSettings settingsFor(int packed) {
+    return combinations[filterIndex(packed) * pasteStyles.size() + pasteIndex(packed)];
+  }
+
+  private ChatSettingsJournal openJournal(Path directory, long segmentBytes) {
+    ChatSettingsJournal opened = new ChatSettingsJournal(directory, segmentBytes,
+        consumer -> settingsByChat.forEach((chatId, packed) -> {
+          ChatSettings settings = settingsFor(packed);
+          consumer.accept(chatId, settings.filterName(), settings.pasteStyle());
+        }));
+    long started = System.nanoTime();
+    try {
+      long replayed = opened.replay((chatId, filterName, pasteStyle) -> apply(chatId, pack(
+          indexOrDefault(filterNames, filterName, filterIndex(defaultPacked)),
+          indexOrDefault(pasteStyles, pasteStyle, pasteIndex(defaultPacked)))));
+      logger.info("Loaded settings for {} chats from {} ({} log records) in {} ms", settingsByChat.size(),
+          directory, replayed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    } catch (IOException e) {
+      opened.close();
+      throw new IllegalStateException("Failed to load chat settings from " + directory, e);
+    }
+    return opened;
+  }
+
+  private static int indexOrDefault(List<String> allowed, String value, int fallback) {
+    int index = allowed.indexOf(value);
+    return index < 0 ? fallback : index;
+  }
+
+  private static int pack(int filterIndex, int pasteIndex) {
+    return filterIndex << INDEX_BITS | pasteIndex;
+  }
+
+  private static int filterIndex(int packed) {
+    return packed >>> INDEX_BITS;
+  }
+
+  private static int pasteIndex(int packed) {
+    return packed & INDEX_MASK;
   }
 
   public record ChatSettings(String filterName, String pasteStyle) {
@@ -0,0 +1,187 @@
+package com.deface.telegram.telegram;
+
+import java.util.concurrent.locks.StampedLock;
+
+final class ChatSettingsTable {
+  private static final int EMPTY = 0;
+  private static final int TOMBSTONE = -1;
+  private static final int MIN_CAPACITY = 16;
+  private static final int ITERATION_CHUNK = 4096;
+
+  private final StampedLock lock = new StampedLock();
+  private long[] keys;
+  private int[] values;
+  private int size;
+  private int tombstones;
+
+  ChatSettingsTable() {
+    keys = new long[MIN_CAPACITY];
+    values = new int[MIN_CAPACITY];
+  }
+
+  int get(long key) {
+    long stamp = lock.tryOptimisticRead();
+    int value = find(keys, values, key);
+    if (lock.validate(stamp)) {
+      return value;
+    }
+    stamp = lock.readLock();
+    try {
+      return find(keys, values, key);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  void put(long key, int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("value must be non-negative");
+    }
+    long stamp = lock.writeLock();
+    try {
+      if ((size + tombstones + 1) * 4L > keys.length * 3L) {
+        rehash();
+      }
+      int mask = keys.length - 1;
+      int firstTombstone = -1;
+      for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+        int stored = values[slot];
+        if (stored == EMPTY) {
+          if (firstTombstone >= 0) {
+            slot = firstTombstone;
+            tombstones--;
+          }
+          keys[slot] = key;
+          values[slot] = value + 1;
+          size++;
+          return;
+        }
+        if (stored == TOMBSTONE) {
+          if (firstTombstone < 0) {
+            firstTombstone = slot;
+          }
+        } else if (keys[slot] == key) {
+          values[slot] = value + 1;
+          return;
+        }
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  boolean remove(long key) {
+    long stamp = lock.writeLock();
+    try {
+      int slot = slotOf(keys, values, key);
+      if (slot < 0) {
+        return false;
+      }
+      values[slot] = TOMBSTONE;
+      size--;
+      tombstones++;
+      return true;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  int size() {
+    long stamp = lock.readLock();
+    try {
+      return size;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  void forEach(EntryConsumer consumer) {
+    long[] chunkKeys = new long[ITERATION_CHUNK];
+    int[] chunkValues = new int[ITERATION_CHUNK];
+    long[] iterated = null;
+    int slot = 0;
+    while (true) {
+      int count = 0;
+      long stamp = lock.readLock();
+      try {
+        if (keys != iterated) {
+          iterated = keys;
+          slot = 0;
+        }
+        int end = Math.min(slot + ITERATION_CHUNK, keys.length);
+        for (; slot < end; slot++) {
+          if (values[slot] > EMPTY) {
+            chunkKeys[count] = keys[slot];
+            chunkValues[count++] = values[slot] - 1;
+          }
+        }
+      } finally {
+        lock.unlockRead(stamp);
+      }
+      for (int i = 0; i < count; i++) {
+        consumer.accept(chunkKeys[i], chunkValues[i]);
+      }
+      if (slot >= iterated.length) {
+        return;
+      }
+    }
+  }
+
+  private void rehash() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    int capacity = MIN_CAPACITY;
+    while ((size + 1) * 2L > capacity) {
+      capacity <<= 1;
+    }
+    long[] newKeys = new long[capacity];
+    int[] newValues = new int[capacity];
+    int mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] > EMPTY) {
+        int slot = hash(oldKeys[i]) & mask;
+        while (newValues[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        newKeys[slot] = oldKeys[i];
+        newValues[slot] = oldValues[i];
+      }
+    }
+    keys = newKeys;
+    values = newValues;
+    tombstones = 0;
+  }
+
+  private static int find(long[] keys, int[] values, long key) {
+    int slot = slotOf(keys, values, key);
+    return slot < 0 ? -1 : values[slot] - 1;
+  }
+
+  private static int slotOf(long[] keys, int[] values, long key) {
+    int mask = keys.length - 1;
+    if (values.length != keys.length) {
+      return -1;
+    }
+    int slot = hash(key) & mask;
+    for (int probes = 0; probes < keys.length; probes++) {
+      int stored = values[slot];
+      if (stored == EMPTY) {
+        return -1;
+      }
+      if (stored != TOMBSTONE && keys[slot] == key) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  interface EntryConsumer {
+    void accept(long key, int value);
+  }
+}
@@ -1,52 +1,139 @@
 package com.deface.telegram.telegram;
 
+import com.deface.telegram.cache.DefaceResultCache;
+import com.deface.telegram.cache.ResultKey;
+import com.deface.telegram.cache.SentFileIdStore;
+import com.deface.telegram.cache.SingleFlight;
 import com.deface.telegram.config.AppConfig;
+import com.deface.telegram.deface.CircuitOpenException;
 import com.deface.telegram.deface.DefaceClient;
+import com.deface.telegram.deface.DefaceStatusException;
+import com.deface.telegram.image.ImageDownscaler;
+import com.deface.telegram.metrics.LatencyHistogram;
+import com.deface.telegram.metrics.MetricsRegistry;
+import com.deface.telegram.pipeline.AdmissionController;
+import com.deface.telegram.pipeline.ExecutionLane;
+import com.deface.telegram.pipeline.JobTrace;
+import com.deface.telegram.pipeline.PhotoPipeline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
-import org.telegram.telegrambots.meta.api.methods.send.SendPhoto;
-import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.Document;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.PhotoSize;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.net.URI;
-import java.net.URLEncoder;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
-import java.time.Duration;
-import java.util.Comparator;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 public final class DefaceTelegramBot extends TelegramLongPollingBot {
-  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
-  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(20);
-  private static final Pattern FILE_PATH_PATTERN = Pattern.compile("\"file_path\"\\s*:\\s*\"([^\"]+)\"");
+  private static final int MAX_MESSAGE_LENGTH = 4096;
   private static final Logger logger = LoggerFactory.getLogger(DefaceTelegramBot.class);
 
   private final AppConfig config;
   private final DefaceClient defaceClient;
   private final ChatSettingsStore settingsStore;
-  private final HttpClient httpClient;
+  private final PhotoPipeline pipeline;
+  private final DefaceResultCache resultCache;
+  private final SentFileIdStore sentFileIds;
+  private final TelegramFileClient fileClient;
+  private final AdmissionController admission;
+  private final ExecutionLane commandLane;
+  private final TelegramReplySender replySender;
+  private final PhotoRouter photoRouter;
+  private final ChatSequencer chatOrder = new ChatSequencer();
+  private final TelegramUploadClient uploads;
+  private final SingleFlight<ResultKey, byte[]> inFlightResults = new SingleFlight<>();
+  private final AlbumCollector albums;
+  private final PhotoSelector photoSelector;
+  private final ImageDownscaler downscaler;
+  private final DocumentSpool documents;
+  private final Map<ChatSettingsStore.ChatSettings, LatencyHistogram> defaceDurations = new HashMap<>();
+  private final Map<ErrorCause, LongAdder> errors = new EnumMap<>(ErrorCause.class);
+  private final LongAdder bytesIn;
+  private final LongAdder bytesOut;
+  private final LongAdder documentSpills;
+  private final AtomicBoolean responded = new AtomicBoolean();
+  private volatile double firstResponseSeconds = Double.NaN;
 
-  public DefaceTelegramBot(AppConfig config, DefaceClient defaceClient, ChatSettingsStore settingsStore) {
-    this.config = Objects.requireNonNull(config, "config");
+  public DefaceTelegramBot(
+      AppConfig config,
+      DefaceClient defaceClient,
+      ChatSettingsStore settingsStore,
+      PhotoPipeline pipeline,
+      DefaceResultCache resultCache,
+      SentFileIdStore sentFileIds,
+      TelegramFileClient fileClient,
+      AdmissionController admission,
+      ExecutionLane commandLane,
+      TelegramReplySender replySender,
+      PhotoRouter photoRouter,
+      MetricsRegistry metrics
+  ) {
+    super(TelegramOptions.create(Objects.requireNonNull(config, "config")), config.getTelegramBotToken());
+    this.config = config;
     this.defaceClient = Objects.requireNonNull(defaceClient, "defaceClient");
     this.settingsStore = Objects.requireNonNull(settingsStore, "settingsStore");
-    this.httpClient = HttpClient.newBuilder()
-        .connectTimeout(CONNECT_TIMEOUT)
-        .build();
+    this.pipeline = Objects.requireNonNull(pipeline, "pipeline");
+    this.resultCache = Objects.requireNonNull(resultCache, "resultCache");
+    this.sentFileIds = Objects.requireNonNull(sentFileIds, "sentFileIds");
+    this.fileClient = Objects.requireNonNull(fileClient, "fileClient");
+    this.admission = Objects.requireNonNull(admission, "admission");
+    this.commandLane = Objects.requireNonNull(commandLane, "commandLane");
+    this.replySender = Objects.requireNonNull(replySender, "replySender");
+    this.photoRouter = Objects.requireNonNull(photoRouter, "photoRouter");
+    this.uploads = new TelegramUploadClient(config);
+    this.albums = new AlbumCollector(config.getAlbumCollectWindow(), this::submitAlbum);
+    this.photoSelector = new PhotoSelector(config.getPhotoSizing());
+    this.downscaler = new ImageDownscaler(config.getPhotoSizing().downscaleMaxDimension(),
+        config.getPhotoSizing().jpegQuality());
+    this.documents = new DocumentSpool(config.getDocumentSettings());
+    Objects.requireNonNull(metrics, "metrics");
+    for (String filterName : config.getAllowedFilterNames()) {
+      for (String pasteStyle : config.getAllowedPasteStyles()) {
+        defaceDurations.put(new ChatSettingsStore.ChatSettings(filterName, pasteStyle),
+            metrics.histogram("deface_bot_deface_duration_seconds", "Deface API call time by filter and paste style",
+                "filter", filterName, "paste", pasteStyle));
+      }
+    }
+    for (ErrorCause cause : ErrorCause.values()) {
+      errors.put(cause, metrics.counter("deface_bot_errors_total", "Failed photo jobs and replies by cause",
+          "cause", cause.name().toLowerCase(Locale.ROOT)));
+    }
+    this.bytesIn = metrics.counter("deface_bot_bytes_total", "Image bytes downloaded from and uploaded to Telegram",
+        "direction", "in");
+    this.bytesOut = metrics.counter("deface_bot_bytes_total", "Image bytes downloaded from and uploaded to Telegram",
+        "direction", "out");
+    this.documentSpills = metrics.counter("deface_bot_document_spills_total",
+        "Image documents processed through temp files instead of the heap");
+    metrics.gauge("deface_bot_document_memory_bytes", "Heap bytes reserved by in-flight image documents",
+        documents::reservedBytes);
+    metrics.gauge("deface_bot_first_response_seconds", "Time from process start to the first processed image sent",
+        () -> firstResponseSeconds);
   }
 
   @Override
@@ -58,24 +145,60 @@ public final class DefaceTelegramBot extends TelegramLongPollingBot {
     Message message = update.getMessage();
     if (message.hasText()) {
       logger.info("Received text message from chat {}", message.getChatId());
-      handleCommand(message);
+      chatOrder.submit(message.getChatId(), () -> handleCommand(message), commandLane);
       return;
     }
 
     if (message.hasPhoto()) {
       logger.info("Received photo message from chat {}", message.getChatId());
-      handlePhoto(message);
+      chatOrder.submit(message.getChatId(), PhotoRouter.albumGroup(message), () -> routePhoto(update),
+          Runnable::run);
+    } else if (DocumentSpool.isImageDocument(message)) {
+      logger.info("Received image document from chat {}", message.getChatId());
+      chatOrder.submit(message.getChatId(), null, () -> routePhoto(update), Runnable::run);
     }
   }
 
-  @Override
-  public String getBotUsername() {
-    return config.getTelegramBotUsername().orElse("");
+  private CompletableFuture<Void> routePhoto(Update update) {
+    Long chatId = update.getMessage().getChatId();
+    ChatSettingsStore.ChatSettings settings = settingsStore.get(chatId);
+    CompletableFuture<Void> routed = photoRouter.route(update, settings, next -> processPhoto(next, settings))
+        .whenComplete((ignored, error) -> {
+          if (error != null && error.getCause() instanceof PhotoLostException) {
+            commandLane.tryExecute(() -> reply(chatId, "Something went wrong while processing that image. "
+                + "If you don't receive it shortly, please send it again."));
+          }
+        });
+    return PhotoRouter.albumGroup(update.getMessage()) == null ? CompletableFuture.completedFuture(null) : routed;
+  }
+
+  public CompletableFuture<Void> processForwarded(Update update, ChatSettingsStore.ChatSettings settings) {
+    Message message = update.getMessage();
+    if (message == null || !(message.hasPhoto() || DocumentSpool.isImageDocument(message))) {
+      throw new IllegalArgumentException("Forwarded update has no photo or image document");
+    }
+    long chatId = message.getChatId();
+    ChatSettingsStore.ChatSettings current = settingsStore.get(chatId);
+    if (!current.filterName().equals(settings.filterName())) {
+      settingsStore.updateFilter(chatId, settings.filterName());
+    }
+    if (!current.pasteStyle().equals(settings.pasteStyle())) {
+      settingsStore.updatePasteStyle(chatId, settings.pasteStyle());
+    }
+    return processPhoto(update, settings);
+  }
+
+  private CompletableFuture<Void> processPhoto(Update update, ChatSettingsStore.ChatSettings settings) {
+    Message message = update.getMessage();
+    if (PhotoRouter.albumGroup(message) != null) {
+      return albums.add(message);
+    }
+    return submitPhoto(message, settings);
   }
 
   @Override
-  public String getBotToken() {
-    return config.getTelegramBotToken();
+  public String getBotUsername() {
+    return config.getTelegramBotUsername().orElse("");
   }
 
   private void handleCommand(Message message) {
@@ -99,8 +222,24 @@ public final class DefaceTelegramBot extends TelegramLongPollingBot {
 
     if ("/status".equals(command)) {
       ChatSettingsStore.ChatSettings settings = settingsStore.get(message.getChatId());
+      DefaceResultCache.Stats cacheStats = resultCache.stats();
+      AdmissionController.Snapshot admissionState = admission.snapshot();
       reply(message.getChatId(), "Filter: " + settings.filterName()
-          + "\nPaste style: " + settings.pasteStyle());
+          + "\nPaste style: " + settings.pasteStyle()
+          + "\nResult cache: " + cacheStats.hits() + " hits, " + cacheStats.misses() + " misses"
+          + "\nQueue: " + admissionState.queuedJobs() + "/" + admissionState.queueCapacity() + " jobs, "
+          + admissionState.admitted() + " admitted, " + admissionState.rejected() + " rejected"
+          + "\n" + describeLane(commandLane.stats())
+          + "\n" + describeLane(pipeline.laneStats()));
+      return;
+    }
+
+    if ("/slowjobs".equals(command)
+        && config.getSlowJobSettings().adminChatIds().contains(message.getChatId())) {
+      String dump = pipeline.slowJobs().dump(true);
+      reply(message.getChatId(), dump.length() > MAX_MESSAGE_LENGTH
+          ? dump.substring(0, MAX_MESSAGE_LENGTH - 1) + "…"
+          : dump);
       return;
     }
 
@@ -134,102 +273,500 @@ public final class DefaceTelegramBot extends TelegramLongPollingBot {
     }
   }
 
-  private void handlePhoto(Message message) {
+  private CompletableFuture<Void> submitPhoto(Message message, ChatSettingsStore.ChatSettings settings) {
     Long chatId = message.getChatId();
-    Optional<PhotoSize> bestPhoto = selectBestPhoto(message.getPhoto());
+    if (!admit(chatId, 1)) {
+      return CompletableFuture.completedFuture(null);
+    }
+    Runnable job = message.hasDocument()
+        ? () -> handleDocument(message, settings)
+        : () -> handlePhoto(message, settings);
+    return pipeline.submit(chatId, job)
+        .whenComplete((ignored, error) -> finishJob(chatId, error));
+  }
+
+  private CompletableFuture<Void> submitAlbum(List<Message> messages) {
+    Long chatId = messages.get(0).getChatId();
+    logger.info("Collected album of {} photos from chat {}", messages.size(), chatId);
+    if (!admit(chatId, messages.size())) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return pipeline.submit(chatId, () -> handleAlbum(chatId, messages))
+        .whenComplete((ignored, error) -> finishJob(chatId, error));
+  }
+
+  private void finishJob(Long chatId, Throwable error) {
+    admission.release();
+    if (error != null) {
+      logger.warn("Photo job for chat {} was not run: {}", chatId, error.toString());
+      commandLane.tryExecute(() -> reply(chatId, "I'm busy right now. Please try again later."));
+    }
+  }
+
+  private boolean admit(Long chatId, int photos) {
+    AdmissionController.Decision decision = admission.tryAdmit(chatId, photos);
+    if (decision == AdmissionController.Decision.ADMITTED) {
+      return true;
+    }
+    logger.warn("Rejected photo from chat {}: {}", chatId, decision);
+    String text = decision == AdmissionController.Decision.CHAT_RATE_LIMITED
+        ? "You're sending photos faster than I can handle. Please wait a moment and try again."
+        : "I'm busy right now. Please try again later.";
+    commandLane.tryExecute(() -> reply(chatId, text));
+    return false;
+  }
+
+  private void handlePhoto(Message message, ChatSettingsStore.ChatSettings settings) {
+    Long chatId = message.getChatId();
+    Optional<PhotoSize> bestPhoto = photoSelector.select(message.getPhoto());
     if (bestPhoto.isEmpty()) {
       reply(chatId, "I couldn't read that photo. Please try again.");
       return;
     }
 
     try {
-      logger.info("Downloading Telegram file for chat {}", chatId);
-      byte[] originalImage = downloadTelegramFile(bestPhoto.get().getFileId());
-      ChatSettingsStore.ChatSettings settings = settingsStore.get(chatId);
-      logger.info("Calling deface API for chat {} filter={} paste={}", chatId, settings.filterName(),
-          settings.pasteStyle());
-      byte[] processedImage = defaceClient.defaceImage(originalImage, settings.filterName(), settings.pasteStyle());
-      sendPhoto(chatId, processedImage);
+      PhotoSize photo = bestPhoto.get();
+      JobTrace.describe(settings.filterName(), settings.pasteStyle());
+      ResultKey key = resultKey(photo, settings, config.isStreamingEnabled());
+      if (key != null && resendKnownResult(chatId, key)) {
+        logger.info("Re-sent processed image by file_id for chat {}", chatId);
+        return;
+      }
+      if (config.isStreamingEnabled()) {
+        streamPhoto(chatId, photo, settings, key);
+        logger.info("Processed image streamed for chat {}", chatId);
+        return;
+      }
+      Optional<PhotoSize> preview = previewFor(message.getPhoto(), photo, settings);
+      if (preview.isPresent()) {
+        deliverWithPreview(chatId, preview.get(), photo, settings, key);
+        logger.info("Processed image sent after preview for chat {}", chatId);
+        return;
+      }
+      byte[] processedImage = processedBytes(chatId, photo, settings, key);
+      Message sent = pipeline.stage(PhotoPipeline.Stage.UPLOAD,
+          () -> sendPhoto(chatId, upload(processedImage, "processed.jpg")));
+      if (key != null) {
+        rememberSentFileId(key, sent);
+      }
       logger.info("Processed image sent for chat {}", chatId);
     } catch (Exception e) {
-      String refId = java.util.UUID.randomUUID().toString();
+      recordError(e);
+      String refId = JobTrace.markFailed(e);
       logger.error("Failed to process image for chat {} refId={}", chatId, refId, e);
       reply(chatId, "Sorry, I couldn't process that image right now. Ref: " + refId);
     }
   }
 
-  private Optional<PhotoSize> selectBestPhoto(List<PhotoSize> photos) {
-    if (photos == null || photos.isEmpty()) {
+  private Optional<PhotoSize> previewFor(List<PhotoSize> photos, PhotoSize photo,
+      ChatSettingsStore.ChatSettings settings) {
+    AppConfig.PreviewSettings previewSettings = config.getPreviewSettings();
+    if (!previewSettings.enabled()) {
+      return Optional.empty();
+    }
+    Optional<PhotoSize> preview = PhotoSelector.preview(photos, previewSettings.targetPixels())
+        .filter(candidate -> !Objects.equals(candidate.getFileUniqueId(), photo.getFileUniqueId()));
+    if (preview.isEmpty()) {
       return Optional.empty();
     }
-    return photos.stream().max(Comparator.comparingLong(this::scorePhoto));
+    long defaceMillis = defaceClient.expectedLatencyMillis(settings.filterName(), expectedBytes(photo));
+    if (defaceMillis < 0) {
+      return preview;
+    }
+    long predictedMillis = defaceMillis + Math.max(0, fileClient.expectedDownloadMillis(expectedBytes(photo)));
+    return predictedMillis < previewSettings.skipBelow().toMillis() ? Optional.empty() : preview;
   }
 
-  private long scorePhoto(PhotoSize photo) {
-    Integer fileSize = photo.getFileSize();
-    if (fileSize != null) {
-      return fileSize;
+  private void deliverWithPreview(Long chatId, PhotoSize previewPhoto, PhotoSize photo,
+      ChatSettingsStore.ChatSettings settings, ResultKey key) throws Exception {
+    Optional<Future<byte[]>> full = pipeline.tryFork(() -> processedBytes(chatId, photo, settings, key));
+    Message previewMessage = null;
+    byte[] processedImage;
+    if (full.isEmpty()) {
+      logger.info("Photo lane has no free slot; skipping the preview for chat {}", chatId);
+      processedImage = processedBytes(chatId, photo, settings, key);
+    } else {
+      try {
+        ResultKey previewKey = resultKey(previewPhoto, settings, false);
+        byte[] previewImage = processedBytes(chatId, previewPhoto, settings, previewKey);
+        if (!full.get().isDone()) {
+          previewMessage = pipeline.stage(PhotoPipeline.Stage.UPLOAD,
+              () -> sendPhoto(chatId, upload(previewImage, "preview.jpg")));
+          logger.info("Sent preview for chat {}", chatId);
+        }
+      } catch (Exception e) {
+        logger.warn("Failed to deliver preview for chat {}; waiting for full result", chatId, e);
+      }
+      try {
+        processedImage = full.get().get();
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof Exception cause ? cause : e;
+      }
+    }
+    if (previewMessage != null && config.getPreviewSettings().replace()) {
+      Integer previewId = previewMessage.getMessageId();
+      try {
+        Optional<Message> edited = pipeline.stage(PhotoPipeline.Stage.UPLOAD,
+            () -> replacePhoto(chatId, previewId, processedImage));
+        if (key != null && edited.isPresent()) {
+          rememberSentFileId(key, edited.get());
+        }
+        return;
+      } catch (TelegramApiException e) {
+        logger.warn("Failed to replace preview for chat {}; sending full result separately", chatId, e);
+      }
     }
-    Integer width = photo.getWidth();
-    Integer height = photo.getHeight();
-    if (width == null || height == null) {
-      return 0;
+    Message sent = pipeline.stage(PhotoPipeline.Stage.UPLOAD,
+        () -> sendPhoto(chatId, upload(processedImage, "processed.jpg")));
+    if (key != null) {
+      rememberSentFileId(key, sent);
     }
-    return (long) width * height;
   }
 
-  private byte[] downloadTelegramFile(String fileId) throws IOException, InterruptedException {
-    String filePath = fetchFilePath(fileId);
-    String url = "https://api.telegram.org/file/bot" + config.getTelegramBotToken() + "/" + filePath;
-    HttpRequest request = HttpRequest.newBuilder(URI.create(url))
-        .timeout(REQUEST_TIMEOUT)
-        .GET()
-        .build();
+  private Optional<Message> replacePhoto(Long chatId, Integer messageId, byte[] image)
+      throws TelegramApiException {
+    return delivered(uploads.editMessageMedia(chatId, messageId, upload(image, "processed.jpg")));
+  }
+
+  private void handleAlbum(Long chatId, List<Message> messages) {
+    ChatSettingsStore.ChatSettings settings = settingsStore.get(chatId);
+    JobTrace.describe(settings.filterName(), settings.pasteStyle());
+    List<Future<AlbumItem>> pending = new ArrayList<>(messages.size());
+    try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (Message message : messages) {
+        pending.add(workers.submit(JobTrace.carry(() -> prepareAlbumItem(chatId, message, settings))));
+      }
+    }
+    String refId = JobTrace.current().map(JobTrace::refId).orElseGet(() -> java.util.UUID.randomUUID().toString());
+    List<AlbumItem> items = new ArrayList<>(pending.size());
+    for (Future<AlbumItem> item : pending) {
+      try {
+        items.add(item.get());
+      } catch (ExecutionException e) {
+        recordError(e.getCause());
+        JobTrace.markFailed(e.getCause());
+        logger.error("Failed to process album photo for chat {} refId={}", chatId, refId, e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    int failed = messages.size() - items.size();
+    try {
+      if (!items.isEmpty()) {
+        sendAlbum(chatId, items, settings);
+        logger.info("Processed album of {} photos sent for chat {}", items.size(), chatId);
+      }
+    } catch (Exception e) {
+      recordError(e);
+      JobTrace.markFailed(e);
+      logger.error("Failed to send album for chat {} refId={}", chatId, refId, e);
+      failed = messages.size();
+    }
+    if (failed == messages.size()) {
+      reply(chatId, "Sorry, I couldn't process those images right now. Ref: " + refId);
+    } else if (failed > 0) {
+      reply(chatId, "Sorry, I couldn't process " + failed + " of " + messages.size()
+          + " images right now. Ref: " + refId);
+    }
+  }
 
-    HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
-    if (response.statusCode() != 200) {
-      logger.error("Telegram file download failed with status {}", response.statusCode());
-      throw new IOException("Telegram file download failed with status " + response.statusCode());
+  private AlbumItem prepareAlbumItem(Long chatId, Message message, ChatSettingsStore.ChatSettings settings)
+      throws Exception {
+    PhotoSize photo = photoSelector.select(message.getPhoto())
+        .orElseThrow(() -> new IOException("Album message has no readable photo"));
+    ResultKey key = resultKey(photo, settings, false);
+    Optional<String> fileId = key == null ? Optional.empty() : sentFileIds.get(key);
+    if (fileId.isPresent()) {
+      return new AlbumItem(photo, key, fileId.get(), null);
     }
-    return response.body();
+    return new AlbumItem(photo, key, null, processedBytes(chatId, photo, settings, key));
   }
 
-  private String fetchFilePath(String fileId) throws IOException, InterruptedException {
-    String url = "https://api.telegram.org/bot" + config.getTelegramBotToken()
-        + "/getFile?file_id=" + URLEncoder.encode(fileId, StandardCharsets.UTF_8);
-    HttpRequest request = HttpRequest.newBuilder(URI.create(url))
-        .timeout(REQUEST_TIMEOUT)
-        .GET()
-        .build();
-    HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-    if (response.statusCode() != 200) {
-      logger.error("Telegram getFile failed with status {}", response.statusCode());
-      throw new IOException("Telegram getFile failed with status " + response.statusCode());
+  private void sendAlbum(Long chatId, List<AlbumItem> items, ChatSettingsStore.ChatSettings settings)
+      throws Exception {
+    List<AlbumItem> sentItems = items;
+    List<Message> sent;
+    try {
+      sent = pipeline.stage(PhotoPipeline.Stage.UPLOAD, () -> sendAlbumItems(chatId, items));
+    } catch (TelegramApiException e) {
+      if (!rejectsFileId(e) || items.stream().noneMatch(item -> item.fileId() != null)) {
+        throw e;
+      }
+      logger.warn("Telegram rejected remembered file_ids in album for chat {}; uploading again: {}", chatId,
+          e.getMessage());
+      List<AlbumItem> uploads = new ArrayList<>(items.size());
+      for (AlbumItem item : items) {
+        if (item.fileId() == null) {
+          uploads.add(item);
+          continue;
+        }
+        sentFileIds.remove(item.key());
+        uploads.add(new AlbumItem(item.photo(), item.key(), null,
+            processedBytes(chatId, item.photo(), settings, item.key())));
+      }
+      sentItems = uploads;
+      sent = pipeline.stage(PhotoPipeline.Stage.UPLOAD, () -> sendAlbumItems(chatId, uploads));
     }
-    Matcher matcher = FILE_PATH_PATTERN.matcher(response.body());
-    if (!matcher.find()) {
-      logger.error("Telegram getFile response missing file_path");
-      throw new IOException("Telegram getFile response missing file_path");
+    for (int i = 0; i < sentItems.size() && i < sent.size(); i++) {
+      AlbumItem item = sentItems.get(i);
+      if (item.key() != null && item.fileId() == null) {
+        rememberSentFileId(item.key(), sent.get(i));
+      }
     }
-    return matcher.group(1);
   }
 
-  private void sendPhoto(Long chatId, byte[] imageBytes) throws TelegramApiException {
-    InputFile inputFile = new InputFile(new ByteArrayInputStream(imageBytes), "processed.jpg");
-    SendPhoto sendPhoto = new SendPhoto(chatId.toString(), inputFile);
-    execute(sendPhoto);
+  private List<Message> sendAlbumItems(Long chatId, List<AlbumItem> items) throws TelegramApiException {
+    if (items.size() == 1) {
+      AlbumItem item = items.get(0);
+      TelegramUploadClient.Upload file = item.fileId() != null
+          ? TelegramUploadClient.Upload.fileId(item.fileId())
+          : upload(item.processed(), "processed.jpg");
+      return List.of(sendPhoto(chatId, file));
+    }
+    List<TelegramUploadClient.Upload> media = new ArrayList<>(items.size());
+    for (int i = 0; i < items.size(); i++) {
+      AlbumItem item = items.get(i);
+      media.add(item.fileId() != null
+          ? TelegramUploadClient.Upload.fileId(item.fileId())
+          : upload(item.processed(), "processed-" + i + ".jpg"));
+    }
+    return delivered(uploads.sendMediaGroup(chatId, media));
+  }
+
+  private byte[] processedBytes(Long chatId, PhotoSize photo, ChatSettingsStore.ChatSettings settings, ResultKey key)
+      throws Exception {
+    Optional<byte[]> cached = key == null ? Optional.empty() : resultCache.get(key);
+    if (cached.isPresent()) {
+      logger.info("Serving cached result for chat {} filter={} paste={}", chatId, settings.filterName(),
+          settings.pasteStyle());
+      return cached.get();
+    }
+    if (key == null) {
+      return defacePhoto(chatId, photo, settings);
+    }
+    return inFlightResults.execute(key, config.getSingleFlightWaitTimeout(), () -> {
+      byte[] result = defacePhoto(chatId, photo, settings);
+      resultCache.put(key, result);
+      return result;
+    });
+  }
+
+  private boolean resendKnownResult(Long chatId, ResultKey key) throws Exception {
+    Optional<String> fileId = sentFileIds.get(key);
+    if (fileId.isEmpty()) {
+      return false;
+    }
+    try {
+      pipeline.stage(PhotoPipeline.Stage.UPLOAD, () -> sendPhoto(chatId, TelegramUploadClient.Upload.fileId(fileId.get())));
+      return true;
+    } catch (TelegramApiException e) {
+      if (!rejectsFileId(e)) {
+        throw e;
+      }
+      logger.warn("Telegram rejected remembered file_id for chat {}; uploading again: {}", chatId, e.getMessage());
+      sentFileIds.remove(key);
+      return false;
+    }
+  }
+
+  private static boolean rejectsFileId(TelegramApiException error) {
+    return error instanceof TelegramApiRequestException request && Integer.valueOf(400).equals(request.getErrorCode());
+  }
+
+  private void rememberSentFileId(ResultKey key, Message sent) {
+    if (sent == null) {
+      return;
+    }
+    PhotoSelector.largest(sent.getPhoto()).map(PhotoSize::getFileId)
+        .ifPresent(fileId -> sentFileIds.put(key, fileId));
+  }
+
+  private byte[] defacePhoto(Long chatId, PhotoSize photo, ChatSettingsStore.ChatSettings settings)
+      throws Exception {
+    String fileId = photo.getFileId();
+    String filePath = pipeline.stage(PhotoPipeline.Stage.RESOLVE, () -> fileClient.fetchFilePath(fileId));
+    logger.info("Downloading Telegram file for chat {}", chatId);
+    byte[] downloaded = pipeline.stage(PhotoPipeline.Stage.DOWNLOAD, () -> fileClient.download(filePath, expectedBytes(photo)));
+    bytesIn.add(downloaded.length);
+    byte[] originalImage = downscaler.enabled()
+        ? pipeline.stage(PhotoPipeline.Stage.RESIZE, () -> downscaler.downscale(downloaded))
+        : downloaded;
+    logger.info("Calling deface API for chat {} filter={} paste={}", chatId, settings.filterName(),
+        settings.pasteStyle());
+    return defaceBytes(originalImage, settings);
+  }
+
+  private byte[] defaceBytes(byte[] image, ChatSettingsStore.ChatSettings settings) throws Exception {
+    LatencyHistogram defaceDuration = defaceDurations.get(settings);
+    return pipeline.stage(PhotoPipeline.Stage.DEFACE, settings.filterName(), image.length, () -> {
+      long started = System.nanoTime();
+      try {
+        return defaceClient.defaceImage(image, settings.filterName(), settings.pasteStyle());
+      } finally {
+        defaceDuration.recordNanos(System.nanoTime() - started);
+      }
+    });
+  }
+
+  private void streamPhoto(Long chatId, PhotoSize photo, ChatSettingsStore.ChatSettings settings, ResultKey key)
+      throws Exception {
+    String fileId = photo.getFileId();
+    String filePath = pipeline.stage(PhotoPipeline.Stage.RESOLVE, () -> fileClient.fetchFilePath(fileId));
+    logger.info("Streaming Telegram file through deface API for chat {} filter={} paste={}", chatId,
+        settings.filterName(), settings.pasteStyle());
+    try (TelegramFileClient.Download download =
+             pipeline.stage(PhotoPipeline.Stage.DOWNLOAD, () -> fileClient.openDownload(filePath, expectedBytes(photo)));
+         InputStream processed = pipeline.streamStage(PhotoPipeline.Stage.DEFACE, settings.filterName(),
+             download.contentLength(), () -> defaceClient.defaceImageStream(download.body(),
+                 download.contentLength(), settings.filterName(), settings.pasteStyle()))) {
+      if (download.contentLength() >= 0) {
+        bytesIn.add(download.contentLength());
+      }
+      Message sent = pipeline.stage(PhotoPipeline.Stage.UPLOAD,
+          () -> sendPhoto(chatId, TelegramUploadClient.Upload.stream(processed, "processed.jpg")));
+      if (key != null) {
+        rememberSentFileId(key, sent);
+      }
+    }
+  }
+
+  private void handleDocument(Message message, ChatSettingsStore.ChatSettings settings) {
+    Long chatId = message.getChatId();
+    Document document = message.getDocument();
+    long size = document.getFileSize() == null ? -1 : document.getFileSize();
+    if (documents.tooLarge(size)) {
+      reply(chatId, "That file is too large. I can process images up to "
+          + documents.maxBytes() / (1024 * 1024) + " MB.");
+      return;
+    }
+
+    try {
+      JobTrace.describe(settings.filterName(), settings.pasteStyle());
+      String fileId = document.getFileId();
+      String filePath = pipeline.stage(PhotoPipeline.Stage.RESOLVE, () -> fileClient.fetchFilePath(fileId));
+      String name = DocumentSpool.processedName(document.getFileName());
+      Optional<DocumentSpool.Reservation> reservation = documents.reserveHeap(size);
+      if (reservation.isPresent()) {
+        try {
+          defaceDocumentOnHeap(chatId, filePath, size, settings, name, reservation.get());
+        } finally {
+          reservation.get().close();
+        }
+      } else {
+        documentSpills.increment();
+        logger.info("Spilling document for chat {} to disk ({} bytes)", chatId, size);
+        documents.spill((input, output) -> spillDocument(chatId, filePath, size, settings, name, input, output));
+      }
+      logger.info("Processed document sent for chat {}", chatId);
+    } catch (Exception e) {
+      recordError(e);
+      String refId = JobTrace.markFailed(e);
+      logger.error("Failed to process document for chat {} refId={}", chatId, refId, e);
+      reply(chatId, "Sorry, I couldn't process that image right now. Ref: " + refId);
+    }
+  }
+
+  private void defaceDocumentOnHeap(Long chatId, String filePath, long size, ChatSettingsStore.ChatSettings settings,
+      String name, DocumentSpool.Reservation reservation) throws Exception {
+    byte[] downloaded = pipeline.stage(PhotoPipeline.Stage.DOWNLOAD, () -> {
+      try (TelegramFileClient.Download download = fileClient.openDownload(filePath, size)) {
+        return reservation.read(download.body());
+      }
+    });
+    bytesIn.add(downloaded.length);
+    LatencyHistogram defaceDuration = defaceDurations.get(settings);
+    byte[] processedImage = pipeline.stage(PhotoPipeline.Stage.DEFACE, settings.filterName(), downloaded.length, () -> {
+      long started = System.nanoTime();
+      try (InputStream processed = defaceClient.defaceImageStream(new ByteArrayInputStream(downloaded),
+          downloaded.length, settings.filterName(), settings.pasteStyle())) {
+        return reservation.read(processed);
+      } finally {
+        defaceDuration.recordNanos(System.nanoTime() - started);
+      }
+    });
+    pipeline.stage(PhotoPipeline.Stage.UPLOAD, () -> sendDocument(chatId, upload(processedImage, name)));
+  }
+
+  private void spillDocument(Long chatId, String filePath, long size, ChatSettingsStore.ChatSettings settings,
+      String name, Path input, Path output) throws Exception {
+    long length = pipeline.stage(PhotoPipeline.Stage.DOWNLOAD, () -> {
+      try (TelegramFileClient.Download download = fileClient.openDownload(filePath, size)) {
+        return DocumentSpool.write(download.body(), input, documents.maxBytes());
+      }
+    });
+    bytesIn.add(length);
+    LatencyHistogram defaceDuration = defaceDurations.get(settings);
+    long processedLength = pipeline.stage(PhotoPipeline.Stage.DEFACE, settings.filterName(), length, () -> {
+      long started = System.nanoTime();
+      try (InputStream image = Files.newInputStream(input);
+           InputStream processed = defaceClient.defaceImageStream(image, length, settings.filterName(),
+               settings.pasteStyle())) {
+        return DocumentSpool.write(processed, output, DocumentSpool.UPLOAD_LIMIT_BYTES);
+      } finally {
+        defaceDuration.recordNanos(System.nanoTime() - started);
+      }
+    });
+    bytesOut.add(processedLength);
+    pipeline.stage(PhotoPipeline.Stage.UPLOAD, () -> sendDocument(chatId, TelegramUploadClient.Upload.file(output, name)));
+  }
+
+  private ResultKey resultKey(PhotoSize photo, ChatSettingsStore.ChatSettings settings, boolean streamed) {
+    String fileUniqueId = photo.getFileUniqueId();
+    return fileUniqueId == null
+        ? null
+        : new ResultKey(fileUniqueId, settings.filterName(), settings.pasteStyle(),
+            streamed ? ImageDownscaler.ORIGINAL : downscaler.variant());
+  }
+
+  private static long expectedBytes(PhotoSize photo) {
+    Integer fileSize = photo.getFileSize();
+    return fileSize == null ? -1 : fileSize;
+  }
+
+  private TelegramUploadClient.Upload upload(byte[] image, String name) {
+    bytesOut.add(image.length);
+    return TelegramUploadClient.Upload.bytes(image, name);
+  }
+
+  private <T> T delivered(T result) {
+    if (!responded.get() && responded.compareAndSet(false, true)) {
+      long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+      firstResponseSeconds = uptimeMillis / 1000.0;
+      logger.info("First processed image sent {} ms after process start", uptimeMillis);
+    }
+    return result;
+  }
+
+  private void recordError(Throwable error) {
+    errors.get(ErrorCause.of(error)).increment();
+  }
+
+  private Message sendPhoto(Long chatId, TelegramUploadClient.Upload photo) throws TelegramApiException {
+    return delivered(uploads.sendPhoto(chatId, photo));
+  }
+
+  private Message sendDocument(Long chatId, TelegramUploadClient.Upload document) throws TelegramApiException {
+    return delivered(uploads.sendDocument(chatId, document));
   }
 
   private void reply(Long chatId, String text) {
     SendMessage response = new SendMessage(chatId.toString(), text);
     try {
-      execute(response);
+      replySender.send(response);
     } catch (TelegramApiException e) {
+      recordError(e);
       logger.error("Failed to send message to chat {}", chatId, e);
     }
   }
 
-  private String extractCommand(String text) {
+  private static String describeLane(ExecutionLane.Stats stats) {
+    return "Lane " + stats.name() + ": " + stats.active() + "/" + stats.concurrency() + " active, "
+        + stats.queued() + " queued, p99 wait " + stats.waitP99Millis() + " ms, p99 run "
+        + stats.runP99Millis() + " ms";
+  }
+
+  static String extractCommand(String text) {
     if (!text.startsWith("/")) {
       return null;
     }
@@ -241,7 +778,7 @@ public final class DefaceTelegramBot extends TelegramLongPollingBot {
     return firstToken;
   }
 
-  private String extractArgument(String text) {
+  static String extractArgument(String text) {
     String[] parts = text.split("\\s+", 2);
     if (parts.length < 2) {
       return null;
@@ -262,6 +799,42 @@ public final class DefaceTelegramBot extends TelegramLongPollingBot {
         + "/status - show current settings\n"
         + "Allowed filters: " + String.join(", ", config.getAllowedFilterNames()) + "\n"
         + "Allowed paste styles: " + String.join(", ", config.getAllowedPasteStyles()) + "\n"
-        + "Send a photo to process it with the current settings.";
+        + "Send a photo to process it with the current settings, or send an image as a file "
+        + "to keep its full resolution.";
+  }
+
+  private enum ErrorCause {
+    DEFACE_STATUS,
+    CIRCUIT_OPEN,
+    TIMEOUT,
+    TELEGRAM_API,
+    IO,
+    INTERRUPTED,
+    OTHER;
+
+    private static ErrorCause of(Throwable error) {
+      if (error instanceof DefaceStatusException) {
+        return DEFACE_STATUS;
+      }
+      if (error instanceof CircuitOpenException) {
+        return CIRCUIT_OPEN;
+      }
+      if (error instanceof HttpTimeoutException || error instanceof TimeoutException) {
+        return TIMEOUT;
+      }
+      if (error instanceof TelegramApiException) {
+        return TELEGRAM_API;
+      }
+      if (error instanceof IOException) {
+        return IO;
+      }
+      if (error instanceof InterruptedException) {
+        return INTERRUPTED;
+      }
+      return OTHER;
+    }
+  }
+
+  private record AlbumItem(PhotoSize photo, ResultKey key, String fileId, byte[] processed) {
   }
 }
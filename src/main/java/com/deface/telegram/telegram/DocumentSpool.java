@@ -0,0 +1,142 @@
+package com.deface.telegram.telegram;
+
+import com.deface.telegram.config.AppConfig;
+import com.deface.telegram.pipeline.MemoryBudget;
+import org.telegram.telegrambots.meta.api.objects.Message;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+
+final class DocumentSpool {
+  static final long UPLOAD_LIMIT_BYTES = 50L * 1024 * 1024;
+  private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+  private final AppConfig.DocumentSettings settings;
+  private final MemoryBudget memory;
+
+  DocumentSpool(AppConfig.DocumentSettings settings) {
+    this.settings = Objects.requireNonNull(settings, "settings");
+    this.memory = new MemoryBudget(settings.memoryBudgetBytes());
+  }
+
+  long maxBytes() {
+    return settings.maxBytes();
+  }
+
+  boolean tooLarge(long sizeBytes) {
+    return sizeBytes > settings.maxBytes();
+  }
+
+  Optional<Reservation> reserveHeap(long sizeBytes) {
+    if (sizeBytes < 0 || sizeBytes > settings.spillThresholdBytes()) {
+      return Optional.empty();
+    }
+    long bytes = 2 * sizeBytes;
+    return memory.tryReserve(bytes) ? Optional.of(new Reservation(bytes)) : Optional.empty();
+  }
+
+  long reservedBytes() {
+    return memory.reservedBytes();
+  }
+
+  void spill(SpillJob job) throws Exception {
+    Path input = createFile("deface-in-");
+    try {
+      Path output = createFile("deface-out-");
+      try {
+        job.run(input, output);
+      } finally {
+        Files.deleteIfExists(output);
+      }
+    } finally {
+      Files.deleteIfExists(input);
+    }
+  }
+
+  static long write(InputStream in, Path target, long maxBytes) throws IOException {
+    try (OutputStream out = Files.newOutputStream(target)) {
+      return copyBounded(in, out, maxBytes);
+    }
+  }
+
+  static long copyBounded(InputStream in, OutputStream out, long maxBytes) throws IOException {
+    byte[] buffer = new byte[COPY_BUFFER_BYTES];
+    long total = 0;
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      total += read;
+      if (total > maxBytes) {
+        throw new IOException("Document exceeds " + maxBytes + " bytes");
+      }
+      out.write(buffer, 0, read);
+    }
+    return total;
+  }
+
+  static boolean isImageDocument(Message message) {
+    if (!message.hasDocument()) {
+      return false;
+    }
+    String mimeType = message.getDocument().getMimeType();
+    return mimeType != null && mimeType.toLowerCase(Locale.ROOT).startsWith("image/");
+  }
+
+  static String processedName(String fileName) {
+    return fileName == null || fileName.isBlank() ? "processed.jpg" : "processed-" + fileName;
+  }
+
+  private Path createFile(String prefix) throws IOException {
+    Optional<String> directory = settings.spillDir();
+    return directory.isPresent()
+        ? Files.createTempFile(Path.of(directory.get()), prefix, ".tmp")
+        : Files.createTempFile(prefix, ".tmp");
+  }
+
+  final class Reservation implements AutoCloseable {
+    private long bytes;
+    private long used;
+    private boolean released;
+
+    private Reservation(long bytes) {
+      this.bytes = bytes;
+    }
+
+    byte[] read(InputStream in) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[COPY_BUFFER_BYTES];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        long missing = used + read - bytes;
+        if (missing > 0) {
+          if (released || !memory.tryReserve(missing)) {
+            throw new IOException("Document exceeds its heap reservation of " + bytes + " bytes");
+          }
+          bytes += missing;
+        }
+        used += read;
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    }
+
+    @Override
+    public void close() {
+      if (!released) {
+        released = true;
+        memory.release(bytes);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  interface SpillJob {
+    void run(Path input, Path output) throws Exception;
+  }
+}
@@ -0,0 +1,15 @@
+package com.deface.telegram.telegram;
+
+import java.io.IOException;
+
+public final class PhotoLostException extends IOException {
+  private static final long serialVersionUID = 1L;
+
+  public PhotoLostException(String message) {
+    super(message);
+  }
+
+  public PhotoLostException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,18 @@
+package com.deface.telegram.telegram;
+
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+public interface PhotoRouter {
+  PhotoRouter LOCAL = (update, settings, local) -> local.apply(update);
+
+  CompletableFuture<Void> route(Update update, ChatSettingsStore.ChatSettings settings,
+      Function<Update, CompletableFuture<Void>> local);
+
+  static String albumGroup(Message message) {
+    return message.hasPhoto() ? message.getMediaGroupId() : null;
+  }
+}
@@ -0,0 +1,81 @@
+package com.deface.telegram.telegram;
+
+import com.deface.telegram.config.AppConfig;
+import org.telegram.telegrambots.meta.api.objects.PhotoSize;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+final class PhotoSelector {
+  private static final Comparator<PhotoSize> BY_SIZE = Comparator.comparingLong(PhotoSelector::score);
+
+  private final long targetPixels;
+  private final long maxBytes;
+
+  PhotoSelector(AppConfig.PhotoSizing sizing) {
+    Objects.requireNonNull(sizing, "sizing");
+    this.targetPixels = sizing.targetPixels();
+    this.maxBytes = sizing.maxBytes();
+  }
+
+  Optional<PhotoSize> select(List<PhotoSize> photos) {
+    if (photos == null || photos.isEmpty()) {
+      return Optional.empty();
+    }
+    List<PhotoSize> affordable = maxBytes <= 0
+        ? photos
+        : photos.stream().filter(photo -> fileSize(photo) <= maxBytes).toList();
+    if (affordable.isEmpty()) {
+      return photos.stream().min(BY_SIZE);
+    }
+    if (targetPixels > 0) {
+      Optional<PhotoSize> sufficient = affordable.stream()
+          .filter(photo -> pixels(photo) >= targetPixels)
+          .min(BY_SIZE);
+      if (sufficient.isPresent()) {
+        return sufficient;
+      }
+    }
+    return affordable.stream().max(BY_SIZE);
+  }
+
+  static Optional<PhotoSize> preview(List<PhotoSize> photos, long targetPixels) {
+    if (photos == null || photos.isEmpty()) {
+      return Optional.empty();
+    }
+    return photos.stream()
+        .filter(photo -> pixels(photo) >= targetPixels)
+        .min(BY_SIZE);
+  }
+
+  static Optional<PhotoSize> largest(List<PhotoSize> photos) {
+    if (photos == null || photos.isEmpty()) {
+      return Optional.empty();
+    }
+    return photos.stream().max(BY_SIZE);
+  }
+
+  private static long score(PhotoSize photo) {
+    Integer fileSize = photo.getFileSize();
+    if (fileSize != null) {
+      return fileSize;
+    }
+    return pixels(photo);
+  }
+
+  private static long fileSize(PhotoSize photo) {
+    Integer fileSize = photo.getFileSize();
+    return fileSize == null ? 0 : fileSize;
+  }
+
+  private static long pixels(PhotoSize photo) {
+    Integer width = photo.getWidth();
+    Integer height = photo.getHeight();
+    if (width == null || height == null) {
+      return 0;
+    }
+    return (long) width * height;
+  }
+}
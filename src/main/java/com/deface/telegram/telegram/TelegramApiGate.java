@@ -0,0 +1,27 @@
+package com.deface.telegram.telegram;
+
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.util.concurrent.Semaphore;
+
+final class TelegramApiGate {
+  private final Semaphore permits = new Semaphore(TelegramOptions.CONNECTIONS_PER_ROUTE, true);
+
+  <T> T call(Call<T> call) throws TelegramApiException {
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TelegramApiException("Interrupted while waiting for a Telegram connection", e);
+    }
+    try {
+      return call.run();
+    } finally {
+      permits.release();
+    }
+  }
+
+  interface Call<T> {
+    T run() throws TelegramApiException;
+  }
+}
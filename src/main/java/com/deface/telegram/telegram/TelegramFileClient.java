@@ -0,0 +1,124 @@
+package com.deface.telegram.telegram;
+
+import com.deface.telegram.config.AppConfig;
+import com.deface.telegram.metrics.AdaptiveTimeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class TelegramFileClient {
+  private static final String GET_FILE = "telegram:getFile";
+  private static final String DOWNLOAD = "telegram:download";
+  private static final String DOWNLOAD_HEADERS = "telegram:download-headers";
+  private static final Pattern FILE_PATH_PATTERN = Pattern.compile("\"file_path\"\\s*:\\s*\"([^\"]+)\"");
+  private static final Logger logger = LoggerFactory.getLogger(TelegramFileClient.class);
+
+  private final AppConfig config;
+  private final AdaptiveTimeout timeouts;
+  private final HttpClient httpClient;
+
+  public TelegramFileClient(AppConfig config) {
+    this.config = Objects.requireNonNull(config, "config");
+    this.timeouts = new AdaptiveTimeout(config.getTelegramTimeouts());
+    this.httpClient = HttpClient.newBuilder()
+        .connectTimeout(timeouts.connectTimeout())
+        .build();
+  }
+
+  public void warmUp() throws IOException, InterruptedException {
+    String url = config.getTelegramApiBaseUrl() + "/bot" + config.getTelegramBotToken() + "/getMe";
+    HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+        .timeout(timeouts.timeoutFor(GET_FILE, 0))
+        .GET()
+        .build();
+    HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+    if (response.statusCode() != 200) {
+      throw new IOException("Telegram getMe failed with status " + response.statusCode());
+    }
+  }
+
+  public String fetchFilePath(String fileId) throws IOException, InterruptedException {
+    String url = config.getTelegramApiBaseUrl() + "/bot" + config.getTelegramBotToken()
+        + "/getFile?file_id=" + URLEncoder.encode(fileId, StandardCharsets.UTF_8);
+    HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+        .timeout(timeouts.timeoutFor(GET_FILE, 0))
+        .GET()
+        .build();
+    long started = System.nanoTime();
+    HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    if (response.statusCode() != 200) {
+      logger.error("Telegram getFile failed with status {}", response.statusCode());
+      throw new IOException("Telegram getFile failed with status " + response.statusCode());
+    }
+    timeouts.record(GET_FILE, 0, System.nanoTime() - started);
+    String filePath = parseFilePath(response.body());
+    if (filePath == null) {
+      logger.error("Telegram getFile response missing file_path");
+      throw new IOException("Telegram getFile response missing file_path");
+    }
+    return filePath;
+  }
+
+  static String parseFilePath(String body) {
+    Matcher matcher = FILE_PATH_PATTERN.matcher(body);
+    return matcher.find() ? matcher.group(1) : null;
+  }
+
+  public byte[] download(String filePath, long expectedBytes) throws IOException, InterruptedException {
+    long started = System.nanoTime();
+    HttpResponse<byte[]> response =
+        httpClient.send(downloadRequest(filePath, DOWNLOAD, expectedBytes), HttpResponse.BodyHandlers.ofByteArray());
+    if (response.statusCode() != 200) {
+      logger.error("Telegram file download failed with status {}", response.statusCode());
+      throw new IOException("Telegram file download failed with status " + response.statusCode());
+    }
+    timeouts.record(DOWNLOAD, expectedBytes, System.nanoTime() - started);
+    return response.body();
+  }
+
+  public Download openDownload(String filePath, long expectedBytes) throws IOException, InterruptedException {
+    long started = System.nanoTime();
+    HttpResponse<InputStream> response =
+        httpClient.send(downloadRequest(filePath, DOWNLOAD_HEADERS, expectedBytes),
+            HttpResponse.BodyHandlers.ofInputStream());
+    if (response.statusCode() != 200) {
+      response.body().close();
+      logger.error("Telegram file download failed with status {}", response.statusCode());
+      throw new IOException("Telegram file download failed with status " + response.statusCode());
+    }
+    long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+    timeouts.record(DOWNLOAD_HEADERS, expectedBytes, System.nanoTime() - started);
+    return new Download(response.body(), contentLength);
+  }
+
+  public long expectedDownloadMillis(long expectedBytes) {
+    return timeouts.percentileMillis(DOWNLOAD, expectedBytes, 0.5);
+  }
+
+  private HttpRequest downloadRequest(String filePath, String operation, long expectedBytes) {
+    String url = config.getTelegramApiBaseUrl() + "/file/bot" + config.getTelegramBotToken() + "/" + filePath;
+    return HttpRequest.newBuilder(URI.create(url))
+        .timeout(timeouts.timeoutFor(operation, expectedBytes))
+        .GET()
+        .build();
+  }
+
+  public record Download(InputStream body, long contentLength) implements Closeable {
+    @Override
+    public void close() throws IOException {
+      body.close();
+    }
+  }
+}
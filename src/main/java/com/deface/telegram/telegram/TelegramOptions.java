@@ -0,0 +1,17 @@
+package com.deface.telegram.telegram;
+
+import com.deface.telegram.config.AppConfig;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+
+final class TelegramOptions {
+  static final int CONNECTIONS_PER_ROUTE = 2;
+
+  private TelegramOptions() {
+  }
+
+  static DefaultBotOptions create(AppConfig config) {
+    DefaultBotOptions options = new DefaultBotOptions();
+    options.setBaseUrl(config.getTelegramApiBaseUrl() + "/bot");
+    return options;
+  }
+}
@@ -0,0 +1,24 @@
+package com.deface.telegram.telegram;
+
+import com.deface.telegram.config.AppConfig;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+public final class TelegramReplySender extends DefaultAbsSender implements AutoCloseable {
+  private final TelegramApiGate gate = new TelegramApiGate();
+
+  public TelegramReplySender(AppConfig config) {
+    super(TelegramOptions.create(config), config.getTelegramBotToken());
+  }
+
+  Message send(SendMessage message) throws TelegramApiException {
+    return gate.call(() -> execute(message));
+  }
+
+  @Override
+  public void close() {
+    exe.shutdown();
+  }
+}
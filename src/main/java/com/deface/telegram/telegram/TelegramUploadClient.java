@@ -0,0 +1,207 @@
+package com.deface.telegram.telegram;
+
+import com.deface.telegram.config.AppConfig;
+import com.deface.telegram.metrics.AdaptiveTimeout;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+final class TelegramUploadClient {
+  private static final String UPLOAD = "telegram:upload";
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  private static final TypeReference<ApiResponse<JsonNode>> RESPONSE = new TypeReference<>() {
+  };
+  private static final TypeReference<List<Message>> MESSAGES = new TypeReference<>() {
+  };
+
+  private final AppConfig config;
+  private final AdaptiveTimeout timeouts;
+  private final HttpClient httpClient;
+
+  TelegramUploadClient(AppConfig config) {
+    this.config = Objects.requireNonNull(config, "config");
+    this.timeouts = new AdaptiveTimeout(config.getTelegramTimeouts());
+    this.httpClient = HttpClient.newBuilder()
+        .connectTimeout(timeouts.connectTimeout())
+        .build();
+  }
+
+  Message sendPhoto(long chatId, Upload photo) throws TelegramApiException {
+    Form form = new Form().field("chat_id", Long.toString(chatId)).media("photo", photo);
+    return convert("sendPhoto", call("sendPhoto", form), MAPPER.constructType(Message.class));
+  }
+
+  Message sendDocument(long chatId, Upload document) throws TelegramApiException {
+    Form form = new Form().field("chat_id", Long.toString(chatId)).media("document", document);
+    return convert("sendDocument", call("sendDocument", form), MAPPER.constructType(Message.class));
+  }
+
+  List<Message> sendMediaGroup(long chatId, List<Upload> photos) throws TelegramApiException {
+    Form form = new Form().field("chat_id", Long.toString(chatId));
+    List<Map<String, String>> media = new ArrayList<>(photos.size());
+    for (int i = 0; i < photos.size(); i++) {
+      media.add(Map.of("type", "photo", "media", form.attach("file" + i, photos.get(i))));
+    }
+    form.field("media", json(media));
+    return convert("sendMediaGroup", call("sendMediaGroup", form), MAPPER.getTypeFactory().constructType(MESSAGES));
+  }
+
+  Optional<Message> editMessageMedia(long chatId, int messageId, Upload photo) throws TelegramApiException {
+    Form form = new Form()
+        .field("chat_id", Long.toString(chatId))
+        .field("message_id", Integer.toString(messageId));
+    form.field("media", json(Map.of("type", "photo", "media", form.attach("file0", photo))));
+    JsonNode result = call("editMessageMedia", form);
+    return result != null && result.isObject()
+        ? Optional.of(convert("editMessageMedia", result, MAPPER.constructType(Message.class)))
+        : Optional.empty();
+  }
+
+  private JsonNode call(String method, Form form) throws TelegramApiException {
+    long contentLength = form.contentLength();
+    String url = config.getTelegramApiBaseUrl() + "/bot" + config.getTelegramBotToken() + "/" + method;
+    HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+        .timeout(timeouts.timeoutFor(UPLOAD, contentLength))
+        .header("Content-Type", "multipart/form-data; boundary=" + form.boundary)
+        .POST(form.body())
+        .build();
+    long started = System.nanoTime();
+    HttpResponse<byte[]> response;
+    try {
+      response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    } catch (IOException e) {
+      throw new TelegramApiRequestException("Unable to execute " + method + " method", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TelegramApiException("Interrupted while executing " + method + " method", e);
+    }
+    ApiResponse<JsonNode> result;
+    try {
+      result = MAPPER.readValue(response.body(), RESPONSE);
+    } catch (IOException e) {
+      throw new TelegramApiRequestException("Unable to deserialize " + method + " response with status "
+          + response.statusCode(), e);
+    }
+    if (!Boolean.TRUE.equals(result.getOk())) {
+      throw new TelegramApiRequestException("Error executing " + method + " method", result);
+    }
+    timeouts.record(UPLOAD, contentLength, System.nanoTime() - started);
+    return result.getResult();
+  }
+
+  private static <T> T convert(String method, JsonNode result, JavaType type) throws TelegramApiRequestException {
+    try {
+      return MAPPER.convertValue(result, type);
+    } catch (IllegalArgumentException e) {
+      throw new TelegramApiRequestException("Unable to deserialize " + method + " result", e);
+    }
+  }
+
+  private static String json(Object value) {
+    try {
+      return MAPPER.writeValueAsString(value);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Unable to encode " + value, e);
+    }
+  }
+
+  record Upload(String fileId, String fileName, HttpRequest.BodyPublisher content) {
+    static Upload fileId(String fileId) {
+      return new Upload(Objects.requireNonNull(fileId, "fileId"), null, null);
+    }
+
+    static Upload bytes(byte[] content, String fileName) {
+      return new Upload(null, fileName, HttpRequest.BodyPublishers.ofByteArray(content));
+    }
+
+    static Upload file(Path path, String fileName) throws FileNotFoundException {
+      return new Upload(null, fileName, HttpRequest.BodyPublishers.ofFile(path));
+    }
+
+    static Upload stream(InputStream content, String fileName) {
+      Objects.requireNonNull(content, "content");
+      AtomicBoolean taken = new AtomicBoolean();
+      return new Upload(null, fileName, HttpRequest.BodyPublishers.ofInputStream(() -> {
+        if (!taken.compareAndSet(false, true)) {
+          throw new IllegalStateException("Upload stream was already sent and cannot be replayed");
+        }
+        return content;
+      }));
+    }
+  }
+
+  private static final class Form {
+    private final String boundary = "----TelegramBoundary" + UUID.randomUUID();
+    private final List<HttpRequest.BodyPublisher> parts = new ArrayList<>();
+
+    Form field(String name, String value) {
+      text("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" + value + "\r\n");
+      return this;
+    }
+
+    Form media(String name, Upload upload) {
+      if (upload.fileId() != null) {
+        return field(name, upload.fileId());
+      }
+      text("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + name + "\"; filename=\""
+          + upload.fileName().replaceAll("[\"\\r\\n]", "_") + "\"\r\nContent-Type: application/octet-stream\r\n\r\n");
+      parts.add(upload.content());
+      text("\r\n");
+      return this;
+    }
+
+    String attach(String name, Upload upload) {
+      if (upload.fileId() != null) {
+        return upload.fileId();
+      }
+      media(name, upload);
+      return "attach://" + name;
+    }
+
+    long contentLength() {
+      long total = 0;
+      for (HttpRequest.BodyPublisher part : parts) {
+        if (part.contentLength() < 0) {
+          return -1;
+        }
+        total += part.contentLength();
+      }
+      return total;
+    }
+
+    HttpRequest.BodyPublisher body() {
+      List<HttpRequest.BodyPublisher> body = new ArrayList<>(parts);
+      body.add(HttpRequest.BodyPublishers.ofByteArray(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8)));
+      return HttpRequest.BodyPublishers.concat(body.toArray(HttpRequest.BodyPublisher[]::new));
+    }
+
+    private void text(String text) {
+      parts.add(HttpRequest.BodyPublishers.ofByteArray(text.getBytes(StandardCharsets.UTF_8)));
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.deface.telegram.telegram;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public final class WebhookServer implements AutoCloseable {
+  static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+  private static final Logger logger = LoggerFactory.getLogger(WebhookServer.class);
+
+  private final ObjectMapper mapper = new ObjectMapper()
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final String path;
+  private final byte[] secret;
+  private final Consumer<Update> updateConsumer;
+
+  public WebhookServer(int port, String path, String secretToken, int threads, Consumer<Update> updateConsumer)
+      throws IOException {
+    this.path = Objects.requireNonNull(path, "path");
+    this.secret = secretToken == null ? null : secretToken.getBytes(StandardCharsets.UTF_8);
+    this.updateConsumer = Objects.requireNonNull(updateConsumer, "updateConsumer");
+    this.executor = Executors.newFixedThreadPool(threads, threadFactory());
+    this.server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.createContext(path, this::handle);
+    server.setExecutor(executor);
+  }
+
+  public void start() {
+    server.start();
+    logger.info("Webhook server listening on port {} at {}", port(), path);
+  }
+
+  public int port() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    server.stop(1);
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    Update update;
+    try (exchange) {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().add("Allow", "POST");
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      if (!exchange.getRequestURI().getPath().equals(path)) {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+      if (!secretMatches(exchange.getRequestHeaders().getFirst(SECRET_HEADER))) {
+        logger.warn("Rejected webhook request from {} with missing or invalid secret token",
+            exchange.getRemoteAddress());
+        exchange.sendResponseHeaders(401, -1);
+        return;
+      }
+      try (InputStream body = exchange.getRequestBody()) {
+        update = mapper.readValue(body, Update.class);
+      } catch (IOException e) {
+        logger.warn("Rejected malformed webhook update: {}", e.getMessage());
+        exchange.sendResponseHeaders(400, -1);
+        return;
+      }
+      exchange.sendResponseHeaders(200, -1);
+    }
+    try {
+      updateConsumer.accept(update);
+    } catch (RuntimeException e) {
+      logger.error("Failed to process webhook update {}", update.getUpdateId(), e);
+    }
+  }
+
+  private boolean secretMatches(String provided) {
+    if (secret == null) {
+      return true;
+    }
+    return provided != null && MessageDigest.isEqual(secret, provided.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static ThreadFactory threadFactory() {
+    AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, "telegram-webhook-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
@@ -0,0 +1,60 @@
+package com.deface.telegram;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WarmupTest {
+  @Test
+  void skipsFailingStepAndRunsTheRest() {
+    List<String> ran = new CopyOnWriteArrayList<>();
+    Warmup warmup = new Warmup(Duration.ofSeconds(5), List.of(
+        new Warmup.Step("first", () -> ran.add("first")),
+        new Warmup.Step("broken", () -> {
+          throw new IllegalStateException("backend down");
+        }),
+        new Warmup.Step("last", () -> ran.add("last"))));
+
+    warmup.run();
+
+    assertEquals(List.of("first", "last"), ran);
+  }
+
+  @Test
+  void timeoutBoundsRunAndStopsTheRemainingSteps() throws Exception {
+    CountDownLatch interrupted = new CountDownLatch(1);
+    List<String> ran = new CopyOnWriteArrayList<>();
+    Warmup warmup = new Warmup(Duration.ofMillis(100), List.of(
+        new Warmup.Step("hanging", () -> {
+          try {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+          } catch (InterruptedException e) {
+            interrupted.countDown();
+            throw e;
+          }
+        }),
+        new Warmup.Step("never", () -> ran.add("never"))));
+
+    long started = System.nanoTime();
+    warmup.run();
+
+    assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5));
+    assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    Thread.sleep(50);
+    assertTrue(ran.isEmpty());
+  }
+
+  @Test
+  void syntheticImageIsAJpeg() throws Exception {
+    byte[] image = Warmup.syntheticJpeg();
+    assertEquals((byte) 0xFF, image[0]);
+    assertEquals((byte) 0xD8, image[1]);
+  }
+}
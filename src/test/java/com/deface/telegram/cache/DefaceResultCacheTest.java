@@ -0,0 +1,49 @@
+package com.deface.telegram.cache;
+
+import com.deface.telegram.config.AppConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DefaceResultCacheTest {
+  @Test
+  void evictsLeastRecentlyUsedWithinByteBudget() {
+    DefaceResultCache cache = new DefaceResultCache(new AppConfig.ResultCacheSettings(10, null, 0));
+    ResultKey first = new ResultKey("a", "blur", "hard", "original");
+    ResultKey second = new ResultKey("b", "blur", "hard", "original");
+    ResultKey third = new ResultKey("c", "blur", "hard", "original");
+
+    cache.put(first, new byte[4]);
+    cache.put(second, new byte[4]);
+    assertTrue(cache.get(first).isPresent());
+    cache.put(third, new byte[4]);
+
+    assertTrue(cache.get(first).isPresent());
+    assertTrue(cache.get(second).isEmpty());
+    assertTrue(cache.get(third).isPresent());
+
+    DefaceResultCache.Stats stats = cache.stats();
+    assertEquals(3, stats.hits());
+    assertEquals(1, stats.misses());
+    assertEquals(8, stats.bytes());
+  }
+
+  @Test
+  void diskTierSurvivesRestart(@TempDir Path directory) {
+    AppConfig.ResultCacheSettings settings =
+        new AppConfig.ResultCacheSettings(1024, directory.toString(), 1024);
+    ResultKey key = new ResultKey("photo", "pixelate", "feathered", "original");
+    new DefaceResultCache(settings).put(key, new byte[] {1, 2, 3});
+
+    DefaceResultCache restarted = new DefaceResultCache(settings);
+    assertArrayEquals(new byte[] {1, 2, 3}, restarted.get(key).orElseThrow());
+    assertEquals(1, restarted.stats().diskHits());
+    assertTrue(restarted.get(new ResultKey("photo", "blur", "feathered", "original")).isEmpty());
+    assertTrue(restarted.get(new ResultKey("photo", "pixelate", "feathered", "2560px-q85")).isEmpty());
+  }
+}
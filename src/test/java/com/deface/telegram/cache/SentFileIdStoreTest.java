@@ -0,0 +1,51 @@
+package com.deface.telegram.cache;
+
+import com.deface.telegram.config.AppConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SentFileIdStoreTest {
+  @Test
+  void evictsLeastRecentlyUsedBeyondMaxEntries() {
+    SentFileIdStore store = new SentFileIdStore(new AppConfig.SentFileIdSettings(2, null));
+    ResultKey first = new ResultKey("a", "blur", "hard", "original");
+    ResultKey second = new ResultKey("b", "blur", "hard", "original");
+    ResultKey third = new ResultKey("c", "blur", "hard", "original");
+
+    store.put(first, "file-a");
+    store.put(second, "file-b");
+    assertEquals(Optional.of("file-a"), store.get(first));
+    store.put(third, "file-c");
+
+    assertEquals(Optional.of("file-a"), store.get(first));
+    assertTrue(store.get(second).isEmpty());
+    assertEquals(Optional.of("file-c"), store.get(third));
+    assertEquals(2, store.size());
+  }
+
+  @Test
+  void replaysPutsAndRemovalsAfterRestart(@TempDir Path directory) {
+    AppConfig.SentFileIdSettings settings =
+        new AppConfig.SentFileIdSettings(16, directory.resolve("sent-file-ids.log").toString());
+    ResultKey kept = new ResultKey("photo", "pixelate", "feathered", "original");
+    ResultKey removed = new ResultKey("photo", "blur", "feathered", "original");
+    try (SentFileIdStore store = new SentFileIdStore(settings)) {
+      store.put(kept, "old");
+      store.put(kept, "new");
+      store.put(removed, "gone");
+      store.remove(removed);
+    }
+
+    try (SentFileIdStore restarted = new SentFileIdStore(settings)) {
+      assertEquals(Optional.of("new"), restarted.get(kept));
+      assertTrue(restarted.get(removed).isEmpty());
+      assertEquals(1, restarted.size());
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.deface.telegram.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+  private static final Duration WAIT = Duration.ofSeconds(5);
+
+  @Test
+  void coalescesConcurrentCallsIntoOneLoad() throws Exception {
+    SingleFlight<String, String> flight = new SingleFlight<>();
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      Future<String> leader = executor.submit(() -> flight.execute("key", WAIT, () -> {
+        loads.incrementAndGet();
+        release.await(5, TimeUnit.SECONDS);
+        return "result";
+      }));
+      awaitInFlight(flight);
+      Future<String> follower = executor.submit(() -> flight.execute("key", WAIT, () -> {
+        loads.incrementAndGet();
+        return "duplicate";
+      }));
+      awaitCoalesced(flight);
+      release.countDown();
+
+      assertEquals("result", leader.get(5, TimeUnit.SECONDS));
+      assertEquals("result", follower.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, loads.get());
+    assertEquals(0, flight.inFlight());
+  }
+
+  @Test
+  void propagatesFailureToWaitersAndTimesOutWithoutLeaking() throws Exception {
+    SingleFlight<String, String> flight = new SingleFlight<>();
+    CountDownLatch release = new CountDownLatch(1);
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      Future<String> leader = executor.submit(() -> flight.execute("key", WAIT, () -> {
+        release.await(5, TimeUnit.SECONDS);
+        throw new IOException("backend down");
+      }));
+      awaitInFlight(flight);
+      assertThrows(TimeoutException.class,
+          () -> flight.execute("key", Duration.ofMillis(20), () -> "unused"));
+      Future<String> follower = executor.submit(() -> flight.execute("key", WAIT, () -> "unused"));
+      awaitCoalesced(flight, 2);
+      release.countDown();
+
+      Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+      Exception followerError = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+      assertTrue(leaderError.getCause() instanceof IOException);
+      assertTrue(followerError.getCause() instanceof IOException);
+    }
+    assertEquals(0, flight.inFlight());
+  }
+
+  private static void awaitInFlight(SingleFlight<?, ?> flight) throws InterruptedException {
+    while (flight.inFlight() == 0) {
+      Thread.sleep(1);
+    }
+  }
+
+  private static void awaitCoalesced(SingleFlight<?, ?> flight) throws InterruptedException {
+    awaitCoalesced(flight, 1);
+  }
+
+  private static void awaitCoalesced(SingleFlight<?, ?> flight, long expected) throws InterruptedException {
+    while (flight.coalesced() < expected) {
+      Thread.sleep(1);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package com.deface.telegram.cluster;
+
+import com.deface.telegram.config.AppConfig;
+import com.deface.telegram.metrics.MetricsRegistry;
+import com.deface.telegram.telegram.ChatSettingsStore;
+import com.deface.telegram.telegram.PhotoLostException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterIngressTest {
+  private static final ChatSettingsStore.ChatSettings SETTINGS =
+      new ChatSettingsStore.ChatSettings("pixelate", "hard");
+
+  private final List<AutoCloseable> closeables = new ArrayList<>();
+
+  @AfterEach
+  void closeAll() throws Exception {
+    for (int i = closeables.size() - 1; i >= 0; i--) {
+      closeables.get(i).close();
+    }
+  }
+
+  @Test
+  void dispatchesPerChatInOrderAndFallsBackWhenWorkersLeave() throws Exception {
+    ClusterIngress ingress = new ClusterIngress(settings("ingress", 0, null, null), new MetricsRegistry());
+    closeables.add(ingress);
+    ingress.start();
+    String ingressUrl = "http://127.0.0.1:" + ingress.port();
+
+    List<String> processed = new CopyOnWriteArrayList<>();
+    int workerPort = freePort();
+    ClusterWorker worker = new ClusterWorker(
+        settings("worker", workerPort, ingressUrl, "http://127.0.0.1:" + workerPort),
+        (update, chatSettings) -> CompletableFuture.runAsync(() -> {
+          sleep(30 - update.getUpdateId() * 5);
+          processed.add("worker:" + update.getUpdateId() + ":" + chatSettings.filterName());
+        }));
+    closeables.add(worker);
+    worker.start();
+    waitFor(() -> ingress.workers() == 1);
+
+    List<String> local = new CopyOnWriteArrayList<>();
+    List<CompletableFuture<Void>> dispatched = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      dispatched.add(ingress.route(update(i, 77), SETTINGS, update -> {
+        local.add("local:" + update.getUpdateId());
+        return CompletableFuture.completedFuture(null);
+      }));
+    }
+    CompletableFuture.allOf(dispatched.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+    assertEquals(List.of("worker:0:pixelate", "worker:1:pixelate", "worker:2:pixelate", "worker:3:pixelate",
+        "worker:4:pixelate"), processed);
+    assertTrue(local.isEmpty());
+
+    worker.close();
+    waitFor(() -> ingress.workers() == 0);
+    ingress.route(update(5, 77), SETTINGS, update -> {
+      local.add("local:" + update.getUpdateId());
+      return CompletableFuture.completedFuture(null);
+    }).get(10, TimeUnit.SECONDS);
+    assertEquals(List.of("local:5"), local);
+  }
+
+  @Test
+  void reportsTimedOutDispatchAsLostWithoutProcessingLocally() throws Exception {
+    ClusterIngress ingress = new ClusterIngress(
+        settings("ingress", 0, null, null, java.time.Duration.ofMillis(200)), new MetricsRegistry());
+    closeables.add(ingress);
+    ingress.start();
+    String ingressUrl = "http://127.0.0.1:" + ingress.port();
+
+    int workerPort = freePort();
+    ClusterWorker worker = new ClusterWorker(
+        settings("worker", workerPort, ingressUrl, "http://127.0.0.1:" + workerPort),
+        (update, chatSettings) -> CompletableFuture.runAsync(() -> sleep(1_000)));
+    closeables.add(worker);
+    worker.start();
+    waitFor(() -> ingress.workers() == 1);
+
+    List<String> local = new CopyOnWriteArrayList<>();
+    ExecutionException lost = assertThrows(ExecutionException.class, () -> ingress.route(update(1, 77), SETTINGS,
+        update -> {
+          local.add("local:" + update.getUpdateId());
+          return CompletableFuture.completedFuture(null);
+        }).get(10, TimeUnit.SECONDS));
+
+    assertInstanceOf(PhotoLostException.class, lost.getCause());
+    assertTrue(local.isEmpty());
+    assertEquals(1, ingress.workers());
+  }
+
+  private static AppConfig.ClusterSettings settings(String role, int port, String ingressUrl,
+      String advertiseUrl) {
+    return settings(role, port, ingressUrl, advertiseUrl, java.time.Duration.ofSeconds(10));
+  }
+
+  private static AppConfig.ClusterSettings settings(String role, int port, String ingressUrl,
+      String advertiseUrl, java.time.Duration dispatchTimeout) {
+    return new AppConfig.ClusterSettings(role, port, ingressUrl, advertiseUrl, "s3cret",
+        java.time.Duration.ofMillis(100), java.time.Duration.ofMillis(500), dispatchTimeout);
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  private static Update update(int id, long chatId) {
+    Chat chat = new Chat();
+    chat.setId(chatId);
+    chat.setType("private");
+    Message message = new Message();
+    message.setMessageId(id);
+    message.setChat(chat);
+    Update update = new Update();
+    update.setUpdateId(id);
+    update.setMessage(message);
+    return update;
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(Math.max(0, millis));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "condition not met in time");
+      Thread.sleep(20);
+    }
+  }
+}
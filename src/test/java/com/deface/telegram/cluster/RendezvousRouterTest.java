@@ -0,0 +1,66 @@
+package com.deface.telegram.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RendezvousRouterTest {
+  private static final int CHATS = 10_000;
+  private static final long LEASE = Long.MAX_VALUE / 2;
+
+  @Test
+  void movesOnlyTheChatsOfAJoiningOrLeavingWorker() {
+    RendezvousRouter router = new RendezvousRouter();
+    router.join("http://worker-1:9090", LEASE);
+    router.join("http://worker-2:9090", LEASE);
+    router.join("http://worker-3:9090", LEASE);
+    Map<Long, String> before = assignments(router);
+
+    router.join("http://worker-4:9090", LEASE);
+    Map<Long, String> afterJoin = assignments(router);
+    int moved = 0;
+    for (long chatId = 0; chatId < CHATS; chatId++) {
+      if (!before.get(chatId).equals(afterJoin.get(chatId))) {
+        assertEquals("http://worker-4:9090", afterJoin.get(chatId));
+        moved++;
+      }
+    }
+    assertTrue(moved > CHATS / 5 && moved < CHATS / 3, "moved " + moved);
+
+    router.leave("http://worker-2:9090");
+    Map<Long, String> afterLeave = assignments(router);
+    for (long chatId = 0; chatId < CHATS; chatId++) {
+      if (!afterJoin.get(chatId).equals("http://worker-2:9090")) {
+        assertEquals(afterJoin.get(chatId), afterLeave.get(chatId));
+      }
+    }
+  }
+
+  @Test
+  void expiresLapsedLeases() {
+    RendezvousRouter router = new RendezvousRouter();
+    router.join("http://worker-1:9090", 100);
+    router.join("http://worker-2:9090", 300);
+
+    assertEquals(List.of("http://worker-1:9090"), router.expire(200));
+    assertEquals(Optional.of("http://worker-2:9090"), router.route(42));
+    router.join("http://worker-2:9090", 500);
+    assertEquals(List.of(), router.expire(400));
+    assertEquals(List.of("http://worker-2:9090"), router.expire(500));
+    assertEquals(Optional.empty(), router.route(42));
+  }
+
+  private static Map<Long, String> assignments(RendezvousRouter router) {
+    Map<Long, String> assignments = new TreeMap<>();
+    for (long chatId = 0; chatId < CHATS; chatId++) {
+      assignments.put(chatId, router.route(chatId).orElseThrow());
+    }
+    return assignments;
+  }
+}
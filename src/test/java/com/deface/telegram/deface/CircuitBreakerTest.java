@@ -0,0 +1,60 @@
+package com.deface.telegram.deface;
+
+import com.deface.telegram.config.AppConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  void opensAfterFailureRateAndRecoversThroughHalfOpenTrial() {
+    CircuitBreaker breaker = new CircuitBreaker(settings(), clock::get);
+
+    for (int i = 0; i < 3; i++) {
+      assertTrue(breaker.tryAcquirePermission());
+      breaker.onSuccess();
+    }
+    for (int i = 0; i < 3; i++) {
+      assertTrue(breaker.tryAcquirePermission());
+      breaker.onFailure();
+    }
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    assertFalse(breaker.tryAcquirePermission());
+
+    clock.addAndGet(Duration.ofSeconds(11).toNanos());
+    assertTrue(breaker.tryAcquirePermission());
+    assertFalse(breaker.tryAcquirePermission());
+    breaker.onFailure();
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+    clock.addAndGet(Duration.ofSeconds(11).toNanos());
+    assertTrue(breaker.tryAcquirePermission());
+    breaker.onSuccess();
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    assertTrue(breaker.tryAcquirePermission());
+  }
+
+  @Test
+  void retryBudgetLimitsRetriesToShareOfRequests() {
+    RetryBudget budget = new RetryBudget(50, 1);
+    assertTrue(budget.tryWithdraw());
+    assertFalse(budget.tryWithdraw());
+
+    budget.recordRequest();
+    assertFalse(budget.tryWithdraw());
+    budget.recordRequest();
+    assertTrue(budget.tryWithdraw());
+  }
+
+  private static AppConfig.ResilienceSettings settings() {
+    return new AppConfig.ResilienceSettings(2, 20, 10, Duration.ofMillis(10), Duration.ofMillis(100),
+        10, 6, 50, Duration.ofSeconds(10), false, Duration.ofMillis(50), 1);
+  }
+}
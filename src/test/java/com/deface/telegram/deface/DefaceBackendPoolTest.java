@@ -0,0 +1,114 @@
+package com.deface.telegram.deface;
+
+import com.deface.telegram.config.AppConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DefaceBackendPoolTest {
+  private final List<HttpServer> servers = new ArrayList<>();
+
+  @AfterEach
+  void stopServers() {
+    servers.forEach(server -> server.stop(0));
+  }
+
+  @Test
+  void routesToBackendWithFewestOutstandingRequests() {
+    try (DefaceBackendPool pool = new DefaceBackendPool(settings(List.of("http://a.test", "http://b.test")))) {
+      DefaceBackend first = pool.acquire();
+      DefaceBackend second = pool.acquire();
+      assertTrue(first != second);
+
+      pool.release(first, 1_000_000, true);
+      assertSame(first, pool.acquire());
+    }
+  }
+
+  @Test
+  void ejectsFailingBackendAndReadmitsAfterHealthyProbe() throws IOException, InterruptedException {
+    AtomicInteger badStatus = new AtomicInteger(500);
+    String bad = startServer(badStatus);
+    String good = startServer(new AtomicInteger(200));
+    Map<String, String> overrides = Map.of(
+        "DEFACE_ENDPOINTS", bad + "," + good,
+        "DEFACE_EJECT_AFTER_FAILURES", "1",
+        "DEFACE_EJECT_DURATION_MS", "1",
+        "DEFACE_HEALTH_INTERVAL_MS", "3600000",
+        "DEFACE_MAX_RETRIES", "0");
+
+    try (DefaceClient client = new DefaceClient(AppConfig.load(overrides))) {
+      DefaceBackendPool pool = client.backendPool();
+      DefaceBackend badBackend = pool.backends().get(0);
+
+      int failures = 0;
+      for (int i = 0; i < 4; i++) {
+        try {
+          assertArrayEquals("ok".getBytes(StandardCharsets.UTF_8), client.defaceImage(new byte[] {1}));
+        } catch (IOException e) {
+          failures++;
+        }
+      }
+      assertTrue(failures <= 1);
+      assertTrue(badBackend.isEjected());
+      assertEquals(1, badBackend.stats().failures());
+
+      pool.probeAll();
+      assertTrue(badBackend.isEjected());
+
+      badStatus.set(200);
+      Thread.sleep(5);
+      pool.probeAll();
+      assertFalse(badBackend.isEjected());
+    }
+  }
+
+  @Test
+  void fallsBackToEjectedBackendsWhenNoneAreHealthy() throws IOException {
+    String bad = startServer(new AtomicInteger(503));
+    Map<String, String> overrides = Map.of(
+        "DEFACE_ENDPOINTS", bad,
+        "DEFACE_EJECT_AFTER_FAILURES", "1",
+        "DEFACE_HEALTH_INTERVAL_MS", "3600000",
+        "DEFACE_MAX_RETRIES", "0");
+    try (DefaceClient client = new DefaceClient(AppConfig.load(overrides))) {
+      assertThrows(IOException.class, () -> client.defaceImage(new byte[] {1}));
+      assertThrows(IOException.class, () -> client.defaceImage(new byte[] {1}));
+      assertEquals(2, client.backendPool().backends().get(0).stats().failures());
+    }
+  }
+
+  private String startServer(AtomicInteger status) throws IOException {
+    HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/deface-image", exchange -> {
+      exchange.getRequestBody().readAllBytes();
+      byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(status.get(), body.length);
+      exchange.getResponseBody().write(body);
+      exchange.close();
+    });
+    server.start();
+    servers.add(server);
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/deface-image";
+  }
+
+  private static AppConfig.BackendPoolSettings settings(List<String> endpoints) {
+    return new AppConfig.BackendPoolSettings(endpoints, java.time.Duration.ofHours(1), 3,
+        java.time.Duration.ofSeconds(30), null);
+  }
+}
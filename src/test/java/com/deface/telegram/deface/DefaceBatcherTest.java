@@ -0,0 +1,157 @@
+package com.deface.telegram.deface;
+
+import com.deface.telegram.config.AppConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DefaceBatcherTest {
+  private final AppConfig.BatchingSettings settings = new AppConfig.BatchingSettings(true, 4, Duration.ofSeconds(1));
+  private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+  @Test
+  void groupsBurstOfJobsAndSplitsResultsBack() throws Exception {
+    try (DefaceBatcher batcher = new DefaceBatcher(settings, this::echoBatch, DefaceBatcherTest::echo, DefaceBatcherTest::noRetry)) {
+      List<CompletableFuture<byte[]>> results = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        results.add(batcher.submit(bytes("image-" + i), "blur", "hard"));
+      }
+
+      for (int i = 0; i < 5; i++) {
+        assertEquals("done:image-" + i, text(results.get(i).get(5, TimeUnit.SECONDS)));
+      }
+      assertEquals(List.of(4), batchSizes);
+      assertEquals(1, batcher.batches());
+      assertEquals(4, batcher.batchedImages());
+    }
+  }
+
+  @Test
+  void sendsIndividuallyAndPausesBatchingWhenBackendRejectsBatch() throws Exception {
+    DefaceBatcher.BatchSender rejecting = (filter, paste, images) -> {
+      batchSizes.add(images.size());
+      return CompletableFuture.failedFuture(new BatchRejectedException("batch not supported"));
+    };
+    try (DefaceBatcher batcher = new DefaceBatcher(settings, rejecting, DefaceBatcherTest::echo, DefaceBatcherTest::noRetry)) {
+      List<CompletableFuture<byte[]>> results = submitUntilBatched(batcher);
+      for (int i = 0; i < results.size(); i++) {
+        assertEquals("done:image-" + i, text(results.get(i).get(5, TimeUnit.SECONDS)));
+      }
+      assertTrue(batcher.paused());
+
+      for (int i = 0; i < 4; i++) {
+        assertEquals("done:later-" + i,
+            text(batcher.submit(bytes("later-" + i), "blur", "hard").get(5, TimeUnit.SECONDS)));
+      }
+      assertEquals(1, batchSizes.size());
+    }
+  }
+
+  @Test
+  void retriesBatchedJobsIndividuallyOnServerError() throws Exception {
+    DefaceBatcher.BatchSender failing = (filter, paste, images) -> {
+      batchSizes.add(images.size());
+      return CompletableFuture.failedFuture(new DefaceStatusException(503));
+    };
+    List<Integer> retriedAfter = new CopyOnWriteArrayList<>();
+    DefaceBatcher.RetrySender retrying = (image, filter, paste, failure) -> {
+      retriedAfter.add(((DefaceStatusException) failure).statusCode());
+      return echo(image, filter, paste);
+    };
+    try (DefaceBatcher batcher = new DefaceBatcher(settings, failing, DefaceBatcherTest::echo, retrying)) {
+      List<CompletableFuture<byte[]>> results = submitUntilBatched(batcher);
+
+      for (int i = 0; i < results.size(); i++) {
+        assertEquals("done:image-" + i, text(results.get(i).get(5, TimeUnit.SECONDS)));
+      }
+      assertEquals(batchSizes.stream().mapToInt(Integer::intValue).sum(), retriedAfter.size());
+      assertTrue(retriedAfter.stream().allMatch(status -> status == 503));
+      assertFalse(batcher.paused());
+    }
+  }
+
+  @Test
+  void failsBatchedJobsWhenTheIndividualRetryIsRefused() throws Exception {
+    DefaceBatcher.BatchSender failing = (filter, paste, images) -> {
+      batchSizes.add(images.size());
+      return CompletableFuture.failedFuture(new DefaceStatusException(503));
+    };
+    try (DefaceBatcher batcher = new DefaceBatcher(settings, failing, DefaceBatcherTest::echo,
+        DefaceBatcherTest::noRetry)) {
+      List<CompletableFuture<byte[]>> results = submitUntilBatched(batcher);
+
+      int failed = 0;
+      for (CompletableFuture<byte[]> result : results) {
+        try {
+          assertTrue(text(result.get(5, TimeUnit.SECONDS)).startsWith("done:"));
+        } catch (ExecutionException e) {
+          assertInstanceOf(DefaceStatusException.class, e.getCause());
+          failed++;
+        }
+      }
+      assertEquals(batchSizes.stream().mapToInt(Integer::intValue).sum(), failed);
+    }
+  }
+
+  @Test
+  void splitsMultipartResponses() throws Exception {
+    byte[] body = bytes("preamble\r\n--xyz\r\nContent-Type: image/jpeg\r\n\r\nfirst\r\n"
+        + "--xyz\r\nContent-Type: image/jpeg\r\n\r\nsecond\r\n--xyz--\r\n");
+
+    List<byte[]> parts = MultipartParts.split("multipart/mixed; boundary=\"xyz\"", body);
+
+    assertEquals(2, parts.size());
+    assertEquals("first", text(parts.get(0)));
+    assertEquals("second", text(parts.get(1)));
+    assertThrows(IOException.class, () -> MultipartParts.split("image/jpeg", body));
+  }
+
+  private List<CompletableFuture<byte[]>> submitUntilBatched(DefaceBatcher batcher) {
+    List<CompletableFuture<byte[]>> results = new ArrayList<>();
+    for (int i = 0; batchSizes.isEmpty(); i++) {
+      assertTrue(i < 100, "no batch was formed");
+      results.add(batcher.submit(bytes("image-" + i), "blur", "hard"));
+    }
+    return results;
+  }
+
+  private CompletableFuture<List<byte[]>> echoBatch(String filterName, String pasteStyle, List<byte[]> images) {
+    batchSizes.add(images.size());
+    List<byte[]> processed = new ArrayList<>();
+    for (byte[] image : images) {
+      processed.add(echo(image, filterName, pasteStyle));
+    }
+    return CompletableFuture.completedFuture(processed);
+  }
+
+  private static byte[] noRetry(byte[] image, String filterName, String pasteStyle, IOException failure)
+      throws IOException {
+    throw failure;
+  }
+
+  private static byte[] echo(byte[] image, String filterName, String pasteStyle) {
+    return bytes("done:" + text(image));
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String text(byte[] value) {
+    return new String(value, StandardCharsets.UTF_8);
+  }
+}
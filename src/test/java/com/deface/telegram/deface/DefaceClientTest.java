@@ -0,0 +1,201 @@
+package com.deface.telegram.deface;
+
+import com.deface.telegram.config.AppConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DefaceClientTest {
+  private HttpServer server;
+  private final AtomicReference<String> lastQuery = new AtomicReference<>();
+  private final AtomicReference<byte[]> lastBody = new AtomicReference<>();
+  private volatile int status = 200;
+  private volatile long delayMillis;
+  private final AtomicInteger failuresBeforeSuccess = new AtomicInteger();
+
+  @BeforeEach
+  void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/deface-image", exchange -> {
+      lastQuery.set(exchange.getRequestURI().getQuery());
+      byte[] body = exchange.getRequestBody().readAllBytes();
+      lastBody.set(body);
+      if (delayMillis > 0) {
+        try {
+          Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      int code = failuresBeforeSuccess.getAndUpdate(left -> Math.max(0, left - 1)) > 0 ? 503 : status;
+      byte[] response = code == 200 ? "processed".getBytes(StandardCharsets.UTF_8) : new byte[0];
+      exchange.sendResponseHeaders(code, response.length == 0 ? -1 : response.length);
+      exchange.getResponseBody().write(response);
+      exchange.close();
+    });
+    server.start();
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  void streamsMultipartBodyAndResponse() throws Exception {
+    DefaceClient client = new DefaceClient(config());
+    byte[] image = "jpeg-bytes".getBytes(StandardCharsets.UTF_8);
+
+    DefaceBackend backend = client.backendPool().backends().get(0);
+    try (InputStream processed = client.defaceImageStream(new ByteArrayInputStream(image), image.length,
+        "pixelate", "hard")) {
+      assertEquals(1, backend.outstanding());
+      assertArrayEquals("processed".getBytes(StandardCharsets.UTF_8), processed.readAllBytes());
+      assertEquals(1, backend.outstanding());
+    }
+    assertEquals(0, backend.outstanding());
+
+    assertEquals("filter_name=pixelate&paste_ellipse_name=hard", lastQuery.get());
+    String body = new String(lastBody.get(), StandardCharsets.UTF_8);
+    assertTrue(body.startsWith("--"));
+    assertTrue(body.contains("name=\"input_file\"; filename=\"image.jpg\"\r\n"));
+    assertTrue(body.contains("\r\n\r\njpeg-bytes\r\n--"));
+    assertTrue(body.endsWith("--\r\n"));
+  }
+
+  @Test
+  void bufferedAndStreamingPathsSendIdenticalBodies() throws Exception {
+    DefaceClient client = new DefaceClient(config());
+    byte[] image = new byte[64 * 1024];
+    for (int i = 0; i < image.length; i++) {
+      image[i] = (byte) i;
+    }
+
+    client.defaceImage(image, "blur", "feathered");
+    byte[] buffered = lastBody.get();
+    client.defaceImageStream(new ByteArrayInputStream(image), -1, "blur", "feathered").close();
+
+    assertArrayEquals(buffered, lastBody.get());
+  }
+
+  @Test
+  void failsOnErrorStatus() {
+    status = 500;
+    DefaceClient client = new DefaceClient(config());
+    assertThrows(IOException.class, () -> client.defaceImage(new byte[] {1}, "blur", "feathered"));
+  }
+
+  @Test
+  void retriesTransientServerErrors() throws Exception {
+    failuresBeforeSuccess.set(2);
+    DefaceClient client = new DefaceClient(config());
+    assertArrayEquals("processed".getBytes(StandardCharsets.UTF_8),
+        client.defaceImage(new byte[] {1}, "blur", "feathered"));
+  }
+
+  @Test
+  void doesNotRetryClientErrors() {
+    status = 422;
+    DefaceClient client = new DefaceClient(config());
+    DefaceStatusException error = assertThrows(DefaceStatusException.class,
+        () -> client.defaceImage(new byte[] {1}, "blur", "feathered"));
+    assertEquals(422, error.statusCode());
+    assertEquals(CircuitBreaker.State.CLOSED, client.circuitState());
+  }
+
+  @Test
+  void warmUpStaysOutOfTheBreakerAndBackendStats() throws Exception {
+    DefaceClient client = new DefaceClient(AppConfig.load(Map.of(
+        "DEFACE_ENDPOINT", "http://127.0.0.1:" + server.getAddress().getPort() + "/deface-image",
+        "DEFACE_MAX_RETRIES", "0",
+        "DEFACE_CIRCUIT_WINDOW_SIZE", "1",
+        "DEFACE_CIRCUIT_MIN_CALLS", "1",
+        "TIMEOUT_MIN_SAMPLES", "1")));
+    client.warmUp(new byte[] {1}, "blur", "feathered");
+    assertEquals(-1, client.expectedLatencyMillis("blur", 1));
+
+    status = 500;
+    assertThrows(DefaceStatusException.class, () -> client.warmUp(new byte[] {1}, "blur", "feathered"));
+    assertThrows(DefaceStatusException.class, () -> client.warmUp(new byte[] {1}, "blur", "feathered"));
+    assertEquals(CircuitBreaker.State.CLOSED, client.circuitState());
+    DefaceBackend.Stats stats = client.backendPool().backends().get(0).stats();
+    assertEquals(0, stats.successes());
+    assertEquals(0, stats.failures());
+    assertEquals(0, stats.outstanding());
+  }
+
+  @Test
+  void recordsTimedOutCallsAtLeastAtTheirDeadline() {
+    delayMillis = 300;
+    Map<String, String> settings = Map.of(
+        "DEFACE_ENDPOINT", "http://127.0.0.1:" + server.getAddress().getPort() + "/deface-image",
+        "DEFACE_MAX_RETRIES", "0",
+        "DEFACE_TIMEOUT_FLOOR_MS", "50",
+        "DEFACE_TIMEOUT_CEILING_MS", "100",
+        "TIMEOUT_MIN_SAMPLES", "1");
+    DefaceClient buffered = new DefaceClient(AppConfig.load(settings));
+    assertThrows(IOException.class, () -> buffered.defaceImage(new byte[] {1}, "blur", "feathered"));
+    assertTrue(buffered.expectedLatencyMillis("blur", 1) >= 100);
+
+    DefaceClient streaming = new DefaceClient(AppConfig.load(settings));
+    assertThrows(IOException.class,
+        () -> streaming.defaceImageStream(new ByteArrayInputStream(new byte[] {1}), 1, "blur", "feathered"));
+    assertTrue(streaming.expectedLatencyMillis("blur", 1) >= 100);
+  }
+
+  @Test
+  void interruptedHalfOpenProbeDoesNotWedgeTheBreaker() throws Exception {
+    status = 500;
+    DefaceClient client = new DefaceClient(AppConfig.load(Map.of(
+        "DEFACE_ENDPOINT", "http://127.0.0.1:" + server.getAddress().getPort() + "/deface-image",
+        "DEFACE_MAX_RETRIES", "0",
+        "DEFACE_CIRCUIT_WINDOW_SIZE", "1",
+        "DEFACE_CIRCUIT_MIN_CALLS", "1",
+        "DEFACE_CIRCUIT_OPEN_MS", "1")));
+    assertThrows(DefaceStatusException.class, () -> client.defaceImage(new byte[] {1}, "blur", "feathered"));
+    assertEquals(CircuitBreaker.State.OPEN, client.circuitState());
+
+    Thread.sleep(5);
+    status = 200;
+    delayMillis = 300;
+    AtomicReference<Throwable> probeError = new AtomicReference<>();
+    Thread probe = Thread.ofVirtual().start(() -> {
+      try {
+        client.defaceImage(new byte[] {1}, "blur", "feathered");
+      } catch (Throwable e) {
+        probeError.set(e);
+      }
+    });
+    Thread.sleep(100);
+    probe.interrupt();
+    probe.join();
+    assertTrue(probeError.get() instanceof InterruptedException);
+
+    delayMillis = 0;
+    Thread.sleep(5);
+    assertArrayEquals("processed".getBytes(StandardCharsets.UTF_8),
+        client.defaceImage(new byte[] {1}, "blur", "feathered"));
+    assertEquals(CircuitBreaker.State.CLOSED, client.circuitState());
+  }
+
+  private AppConfig config() {
+    return AppConfig.load(Map.of(
+        "DEFACE_ENDPOINT", "http://127.0.0.1:" + server.getAddress().getPort() + "/deface-image",
+        "DEFACE_RETRY_BASE_DELAY_MS", "1"));
+  }
+}
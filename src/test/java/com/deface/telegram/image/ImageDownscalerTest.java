@@ -0,0 +1,55 @@
+package com.deface.telegram.image;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageDownscalerTest {
+  @Test
+  void shrinksLongestSideToLimitAndKeepsAspectRatio() throws IOException {
+    byte[] original = png(1600, 1200);
+
+    byte[] downscaled = new ImageDownscaler(400, 85).downscale(original);
+
+    BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(downscaled));
+    assertEquals(400, decoded.getWidth());
+    assertEquals(300, decoded.getHeight());
+    assertTrue(downscaled.length < original.length);
+  }
+
+  @Test
+  void leavesSmallOrUnreadableImagesUntouched() throws IOException {
+    byte[] small = png(200, 100);
+    byte[] garbage = {1, 2, 3, 4};
+    ImageDownscaler downscaler = new ImageDownscaler(400, 85);
+
+    assertSame(small, downscaler.downscale(small));
+    assertSame(garbage, downscaler.downscale(garbage));
+    assertSame(small, new ImageDownscaler(0, 85).downscale(small));
+    assertEquals("400px-q85", downscaler.variant());
+    assertEquals(ImageDownscaler.ORIGINAL, new ImageDownscaler(0, 85).variant());
+  }
+
+  private static byte[] png(int width, int height) throws IOException {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    for (int x = 0; x < width; x += 20) {
+      graphics.setColor(new Color(x % 256, (x * 7) % 256, (x * 13) % 256));
+      graphics.fillRect(x, 0, 20, height);
+    }
+    graphics.dispose();
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", buffer);
+    return buffer.toByteArray();
+  }
+}
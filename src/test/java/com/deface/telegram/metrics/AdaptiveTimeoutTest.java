@@ -0,0 +1,49 @@
+package com.deface.telegram.metrics;
+
+import com.deface.telegram.config.AppConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveTimeoutTest {
+  private static final AppConfig.TimeoutSettings SETTINGS = new AppConfig.TimeoutSettings(
+      Duration.ofSeconds(1), Duration.ofMillis(500), Duration.ofSeconds(60), 99, 200, 5, Duration.ofMinutes(5));
+
+  @Test
+  void usesCeilingUntilEnoughSamplesThenTracksPercentiles() {
+    AdaptiveTimeout timeouts = new AdaptiveTimeout(SETTINGS);
+    assertEquals(Duration.ofSeconds(60), timeouts.timeoutFor("blur", 100_000));
+
+    for (int i = 0; i < 10; i++) {
+      timeouts.record("blur", 100_000, TimeUnit.MILLISECONDS.toNanos(40));
+      timeouts.record("facet_effect", 100_000, TimeUnit.SECONDS.toNanos(20));
+    }
+
+    assertEquals(Duration.ofMillis(500), timeouts.timeoutFor("blur", 100_000));
+    Duration slow = timeouts.timeoutFor("facet_effect", 100_000);
+    assertTrue(slow.compareTo(Duration.ofSeconds(40)) >= 0 && slow.compareTo(Duration.ofSeconds(60)) <= 0);
+    assertEquals(Duration.ofSeconds(60), timeouts.timeoutFor("facet_effect", 8_000_000));
+  }
+
+  @Test
+  void rollingHistogramForgetsSamplesOlderThanTwoWindows() {
+    AtomicLong clock = new AtomicLong();
+    RollingLatencyHistogram histogram = new RollingLatencyHistogram(1_000, clock::get);
+    histogram.recordNanos(TimeUnit.SECONDS.toNanos(10));
+    assertEquals(1, histogram.count());
+
+    clock.set(TimeUnit.MILLISECONDS.toNanos(1_500));
+    histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(10));
+    assertEquals(2, histogram.count());
+    assertTrue(histogram.percentileMillis(1.0) >= 10_000);
+
+    clock.set(TimeUnit.MILLISECONDS.toNanos(2_500));
+    assertEquals(1, histogram.count());
+    assertTrue(histogram.percentileMillis(1.0) < 20);
+  }
+}
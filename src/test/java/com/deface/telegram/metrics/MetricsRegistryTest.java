@@ -0,0 +1,45 @@
+package com.deface.telegram.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsRegistryTest {
+  @Test
+  void rendersPrometheusTextFormat() {
+    MetricsRegistry registry = new MetricsRegistry();
+    LongAdder bytesIn = registry.counter("bytes_total", "Bytes", "direction", "in");
+    registry.counter("bytes_total", "Bytes", "direction", "out").add(7);
+    registry.gauge("queue_depth", "Queue depth", () -> 3);
+    LatencyHistogram latency = registry.histogram("stage_seconds", "Stage time", "stage", "download");
+    bytesIn.add(42);
+    latency.recordNanos(TimeUnit.MILLISECONDS.toNanos(3));
+    latency.recordNanos(TimeUnit.MILLISECONDS.toNanos(200));
+    latency.recordNanos(TimeUnit.SECONDS.toNanos(90));
+
+    String text = registry.scrape();
+
+    assertTrue(text.contains("# TYPE bytes_total counter\n"));
+    assertTrue(text.contains("bytes_total{direction=\"in\"} 42\n"));
+    assertTrue(text.contains("bytes_total{direction=\"out\"} 7\n"));
+    assertTrue(text.contains("# TYPE queue_depth gauge\nqueue_depth 3\n"));
+    assertTrue(text.contains("stage_seconds_bucket{stage=\"download\",le=\"0.005\"} 1\n"));
+    assertTrue(text.contains("stage_seconds_bucket{stage=\"download\",le=\"0.25\"} 2\n"));
+    assertTrue(text.contains("stage_seconds_bucket{stage=\"download\",le=\"60\"} 2\n"));
+    assertTrue(text.contains("stage_seconds_bucket{stage=\"download\",le=\"+Inf\"} 3\n"));
+    assertTrue(text.contains("stage_seconds_count{stage=\"download\"} 3\n"));
+  }
+
+  @Test
+  void rejectsDuplicateSeriesAndTypeConflicts() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("jobs_total", "Jobs", "lane", "photo");
+
+    assertThrows(IllegalArgumentException.class, () -> registry.counter("jobs_total", "Jobs", "lane", "photo"));
+    assertThrows(IllegalArgumentException.class, () -> registry.gauge("jobs_total", "Jobs", () -> 1));
+  }
+}
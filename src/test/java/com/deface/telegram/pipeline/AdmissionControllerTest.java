@@ -0,0 +1,96 @@
+package com.deface.telegram.pipeline;
+
+import com.deface.telegram.config.AppConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdmissionControllerTest {
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  void limitsEachChatWithoutAffectingOthers() {
+    AdmissionController admission = new AdmissionController(
+        new AppConfig.AdmissionSettings(60, 2, 100, 100, 100), clock::get);
+
+    assertEquals(AdmissionController.Decision.ADMITTED, admission.tryAdmit(1L));
+    assertEquals(AdmissionController.Decision.ADMITTED, admission.tryAdmit(1L));
+    assertEquals(AdmissionController.Decision.CHAT_RATE_LIMITED, admission.tryAdmit(1L));
+    assertEquals(AdmissionController.Decision.ADMITTED, admission.tryAdmit(2L));
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertEquals(AdmissionController.Decision.ADMITTED, admission.tryAdmit(1L));
+  }
+
+  @Test
+  void shedsLoadWhenQueueIsFullAndRecoversOnRelease() {
+    AdmissionController admission = new AdmissionController(
+        new AppConfig.AdmissionSettings(600, 10, 100, 100, 2), clock::get);
+
+    assertEquals(AdmissionController.Decision.ADMITTED, admission.tryAdmit(1L));
+    assertEquals(AdmissionController.Decision.ADMITTED, admission.tryAdmit(2L));
+    assertEquals(AdmissionController.Decision.QUEUE_FULL, admission.tryAdmit(3L));
+
+    admission.release();
+    assertEquals(AdmissionController.Decision.ADMITTED, admission.tryAdmit(3L));
+    AdmissionController.Snapshot snapshot = admission.snapshot();
+    assertEquals(2, snapshot.queuedJobs());
+    assertEquals(3, snapshot.admitted());
+    assertEquals(1, snapshot.rejected());
+  }
+
+  @Test
+  void chargesAlbumsOneTokenPerPhoto() {
+    AdmissionController admission = new AdmissionController(
+        new AppConfig.AdmissionSettings(60, 2, 100, 100, 100), clock::get);
+
+    assertEquals(AdmissionController.Decision.ADMITTED, admission.tryAdmit(1L, 4));
+    assertEquals(AdmissionController.Decision.CHAT_RATE_LIMITED, admission.tryAdmit(1L));
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    assertEquals(AdmissionController.Decision.CHAT_RATE_LIMITED, admission.tryAdmit(1L));
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertEquals(AdmissionController.Decision.ADMITTED, admission.tryAdmit(1L));
+  }
+
+  @Test
+  void refundsChatTokenWhenQueueOrGlobalLimitRejects() {
+    AdmissionController admission = new AdmissionController(
+        new AppConfig.AdmissionSettings(1, 1, 1, 1, 1), clock::get);
+
+    assertEquals(AdmissionController.Decision.ADMITTED, admission.tryAdmit(1L));
+    assertEquals(AdmissionController.Decision.QUEUE_FULL, admission.tryAdmit(2L));
+    admission.release();
+    assertEquals(AdmissionController.Decision.GLOBAL_RATE_LIMITED, admission.tryAdmit(2L));
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertEquals(AdmissionController.Decision.ADMITTED, admission.tryAdmit(2L));
+  }
+
+  @Test
+  void removesIdleChatBucketsAtMostOncePerInterval() {
+    AdmissionController admission = new AdmissionController(
+        new AppConfig.AdmissionSettings(600, 1, 1_000_000, 1_000_000, 1_000_000), clock::get);
+    for (long chatId = 0; chatId <= 10_000; chatId++) {
+      admission.tryAdmit(chatId);
+    }
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+    admission.tryAdmit(-1L);
+    assertEquals(1, admission.trackedChats());
+
+    for (long chatId = 0; chatId <= 10_000; chatId++) {
+      admission.tryAdmit(chatId);
+    }
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    admission.tryAdmit(-2L);
+    assertEquals(10_003, admission.trackedChats());
+
+    clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+    admission.tryAdmit(-3L);
+    assertEquals(1, admission.trackedChats());
+  }
+}
@@ -0,0 +1,84 @@
+package com.deface.telegram.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExecutionLaneTest {
+  @Test
+  void boundsConcurrencyAndRejectsBeyondQueueCapacity() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(2);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger peak = new AtomicInteger();
+    try (ExecutionLane lane = new ExecutionLane("test", 2, 4)) {
+      for (int i = 0; i < 4; i++) {
+        assertTrue(lane.tryExecute(() -> {
+          peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          running.decrementAndGet();
+        }));
+      }
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      assertFalse(lane.tryExecute(() -> {
+      }));
+
+      ExecutionLane.Stats stats = lane.stats();
+      assertEquals(2, stats.active());
+      assertEquals(2, stats.queued());
+      assertEquals(1, stats.rejected());
+
+      release.countDown();
+    }
+    assertEquals(2, peak.get());
+  }
+
+  @Test
+  void keepsRunningAfterTaskFailure() throws Exception {
+    CountDownLatch done = new CountDownLatch(1);
+    try (ExecutionLane lane = new ExecutionLane("test", 1, 10)) {
+      lane.execute(() -> {
+        throw new IllegalStateException("boom");
+      });
+      lane.execute(done::countDown);
+      assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  void runsNowOnlyWhenAPermitIsFree() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch ran = new CountDownLatch(1);
+    try (ExecutionLane lane = new ExecutionLane("test", 1, 10)) {
+      assertTrue(lane.tryRunNow(() -> {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }));
+      assertFalse(lane.tryRunNow(ran::countDown));
+      assertEquals(1, lane.stats().active() + lane.stats().queued());
+
+      release.countDown();
+      lane.execute(() -> { });
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (!lane.tryRunNow(ran::countDown)) {
+        assertTrue(System.nanoTime() < deadline, "permit not returned in time");
+        Thread.sleep(5);
+      }
+      assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+  }
+}
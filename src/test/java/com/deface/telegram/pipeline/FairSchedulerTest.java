@@ -0,0 +1,76 @@
+package com.deface.telegram.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FairSchedulerTest {
+  private static final FairScheduler.CostModel COSTS = (filterName, sizeBytes) ->
+      filterName.equals("facet_effect") ? 5_000 : 100;
+
+  @Test
+  void cheapFilterOvertakesQueuedExpensiveJobs() throws Exception {
+    FairScheduler scheduler = new FairScheduler(1, Map.of(), COSTS);
+    List<String> order = new CopyOnWriteArrayList<>();
+    FairScheduler.Permit held = scheduler.acquire("facet_effect", 1024);
+    List<Thread> waiters = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      waiters.add(startWaiter(scheduler, "facet_effect", order));
+      int queued = i + 1;
+      awaitTrue(() -> scheduler.queued("facet_effect") == queued);
+    }
+    waiters.add(startWaiter(scheduler, "blur", order));
+    awaitTrue(() -> scheduler.queued("blur") == 1);
+
+    held.close();
+    for (Thread waiter : waiters) {
+      waiter.join(TimeUnit.SECONDS.toMillis(5));
+    }
+    assertEquals(List.of("blur", "facet_effect", "facet_effect", "facet_effect"), order);
+    assertEquals(0, scheduler.running());
+  }
+
+  @Test
+  void perFilterLimitLeavesCapacityForOtherFilters() throws Exception {
+    FairScheduler scheduler = new FairScheduler(2, Map.of("facet_effect", 1), COSTS);
+    List<String> order = new CopyOnWriteArrayList<>();
+    FairScheduler.Permit held = scheduler.acquire("facet_effect", 1024);
+    Thread waiter = startWaiter(scheduler, "facet_effect", order);
+    awaitTrue(() -> scheduler.queued("facet_effect") == 1);
+
+    try (FairScheduler.Permit cheap = scheduler.acquire("blur", 1024)) {
+      assertEquals(1, scheduler.running("blur"));
+      assertEquals(1, scheduler.running("facet_effect"));
+      assertTrue(order.isEmpty());
+    }
+    held.close();
+    waiter.join(TimeUnit.SECONDS.toMillis(5));
+    assertEquals(List.of("facet_effect"), order);
+  }
+
+  private static Thread startWaiter(FairScheduler scheduler, String filterName, List<String> order) {
+    return Thread.ofVirtual().start(() -> {
+      try (FairScheduler.Permit permit = scheduler.acquire(filterName, 1024)) {
+        order.add(filterName);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+  }
+
+  private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "condition not met within 5s");
+      Thread.sleep(5);
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package com.deface.telegram.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobTraceTest {
+  @Test
+  void traceCrossesThreadsOnlyWhenCarried() throws Exception {
+    JobTrace trace = JobTrace.begin(42);
+    try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+      assertTrue(executor.submit(JobTrace::current).get(5, TimeUnit.SECONDS).isEmpty());
+
+      Optional<JobTrace> carried = executor.submit(JobTrace.carry(JobTrace::current)).get(5, TimeUnit.SECONDS);
+      assertEquals(Optional.of(trace), carried);
+      assertTrue(executor.submit(JobTrace::current).get(5, TimeUnit.SECONDS).isEmpty());
+    } finally {
+      JobTrace.end();
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package com.deface.telegram.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryBudgetTest {
+  @Test
+  void refusesReservationsBeyondCapacityUntilReleased() {
+    MemoryBudget budget = new MemoryBudget(100);
+
+    assertTrue(budget.tryReserve(60));
+    assertFalse(budget.tryReserve(50));
+    assertTrue(budget.tryReserve(40));
+    assertEquals(100, budget.reservedBytes());
+
+    budget.release(60);
+    assertTrue(budget.tryReserve(50));
+    assertEquals(90, budget.reservedBytes());
+  }
+}
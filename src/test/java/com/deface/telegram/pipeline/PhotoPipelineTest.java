@@ -0,0 +1,130 @@
+package com.deface.telegram.pipeline;
+
+import com.deface.telegram.config.AppConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhotoPipelineTest {
+  @Test
+  void keepsPerChatOrderWhileOtherChatsProceed() throws Exception {
+    try (PhotoPipeline pipeline = new PhotoPipeline(AppConfig.load())) {
+      CountDownLatch release = new CountDownLatch(1);
+      List<Integer> chatOne = new CopyOnWriteArrayList<>();
+
+      CompletableFuture<Void> blocked = pipeline.submit(1L, () -> {
+        awaitQuietly(release);
+        chatOne.add(0);
+      });
+      for (int i = 1; i <= 5; i++) {
+        int index = i;
+        pipeline.submit(1L, () -> chatOne.add(index));
+      }
+      CompletableFuture<Void> otherChat = pipeline.submit(2L, () -> { });
+
+      otherChat.get(5, TimeUnit.SECONDS);
+      assertTrue(chatOne.isEmpty());
+
+      release.countDown();
+      blocked.get(5, TimeUnit.SECONDS);
+      pipeline.submit(1L, () -> { }).get(5, TimeUnit.SECONDS);
+      assertEquals(List.of(0, 1, 2, 3, 4, 5), chatOne);
+    }
+  }
+
+  @Test
+  void failingJobDoesNotBlockFollowingJobs() throws Exception {
+    try (PhotoPipeline pipeline = new PhotoPipeline(AppConfig.load())) {
+      pipeline.submit(7L, () -> {
+        throw new IllegalStateException("boom");
+      });
+      CompletableFuture<Void> next = pipeline.submit(7L, () -> { });
+      next.get(5, TimeUnit.SECONDS);
+      assertTrue(next.isDone() && !next.isCompletedExceptionally());
+    }
+  }
+
+  @Test
+  void recordsSlowJobsWithStageBreakdown() throws Exception {
+    AppConfig config = AppConfig.load(Map.of("SLOW_JOB_THRESHOLD_MS", "0", "SLOW_JOB_BUFFER_SIZE", "2"));
+    try (PhotoPipeline pipeline = new PhotoPipeline(config)) {
+      pipeline.submit(4L, () -> { }).get(5, TimeUnit.SECONDS);
+      pipeline.submit(5L, () -> { }).get(5, TimeUnit.SECONDS);
+      String[] refId = new String[1];
+      pipeline.submit(3L, () -> {
+        JobTrace.describe("blur", "hard");
+        try {
+          pipeline.stage(PhotoPipeline.Stage.DOWNLOAD, () -> new byte[128]);
+          pipeline.stage(PhotoPipeline.Stage.DEFACE, () -> {
+            Thread.sleep(20);
+            return new byte[64];
+          });
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+        refId[0] = JobTrace.markFailed(new IllegalStateException("upload rejected"));
+      }).get(5, TimeUnit.SECONDS);
+
+      List<JobTrace.Summary> slowest = pipeline.slowJobs().slowest();
+      assertEquals(2, slowest.size());
+      JobTrace.Summary job = slowest.get(0);
+      assertEquals(refId[0], job.refId());
+      assertEquals(3L, job.chatId());
+      assertEquals("blur", job.filterName());
+      assertEquals(128L, job.stageBytes().get(PhotoPipeline.Stage.DOWNLOAD));
+      assertEquals(64L, job.stageBytes().get(PhotoPipeline.Stage.DEFACE));
+      assertTrue(job.stageMillis().get(PhotoPipeline.Stage.DEFACE) >= 20);
+      assertEquals("IllegalStateException", job.failure());
+      assertTrue(pipeline.slowJobs().dump(true).startsWith(refId[0]));
+      assertTrue(pipeline.slowJobs().dump(true).contains(" chat=3 "));
+      assertFalse(pipeline.slowJobs().dump(false).contains("chat="));
+    }
+  }
+
+  @Test
+  void streamStageHoldsItsPermitUntilTheStreamIsClosed() throws Exception {
+    AppConfig config = AppConfig.load(Map.of("PIPELINE_DEFACE_CONCURRENCY", "1"));
+    try (PhotoPipeline pipeline = new PhotoPipeline(config)) {
+      AtomicBoolean secondRan = new AtomicBoolean();
+      Thread second;
+      try (InputStream stream = pipeline.streamStage(PhotoPipeline.Stage.DEFACE, "blur", 1,
+          () -> new ByteArrayInputStream(new byte[] {1}))) {
+        second = Thread.ofVirtual().start(() -> {
+          try {
+            pipeline.stage(PhotoPipeline.Stage.DEFACE, "blur", 1, () -> {
+              secondRan.set(true);
+              return null;
+            });
+          } catch (Exception e) {
+            throw new IllegalStateException(e);
+          }
+        });
+        assertEquals(1, stream.read());
+        Thread.sleep(100);
+        assertFalse(secondRan.get());
+      }
+      second.join(TimeUnit.SECONDS.toMillis(5));
+      assertTrue(secondRan.get());
+    }
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
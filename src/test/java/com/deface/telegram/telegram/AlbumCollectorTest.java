@@ -0,0 +1,81 @@
+package com.deface.telegram.telegram;
+
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AlbumCollectorTest {
+  private final LinkedBlockingQueue<List<Message>> albums = new LinkedBlockingQueue<>();
+
+  @Test
+  void deliversAlbumInMessageOrderAfterWindow() throws Exception {
+    try (AlbumCollector collector = new AlbumCollector(Duration.ofMillis(50), this::collect)) {
+      collector.add(message(1L, "g1", 12));
+      collector.add(message(1L, "g1", 10));
+      collector.add(message(2L, "g1", 30));
+      collector.add(message(1L, "g1", 11));
+
+      List<Message> first = albums.poll(5, TimeUnit.SECONDS);
+      List<Message> second = albums.poll(5, TimeUnit.SECONDS);
+      assertNotNull(first);
+      assertNotNull(second);
+      List<Message> chatOne = first.get(0).getChatId() == 1L ? first : second;
+      assertEquals(List.of(10, 11, 12), chatOne.stream().map(Message::getMessageId).toList());
+      assertEquals(0, collector.pendingAlbums());
+    }
+  }
+
+  @Test
+  void deliversFullAlbumWithoutWaiting() throws Exception {
+    try (AlbumCollector collector = new AlbumCollector(Duration.ofMinutes(1), this::collect)) {
+      for (int i = AlbumCollector.MAX_ALBUM_SIZE; i > 0; i--) {
+        collector.add(message(1L, "full", i));
+      }
+
+      List<Message> album = albums.poll(1, TimeUnit.SECONDS);
+      assertNotNull(album);
+      assertEquals(AlbumCollector.MAX_ALBUM_SIZE, album.size());
+      assertEquals(1, album.get(0).getMessageId());
+      assertNull(albums.poll(100, TimeUnit.MILLISECONDS));
+    }
+  }
+
+  @Test
+  void completesEveryPhotoWhenTheAlbumJobFinishes() throws Exception {
+    CompletableFuture<Void> job = new CompletableFuture<>();
+    try (AlbumCollector collector = new AlbumCollector(Duration.ofMillis(20), album -> job)) {
+      CompletableFuture<Void> first = collector.add(message(1L, "g1", 1));
+      CompletableFuture<Void> second = collector.add(message(1L, "g1", 2));
+
+      Thread.sleep(100);
+      assertFalse(first.isDone());
+      job.complete(null);
+      first.get(5, TimeUnit.SECONDS);
+      second.get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  private CompletableFuture<Void> collect(List<Message> album) {
+    albums.add(album);
+    return CompletableFuture.completedFuture(null);
+  }
+
+  private static Message message(long chatId, String mediaGroupId, int messageId) {
+    Message message = new Message();
+    message.setChat(new Chat(chatId, "private"));
+    message.setMediaGroupId(mediaGroupId);
+    message.setMessageId(messageId);
+    return message;
+  }
+}
@@ -0,0 +1,81 @@
+package com.deface.telegram.telegram;
+
+import com.deface.telegram.pipeline.ExecutionLane;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ChatSequencerTest {
+  @Test
+  void runsEachChatInSubmissionOrderAcrossExecutors() throws Exception {
+    ChatSequencer sequencer = new ChatSequencer();
+    List<Integer> order = new CopyOnWriteArrayList<>();
+    try (ExecutionLane lane = new ExecutionLane("test", 4, 100)) {
+      CompletableFuture<Void> last = null;
+      for (int i = 0; i < 20; i++) {
+        int index = i;
+        Runnable task = () -> {
+          sleepQuietly(ThreadLocalRandom.current().nextInt(3));
+          order.add(index);
+        };
+        last = sequencer.submit(1L, task, i % 3 == 0 ? Runnable::run : lane);
+      }
+      last.get(5, TimeUnit.SECONDS);
+    }
+    assertEquals(IntStream.range(0, 20).boxed().toList(), order);
+  }
+
+  @Test
+  void failedTaskDoesNotBlockTheChat() throws Exception {
+    ChatSequencer sequencer = new ChatSequencer();
+    List<String> order = new CopyOnWriteArrayList<>();
+    try (ExecutionLane lane = new ExecutionLane("test", 2, 100)) {
+      sequencer.submit(1L, () -> {
+        throw new IllegalStateException("boom");
+      }, lane);
+      sequencer.submit(1L, () -> order.add("next"), lane).get(5, TimeUnit.SECONDS);
+    }
+    assertEquals(List.of("next"), order);
+  }
+
+  @Test
+  void albumPhotosShareASlotAndHoldLaterUpdatesUntilTheAlbumFinishes() throws Exception {
+    ChatSequencer sequencer = new ChatSequencer();
+    List<String> order = new CopyOnWriteArrayList<>();
+    CompletableFuture<Void> album = new CompletableFuture<>();
+    sequencer.submit(1L, "g1", () -> {
+      order.add("album:1");
+      return album;
+    }, Runnable::run);
+    sequencer.submit(1L, "g1", () -> {
+      order.add("album:2");
+      return album;
+    }, Runnable::run);
+    CompletableFuture<Void> single = sequencer.submit(1L, null, () -> {
+      order.add("single");
+      return CompletableFuture.completedFuture(null);
+    }, Runnable::run);
+
+    assertEquals(List.of("album:1", "album:2"), order);
+    assertFalse(single.isDone());
+    album.complete(null);
+    single.get(5, TimeUnit.SECONDS);
+    assertEquals(List.of("album:1", "album:2", "single"), order);
+  }
+
+  private static void sleepQuietly(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package com.deface.telegram.telegram;
+
+import com.deface.telegram.config.AppConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatSettingsStoreTest {
+  @Test
+  void settingsSurviveRestart(@TempDir Path directory) {
+    AppConfig config = config(directory, 1 << 16);
+    try (ChatSettingsStore store = new ChatSettingsStore(config)) {
+      store.updateFilter(1L, "pixelate");
+      store.updatePasteStyle(2L, "hard");
+      store.updatePasteStyle(1L, "hard");
+      store.updateFilter(3L, "pixelate");
+      store.updateFilter(3L, "blur");
+    }
+
+    try (ChatSettingsStore reopened = new ChatSettingsStore(config)) {
+      assertEquals(new ChatSettingsStore.ChatSettings("pixelate", "hard"), reopened.get(1L));
+      assertEquals(new ChatSettingsStore.ChatSettings("blur", "hard"), reopened.get(2L));
+      assertEquals(new ChatSettingsStore.ChatSettings("blur", "feathered"), reopened.get(3L));
+      assertEquals(2, reopened.size());
+    }
+  }
+
+  @Test
+  void defaultsAreSharedAndNotStored() {
+    try (ChatSettingsStore store = new ChatSettingsStore(AppConfig.load(Map.of()))) {
+      assertSame(store.get(1L), store.get(2L));
+      store.updateFilter(3L, "pixelate");
+      store.updatePasteStyle(4L, "feathered");
+      assertEquals(1, store.size());
+      store.updateFilter(3L, "blur");
+      assertEquals(0, store.size());
+      assertSame(store.get(1L), store.get(3L));
+    }
+  }
+
+  @Test
+  void rollsLogIntoSnapshotAndReplaysTail(@TempDir Path directory) throws IOException {
+    AppConfig config = config(directory, 4096);
+    try (ChatSettingsStore store = new ChatSettingsStore(config)) {
+      for (long chatId = 0; chatId < 2_000; chatId++) {
+        store.updateFilter(chatId, "pixelate");
+      }
+    }
+    assertTrue(Files.exists(directory.resolve("chat-settings.snapshot")));
+    try (var files = Files.list(directory)) {
+      assertTrue(files.filter(file -> file.toString().endsWith(".log")).count() <= 2);
+    }
+
+    try (ChatSettingsStore reopened = new ChatSettingsStore(config)) {
+      assertEquals(2_000, reopened.size());
+      assertEquals("pixelate", reopened.get(1_999L).filterName());
+    }
+  }
+
+  @Test
+  void recoversWritesDroppedByAFailedRoll(@TempDir Path directory) throws IOException {
+    AppConfig config = config(directory, 4096);
+    try (ChatSettingsStore store = new ChatSettingsStore(config)) {
+      Path blocked = Files.createDirectories(directory.resolve("chat-settings-2.log"));
+      for (long chatId = 0; chatId < 200; chatId++) {
+        store.updateFilter(chatId, "pixelate");
+      }
+      Files.delete(blocked);
+      for (long chatId = 200; chatId < 300; chatId++) {
+        store.updateFilter(chatId, "pixelate");
+      }
+    }
+
+    try (ChatSettingsStore reopened = new ChatSettingsStore(config)) {
+      assertEquals(300, reopened.size());
+      assertEquals("pixelate", reopened.get(199L).filterName());
+      assertEquals("pixelate", reopened.get(299L).filterName());
+    }
+  }
+
+  @Test
+  void stopsReplayAtTornRecord(@TempDir Path directory) throws IOException {
+    AppConfig config = config(directory, 1 << 16);
+    try (ChatSettingsStore store = new ChatSettingsStore(config)) {
+      store.updateFilter(1L, "pixelate");
+      store.updateFilter(2L, "pixelate");
+    }
+    Path log;
+    try (var files = Files.list(directory)) {
+      log = files.filter(file -> file.toString().endsWith(".log")).findFirst().orElseThrow();
+    }
+    try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+      int recordBytes = 8 + 8 + 2 + "pixelate".length() + 2 + "feathered".length();
+      channel.write(ByteBuffer.wrap(new byte[] {0x7f}), recordBytes + 12);
+    }
+
+    try (ChatSettingsStore reopened = new ChatSettingsStore(config)) {
+      assertEquals("pixelate", reopened.get(1L).filterName());
+      assertEquals("blur", reopened.get(2L).filterName());
+    }
+  }
+
+  private static AppConfig config(Path directory, long logBytes) {
+    return AppConfig.load(Map.of(
+        "CHAT_SETTINGS_DIR", directory.toString(),
+        "CHAT_SETTINGS_LOG_BYTES", String.valueOf(logBytes)
+    ));
+  }
+}
@@ -0,0 +1,39 @@
+package com.deface.telegram.telegram;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatSettingsTableTest {
+  @Test
+  void behavesLikeAMapAcrossGrowthAndRemovals() {
+    ChatSettingsTable table = new ChatSettingsTable();
+    Map<Long, Integer> expected = new HashMap<>();
+    for (long chatId = -5_000; chatId < 5_000; chatId++) {
+      table.put(chatId * 7919, (int) Math.floorMod(chatId, 5));
+      expected.put(chatId * 7919, (int) Math.floorMod(chatId, 5));
+    }
+    for (long chatId = -5_000; chatId < 5_000; chatId += 3) {
+      assertTrue(table.remove(chatId * 7919));
+      expected.remove(chatId * 7919);
+    }
+    assertFalse(table.remove(42L));
+    table.put(0L, 9);
+    expected.put(0L, 9);
+
+    assertEquals(expected.size(), table.size());
+    for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+      assertEquals(entry.getValue(), table.get(entry.getKey()));
+    }
+    assertEquals(-1, table.get(3L));
+
+    Map<Long, Integer> iterated = new HashMap<>();
+    table.forEach(iterated::put);
+    assertEquals(expected, iterated);
+  }
+}
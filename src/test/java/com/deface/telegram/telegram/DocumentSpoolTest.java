@@ -0,0 +1,117 @@
+package com.deface.telegram.telegram;
+
+import com.deface.telegram.config.AppConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.telegram.telegrambots.meta.api.objects.Document;
+import org.telegram.telegrambots.meta.api.objects.Message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DocumentSpoolTest {
+  private static final long MB = 1024 * 1024;
+
+  @TempDir
+  Path spillDir;
+
+  @Test
+  void rejectsDocumentsAboveTheConfiguredLimit() throws Exception {
+    DocumentSpool spool = spool(20 * MB, 5 * MB, 20 * MB);
+
+    assertFalse(spool.tooLarge(20 * MB));
+    assertTrue(spool.tooLarge(20 * MB + 1));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertEquals(4, DocumentSpool.copyBounded(new ByteArrayInputStream(new byte[4]), out, 4));
+    assertThrows(IOException.class,
+        () -> DocumentSpool.copyBounded(new ByteArrayInputStream(new byte[5]), new ByteArrayOutputStream(), 4));
+  }
+
+  @Test
+  void keepsSmallDocumentsOnTheHeapWhileTheBudgetAllows() {
+    DocumentSpool spool = spool(20 * MB, 5 * MB, 12 * MB);
+
+    Optional<DocumentSpool.Reservation> first = spool.reserveHeap(4 * MB);
+    assertTrue(first.isPresent());
+    assertEquals(8 * MB, spool.reservedBytes());
+    assertTrue(spool.reserveHeap(4 * MB).isEmpty(), "budget exhausted");
+    assertTrue(spool.reserveHeap(6 * MB).isEmpty(), "above spill threshold");
+    assertTrue(spool.reserveHeap(-1).isEmpty(), "unknown size");
+
+    first.get().close();
+    first.get().close();
+    assertEquals(0, spool.reservedBytes());
+    assertTrue(spool.reserveHeap(4 * MB).isPresent());
+  }
+
+  @Test
+  void growsTheHeapReservationOnlyWhileTheBudgetAllows() throws Exception {
+    DocumentSpool spool = spool(20 * MB, 5 * MB, 10 * MB);
+    DocumentSpool.Reservation reservation = spool.reserveHeap(4 * MB).orElseThrow();
+
+    assertEquals(4 * MB, reservation.read(new ByteArrayInputStream(new byte[(int) (4 * MB)])).length);
+    assertEquals(5 * MB, reservation.read(new ByteArrayInputStream(new byte[(int) (5 * MB)])).length);
+    assertEquals(9 * MB, spool.reservedBytes());
+    assertThrows(IOException.class, () -> reservation.read(new ByteArrayInputStream(new byte[(int) (2 * MB)])));
+
+    reservation.close();
+    assertEquals(0, spool.reservedBytes());
+  }
+
+  @Test
+  void deletesTempFilesWhenProcessingFails() throws Exception {
+    DocumentSpool spool = spool(20 * MB, 5 * MB, 20 * MB);
+    List<Path> created = new ArrayList<>();
+
+    assertThrows(IOException.class, () -> spool.spill((input, output) -> {
+      created.add(input);
+      created.add(output);
+      DocumentSpool.write(new ByteArrayInputStream(new byte[16]), input, 16);
+      throw new IOException("deface failed");
+    }));
+
+    assertEquals(2, created.size());
+    for (Path path : created) {
+      assertEquals(spillDir, path.getParent());
+    }
+    try (Stream<Path> left = Files.list(spillDir)) {
+      assertEquals(0, left.count());
+    }
+  }
+
+  @Test
+  void recognisesImageDocumentsAndNamesTheirOutput() {
+    assertTrue(DocumentSpool.isImageDocument(document("image/PNG")));
+    assertFalse(DocumentSpool.isImageDocument(document("application/pdf")));
+    assertFalse(DocumentSpool.isImageDocument(document(null)));
+    assertEquals("processed-scan.png", DocumentSpool.processedName("scan.png"));
+    assertEquals("processed.jpg", DocumentSpool.processedName(" "));
+  }
+
+  private DocumentSpool spool(long maxBytes, long spillThresholdBytes, long memoryBudgetBytes) {
+    return new DocumentSpool(new AppConfig.DocumentSettings(maxBytes, spillThresholdBytes, memoryBudgetBytes,
+        spillDir.toString()));
+  }
+
+  private static Message document(String mimeType) {
+    Document document = new Document();
+    document.setFileId("file");
+    document.setMimeType(mimeType);
+    Message message = new Message();
+    message.setDocument(document);
+    return message;
+  }
+}
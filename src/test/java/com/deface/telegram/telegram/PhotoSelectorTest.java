@@ -0,0 +1,59 @@
+package com.deface.telegram.telegram;
+
+import com.deface.telegram.config.AppConfig;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.PhotoSize;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhotoSelectorTest {
+  private final List<PhotoSize> photos = List.of(
+      photo("s", 90, 67, 1_500),
+      photo("m", 320, 240, 20_000),
+      photo("x", 800, 600, 80_000),
+      photo("y", 1280, 960, 180_000)
+  );
+
+  @Test
+  void picksLargestWithoutBudget() {
+    assertEquals("y", select(0, 0));
+  }
+
+  @Test
+  void picksSmallestVariantMeetingPixelTarget() {
+    assertEquals("x", select(300_000, 0));
+    assertEquals("m", select(50_000, 0));
+    assertEquals("y", select(5_000_000, 0));
+  }
+
+  @Test
+  void staysWithinByteBudget() {
+    assertEquals("x", select(0, 100_000));
+    assertEquals("x", select(1_000_000, 100_000));
+    assertEquals("s", select(0, 1_000));
+  }
+
+  @Test
+  void picksSmallestPreviewWithEnoughPixels() {
+    assertEquals("m", PhotoSelector.preview(photos, 320 * 240).orElseThrow().getFileId());
+    assertEquals("s", PhotoSelector.preview(photos, 1).orElseThrow().getFileId());
+    assertTrue(PhotoSelector.preview(photos, 10_000_000).isEmpty());
+  }
+
+  private String select(long targetPixels, long maxBytes) {
+    return new PhotoSelector(new AppConfig.PhotoSizing(targetPixels, maxBytes, 0, 85))
+        .select(photos).orElseThrow().getFileId();
+  }
+
+  private static PhotoSize photo(String fileId, int width, int height, int fileSize) {
+    PhotoSize photo = new PhotoSize();
+    photo.setFileId(fileId);
+    photo.setWidth(width);
+    photo.setHeight(height);
+    photo.setFileSize(fileSize);
+    return photo;
+  }
+}
@@ -0,0 +1,120 @@
+package com.deface.telegram.telegram;
+
+import com.deface.telegram.config.AppConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelegramUploadClientTest {
+  private static final String MESSAGE = "{\"message_id\":7,\"date\":0,\"chat\":{\"id\":42,\"type\":\"private\"}}";
+
+  private HttpServer server;
+  private final ExecutorService handlers = Executors.newCachedThreadPool();
+  private final AtomicReference<String> lastBody = new AtomicReference<>();
+  private volatile String response = "{\"ok\":true,\"result\":" + MESSAGE + "}";
+  private volatile int status = 200;
+  private volatile CountDownLatch arrivals = new CountDownLatch(0);
+
+  @BeforeEach
+  void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/bottest-token/", exchange -> {
+      lastBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+      arrivals.countDown();
+      try {
+        arrivals.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(status, bytes.length);
+      exchange.getResponseBody().write(bytes);
+      exchange.close();
+    });
+    server.setExecutor(handlers);
+    server.start();
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+    handlers.shutdownNow();
+  }
+
+  @Test
+  void sendsMediaGroupWithAttachedFilesAndFileIds() throws Exception {
+    response = "{\"ok\":true,\"result\":[" + MESSAGE + "]}";
+    List<Message> sent = client().sendMediaGroup(42, List.of(
+        TelegramUploadClient.Upload.bytes("jpeg".getBytes(StandardCharsets.UTF_8), "processed-0.jpg"),
+        TelegramUploadClient.Upload.fileId("known")));
+
+    assertEquals(1, sent.size());
+    assertEquals(7, sent.get(0).getMessageId());
+    String body = lastBody.get();
+    assertTrue(body.contains("name=\"chat_id\"\r\n\r\n42\r\n"));
+    assertTrue(body.contains("name=\"file0\"; filename=\"processed-0.jpg\""));
+    assertTrue(body.contains("\r\n\r\njpeg\r\n--"));
+    assertTrue(body.contains("\"media\":\"attach://file0\""));
+    assertTrue(body.contains("\"media\":\"known\""));
+    assertTrue(body.endsWith("--\r\n"));
+  }
+
+  @Test
+  void reportsTelegramErrorCodes() {
+    status = 400;
+    response = "{\"ok\":false,\"error_code\":400,\"description\":\"Bad Request: wrong file identifier\"}";
+    TelegramApiRequestException error = assertThrows(TelegramApiRequestException.class,
+        () -> client().sendPhoto(42, TelegramUploadClient.Upload.fileId("stale")));
+    assertEquals(400, error.getErrorCode());
+  }
+
+  @Test
+  void acceptsEditsAnsweredWithoutAMessage() throws Exception {
+    response = "{\"ok\":true,\"result\":true}";
+    assertTrue(client().editMessageMedia(42, 7,
+        TelegramUploadClient.Upload.bytes(new byte[] {1}, "processed.jpg")).isEmpty());
+  }
+
+  @Test
+  void runsMoreThanTwoUploadsAtOnce() throws Exception {
+    arrivals = new CountDownLatch(4);
+    TelegramUploadClient client = client();
+    List<Future<Message>> sent = new ArrayList<>();
+    try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < 4; i++) {
+        sent.add(senders.submit(() -> client.sendPhoto(42,
+            TelegramUploadClient.Upload.bytes(new byte[] {1}, "processed.jpg"))));
+      }
+    }
+    assertEquals(0, arrivals.getCount());
+    for (Future<Message> message : sent) {
+      assertEquals(7, message.get().getMessageId());
+    }
+  }
+
+  private TelegramUploadClient client() {
+    return new TelegramUploadClient(AppConfig.load(Map.of(
+        "TELEGRAM_BOT_TOKEN", "test-token",
+        "TELEGRAM_API_BASE_URL", "http://127.0.0.1:" + server.getAddress().getPort())));
+  }
+}
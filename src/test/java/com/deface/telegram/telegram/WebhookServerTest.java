@@ -0,0 +1,71 @@
+package com.deface.telegram.telegram;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookServerTest {
+  private static final String RECORDED_UPDATE = """
+      {"update_id":100200300,"message":{"message_id":7,"date":1718000000,
+      "chat":{"id":4242,"type":"private","first_name":"Test"},
+      "from":{"id":4242,"is_bot":false,"first_name":"Test"},
+      "text":"/status","entities":[{"offset":0,"length":7,"type":"bot_command"}]}}
+      """;
+
+  private final HttpClient client = HttpClient.newHttpClient();
+  private final LinkedBlockingQueue<Update> received = new LinkedBlockingQueue<>();
+  private WebhookServer server;
+
+  @AfterEach
+  void stopServer() {
+    if (server != null) {
+      server.close();
+    }
+  }
+
+  @Test
+  void acknowledgesAndDispatchesRecordedUpdate() throws Exception {
+    server = new WebhookServer(0, "/telegram", "s3cret", 2, received::add);
+    server.start();
+
+    HttpResponse<String> response = post("/telegram", RECORDED_UPDATE, "s3cret");
+
+    assertEquals(200, response.statusCode());
+    Update update = received.poll(5, TimeUnit.SECONDS);
+    assertNotNull(update);
+    assertEquals(100200300, update.getUpdateId());
+    assertEquals(4242L, update.getMessage().getChatId());
+    assertEquals("/status", update.getMessage().getText());
+  }
+
+  @Test
+  void rejectsWrongSecretAndMalformedBodies() throws Exception {
+    server = new WebhookServer(0, "/telegram", "s3cret", 2, received::add);
+    server.start();
+
+    assertEquals(401, post("/telegram", RECORDED_UPDATE, "wrong").statusCode());
+    assertEquals(400, post("/telegram", "{not json", "s3cret").statusCode());
+    assertEquals(404, post("/telegram/other", RECORDED_UPDATE, "s3cret").statusCode());
+    assertTrue(received.isEmpty());
+  }
+
+  private HttpResponse<String> post(String path, String body, String secret) throws Exception {
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + path))
+        .header(WebhookServer.SECRET_HEADER, secret)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+}